@@ -2,6 +2,7 @@ package com.rbkmoney.payout.manager;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.boot.web.servlet.ServletComponentScan;
 
 @ServletComponentScan
@@ -9,7 +10,9 @@ import org.springframework.boot.web.servlet.ServletComponentScan;
 public class PayoutManagerApplication extends SpringApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(PayoutManagerApplication.class, args);
+        SpringApplication application = new SpringApplication(PayoutManagerApplication.class);
+        application.setApplicationStartup(new BufferingApplicationStartup(10_000));
+        application.run(args);
     }
 
 }
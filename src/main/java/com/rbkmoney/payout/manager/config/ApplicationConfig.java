@@ -2,23 +2,59 @@ package com.rbkmoney.payout.manager.config;
 
 import com.rbkmoney.damsel.payment_processing.PartyManagementSrv;
 import com.rbkmoney.damsel.shumpune.AccounterSrv;
+import com.rbkmoney.payout.manager.config.properties.HttpClientProperties;
+import com.rbkmoney.payout.manager.tracing.TracingHttpRequestInterceptor;
 import com.rbkmoney.woody.thrift.impl.http.THSpawnClientBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class ApplicationConfig {
 
+    @Bean
+    public CloseableHttpClient shumwayHttpClient(
+            HttpClientProperties httpClientProperties,
+            @Value("${service.shumway.networkTimeout}") int networkTimeout,
+            MeterRegistry meterRegistry) {
+        return createHttpClient("shumway", httpClientProperties.getShumway(), networkTimeout, meterRegistry);
+    }
+
+    @Bean
+    public CloseableHttpClient partyManagementHttpClient(
+            HttpClientProperties httpClientProperties,
+            @Value("${service.partyManagement.networkTimeout}") int networkTimeout,
+            MeterRegistry meterRegistry) {
+        return createHttpClient(
+                "partyManagement", httpClientProperties.getPartyManagement(), networkTimeout, meterRegistry);
+    }
+
     @Bean
     public AccounterSrv.Iface shumwayClient(
             @Value("${service.shumway.url}") Resource resource,
-            @Value("${service.shumway.networkTimeout}") int networkTimeout
+            @Value("${service.shumway.networkTimeout}") int networkTimeout,
+            CloseableHttpClient shumwayHttpClient
     ) throws IOException {
         return new THSpawnClientBuilder()
+                .withHttpClient(shumwayHttpClient)
                 .withAddress(resource.getURI())
                 .withNetworkTimeout(networkTimeout)
                 .build(AccounterSrv.Iface.class);
@@ -27,10 +63,64 @@ public class ApplicationConfig {
     @Bean
     public PartyManagementSrv.Iface partyManagementClient(
             @Value("${service.partyManagement.url}") Resource resource,
-            @Value("${service.partyManagement.networkTimeout}") int networkTimeout
+            @Value("${service.partyManagement.networkTimeout}") int networkTimeout,
+            CloseableHttpClient partyManagementHttpClient
     ) throws IOException {
         return new THSpawnClientBuilder()
+                .withHttpClient(partyManagementHttpClient)
                 .withNetworkTimeout(networkTimeout)
                 .withAddress(resource.getURI()).build(PartyManagementSrv.Iface.class);
     }
+
+    private CloseableHttpClient createHttpClient(
+            String service,
+            HttpClientProperties.Pool pool,
+            int networkTimeout,
+            MeterRegistry meterRegistry) {
+        Counter connectionsCounter = meterRegistry.counter("pm.http.client.connections.created", "service", service);
+        Counter requestsCounter = meterRegistry.counter("pm.http.client.requests", "service", service);
+        var connectionManager = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                        .build(),
+                (route, config) -> {
+                    connectionsCounter.increment();
+                    return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+                });
+        connectionManager.setMaxTotal(pool.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(pool.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(pool.getValidateAfterInactivityMs());
+
+        Tags tags = Tags.of("service", service);
+        meterRegistry.gauge("pm.http.client.pool.leased", tags, connectionManager,
+                manager -> manager.getTotalStats().getLeased());
+        meterRegistry.gauge("pm.http.client.pool.pending", tags, connectionManager,
+                manager -> manager.getTotalStats().getPending());
+        meterRegistry.gauge("pm.http.client.pool.available", tags, connectionManager,
+                manager -> manager.getTotalStats().getAvailable());
+        meterRegistry.gauge("pm.http.client.connections.reuse_ratio", tags, requestsCounter,
+                requests -> requests.count() == 0
+                        ? 0.0
+                        : Math.max(0.0, 1.0 - connectionsCounter.count() / requests.count()));
+
+        HttpRequestInterceptor requestInterceptor = (request, context) -> requestsCounter.increment();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(pool.getConnectTimeoutMs())
+                        .setConnectionRequestTimeout(pool.getConnectionRequestTimeoutMs())
+                        .setSocketTimeout(networkTimeout)
+                        .build())
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE
+                            .getKeepAliveDuration(response, context);
+                    return keepAliveMs > 0 ? Math.min(keepAliveMs, pool.getKeepAliveMs()) : pool.getKeepAliveMs();
+                })
+                .addInterceptorFirst(requestInterceptor)
+                .addInterceptorLast(new TracingHttpRequestInterceptor())
+                .evictExpiredConnections()
+                .evictIdleConnections(pool.getIdleTimeoutMs(), TimeUnit.MILLISECONDS)
+                .build();
+    }
 }
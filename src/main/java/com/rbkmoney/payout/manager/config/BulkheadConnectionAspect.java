@@ -0,0 +1,32 @@
+package com.rbkmoney.payout.manager.config;
+
+import com.rbkmoney.payout.manager.service.BulkheadService;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+public class BulkheadConnectionAspect {
+
+    private final BulkheadService bulkheadService;
+
+    // the export DAO streams through its own pool and is not counted against the main one
+    @Around("(@annotation(org.springframework.transaction.annotation.Transactional) " +
+            "|| within(com.rbkmoney.payout.manager.dao.impl..*Impl)) " +
+            "&& !within(com.rbkmoney.payout.manager.dao.impl.PayoutExportDaoImpl)")
+    public Object limitConnections(ProceedingJoinPoint joinPoint) throws Throwable {
+        bulkheadService.acquireConnection();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            bulkheadService.releaseConnection();
+        }
+    }
+}
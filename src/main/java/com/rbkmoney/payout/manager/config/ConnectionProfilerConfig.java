@@ -0,0 +1,36 @@
+package com.rbkmoney.payout.manager.config;
+
+import com.rbkmoney.payout.manager.dao.impl.ConnectionProfiler;
+import com.rbkmoney.payout.manager.dao.impl.ProfilingMetricsTrackerFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ConnectionProfilerConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionProfilerPostProcessor(
+            ObjectProvider<ConnectionProfiler> connectionProfiler,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource) {
+                    HikariDataSource dataSource = (HikariDataSource) bean;
+                    ConnectionProfiler profiler = connectionProfiler.getObject();
+                    if (profiler.isEnabled() && dataSource.getMetricsTrackerFactory() == null) {
+                        dataSource.setMetricsTrackerFactory(new ProfilingMetricsTrackerFactory(
+                                new MicrometerMetricsTrackerFactory(meterRegistry.getObject()),
+                                profiler));
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -2,17 +2,27 @@ package com.rbkmoney.payout.manager.config;
 
 import com.rbkmoney.kafka.common.serialization.ThriftSerializer;
 import com.rbkmoney.payout.manager.Event;
+import com.rbkmoney.payout.manager.Payout;
+import com.rbkmoney.payout.manager.config.properties.KafkaProducerProperties;
 import com.rbkmoney.payout.manager.config.properties.KafkaSslProperties;
+import com.rbkmoney.payout.manager.tracing.TracingProducerInterceptor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.TopicConfig;
 import org.apache.kafka.common.config.SslConfigs;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.thrift.TBase;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 
@@ -28,24 +38,79 @@ import static org.apache.kafka.common.security.auth.SecurityProtocol.SSL;
 public class KafkaConfig {
 
     private final KafkaSslProperties kafkaSslProperties;
+    private final KafkaProducerProperties kafkaProducerProperties;
 
     @Value("${kafka.bootstrap-servers}")
     private String bootstrapServers;
 
     @Bean
-    public KafkaTemplate<String, Event> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
-    }
-
-    private ProducerFactory<String, Event> producerFactory() {
+    public ProducerFactory<String, TBase<?, ?>> producerFactory() {
         Map<String, Object> config = new HashMap<>();
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ThriftSerializer.class);
+        config.put(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG, TracingProducerInterceptor.class.getName());
+        config.putAll(batchingConfig());
         config.putAll(sslConfig());
         return new DefaultKafkaProducerFactory<>(config);
     }
 
+    @Bean
+    public KafkaTemplate<String, Event> kafkaTemplate(ProducerFactory<String, TBase<?, ?>> producerFactory) {
+        return new KafkaTemplate<>(typed(producerFactory));
+    }
+
+    @Bean
+    public KafkaTemplate<String, Payout> payoutSnapshotKafkaTemplate(
+            ProducerFactory<String, TBase<?, ?>> producerFactory) {
+        return new KafkaTemplate<>(typed(producerFactory));
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "kafka.topic.pm-payout-snapshot.produce.enabled", havingValue = "true")
+    public KafkaAdmin payoutSnapshotKafkaAdmin() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.putAll(sslConfig());
+        return new KafkaAdmin(config);
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "kafka.topic.pm-payout-snapshot.produce.enabled", havingValue = "true")
+    public NewTopic payoutSnapshotTopic(
+            @Value("${kafka.topic.pm-payout-snapshot.name}") String topicName,
+            @Value("${kafka.topic.pm-payout-snapshot.partitions}") int partitions,
+            @Value("${kafka.topic.pm-payout-snapshot.replicas}") short replicas) {
+        return TopicBuilder.name(topicName)
+                .partitions(partitions)
+                .replicas(replicas)
+                .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT)
+                .build();
+    }
+
+    // both templates share one producer, ThriftSerializer handles any thrift value
+    @SuppressWarnings("unchecked")
+    private <T extends TBase<?, ?>> ProducerFactory<String, T> typed(
+            ProducerFactory<String, TBase<?, ?>> producerFactory) {
+        return (ProducerFactory<String, T>) (ProducerFactory<String, ?>) producerFactory;
+    }
+
+    private Map<String, Object> batchingConfig() {
+        log.info("Kafka producer lingerMs={}, batchSize={}, compressionType={}, enableIdempotence={}",
+                kafkaProducerProperties.getLingerMs(),
+                kafkaProducerProperties.getBatchSize(),
+                kafkaProducerProperties.getCompressionType(),
+                kafkaProducerProperties.isEnableIdempotence());
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.LINGER_MS_CONFIG, kafkaProducerProperties.getLingerMs());
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, kafkaProducerProperties.getBatchSize());
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, kafkaProducerProperties.getCompressionType());
+        // keeps per-partition (and so per-payoutId) ordering when the producer retries in-flight batches
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, kafkaProducerProperties.isEnableIdempotence());
+        return config;
+    }
+
     private Map<String, Object> sslConfig() {
         log.info("Kafka SSL isEnabled={}", kafkaSslProperties.isEnabled());
 
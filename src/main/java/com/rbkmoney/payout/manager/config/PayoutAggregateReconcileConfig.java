@@ -0,0 +1,42 @@
+package com.rbkmoney.payout.manager.config;
+
+import com.rbkmoney.payout.manager.job.PayoutAggregateReconcileJob;
+import org.quartz.DateBuilder;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(value = "payout-aggregate.reconcile.enabled", havingValue = "true")
+public class PayoutAggregateReconcileConfig {
+
+    @Bean
+    public JobDetail payoutAggregateReconcileJobDetail() {
+        return JobBuilder.newJob(PayoutAggregateReconcileJob.class)
+                .withIdentity("payoutAggregateReconcileJob")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger payoutAggregateReconcileTrigger(
+            JobDetail payoutAggregateReconcileJobDetail,
+            @Value("${payout-aggregate.reconcile.startDelayMs}") int startDelayMs,
+            @Value("${payout-aggregate.reconcile.intervalMs}") long intervalMs) {
+        return TriggerBuilder.newTrigger()
+                .forJob(payoutAggregateReconcileJobDetail)
+                .withIdentity("payoutAggregateReconcileTrigger")
+                .startAt(DateBuilder.futureDate(startDelayMs, DateBuilder.IntervalUnit.MILLISECOND))
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+                        .withIntervalInMilliseconds(intervalMs)
+                        .repeatForever()
+                        .withMisfireHandlingInstructionNextWithRemainingCount())
+                .build();
+    }
+}
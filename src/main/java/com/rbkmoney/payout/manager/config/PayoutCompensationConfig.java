@@ -0,0 +1,39 @@
+package com.rbkmoney.payout.manager.config;
+
+import com.rbkmoney.payout.manager.job.PayoutCompensationJob;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(value = "compensation.enabled", havingValue = "true")
+public class PayoutCompensationConfig {
+
+    @Bean
+    public JobDetail payoutCompensationJobDetail() {
+        return JobBuilder.newJob(PayoutCompensationJob.class)
+                .withIdentity("payoutCompensationJob")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger payoutCompensationTrigger(
+            JobDetail payoutCompensationJobDetail,
+            @Value("${compensation.pollIntervalMs}") long pollIntervalMs) {
+        return TriggerBuilder.newTrigger()
+                .forJob(payoutCompensationJobDetail)
+                .withIdentity("payoutCompensationTrigger")
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+                        .withIntervalInMilliseconds(pollIntervalMs)
+                        .repeatForever()
+                        .withMisfireHandlingInstructionNextWithRemainingCount())
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.rbkmoney.payout.manager.config;
+
+import com.rbkmoney.payout.manager.job.PayoutScheduleJob;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(value = "payout-schedule.enabled", havingValue = "true")
+public class PayoutScheduleConfig {
+
+    @Bean
+    public JobDetail payoutScheduleJobDetail() {
+        return JobBuilder.newJob(PayoutScheduleJob.class)
+                .withIdentity("payoutScheduleJob")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger payoutScheduleTrigger(
+            JobDetail payoutScheduleJobDetail,
+            @Value("${payout-schedule.pollIntervalMs}") long pollIntervalMs) {
+        return TriggerBuilder.newTrigger()
+                .forJob(payoutScheduleJobDetail)
+                .withIdentity("payoutScheduleTrigger")
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+                        .withIntervalInMilliseconds(pollIntervalMs)
+                        .repeatForever()
+                        .withMisfireHandlingInstructionNextWithRemainingCount())
+                .build();
+    }
+}
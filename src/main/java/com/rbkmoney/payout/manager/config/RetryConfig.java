@@ -1,5 +1,6 @@
 package com.rbkmoney.payout.manager.config;
 
+import com.rbkmoney.payout.manager.tracing.TracingRetryListener;
 import com.rbkmoney.woody.api.flow.error.WUnavailableResultException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -23,6 +24,7 @@ public class RetryConfig {
                 new SimpleRetryPolicy(maxAttempts, Collections.singletonMap(WUnavailableResultException.class, true))
         );
         retryTemplate.setBackOffPolicy(new ExponentialBackOffPolicy());
+        retryTemplate.registerListener(new TracingRetryListener());
         return retryTemplate;
     }
 }
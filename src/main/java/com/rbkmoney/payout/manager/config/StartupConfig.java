@@ -0,0 +1,18 @@
+package com.rbkmoney.payout.manager.config;
+
+import com.rbkmoney.payout.manager.PayoutManagementSrv;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                FlywayMigrationInitializer.class,
+                PayoutManagementSrv.Iface.class);
+    }
+}
@@ -0,0 +1,85 @@
+package com.rbkmoney.payout.manager.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupTimingsListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final String BEAN_INSTANTIATE_STEP = "spring.beans.instantiate";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${startup.slowestBeans}")
+    private int slowestBeans;
+
+    @Value("${startup.exitAfterReady}")
+    private boolean exitAfterReady;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long timeToReadyMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        meterRegistry.timer("pm.startup.time_to_ready").record(timeToReadyMs, TimeUnit.MILLISECONDS);
+        var applicationStartup = event.getApplicationContext().getApplicationStartup();
+        if (applicationStartup instanceof BufferingApplicationStartup) {
+            // drained so the startup steps are not kept for the lifetime of the application
+            report(((BufferingApplicationStartup) applicationStartup).drainBufferedTimeline());
+        }
+        log.info("Application is ready, timeToReadyMs='{}', lazyInitialization='{}'",
+                timeToReadyMs, event.getSpringApplication().isLazyInitialization());
+        if (exitAfterReady) {
+            log.info("Exit after ready, used for the class data sharing training run");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    private void report(StartupTimeline timeline) {
+        List<StartupTimeline.TimelineEvent> events = timeline.getEvents();
+        Map<String, Duration> phases = events.stream()
+                .filter(timelineEvent -> !BEAN_INSTANTIATE_STEP.equals(timelineEvent.getStartupStep().getName()))
+                .collect(Collectors.toMap(
+                        timelineEvent -> timelineEvent.getStartupStep().getName(),
+                        StartupTimeline.TimelineEvent::getDuration,
+                        Duration::plus));
+        phases.forEach((phase, duration) ->
+                meterRegistry.timer("pm.startup.phase", "phase", phase).record(duration));
+        log.info("Startup phases: {}", phases);
+
+        String beans = events.stream()
+                .filter(timelineEvent -> BEAN_INSTANTIATE_STEP.equals(timelineEvent.getStartupStep().getName()))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(slowestBeans)
+                .map(timelineEvent -> beanName(timelineEvent.getStartupStep()) + "=" +
+                        timelineEvent.getDuration().toMillis() + "ms")
+                .collect(Collectors.joining(", "));
+        log.info("Slowest bean instantiations: {}", beans);
+    }
+
+    private String beanName(StartupStep startupStep) {
+        return StreamSupport.stream(startupStep.getTags().spliterator(), false)
+                .filter(tag -> "beanName".equals(tag.getKey()))
+                .map(StartupStep.Tag::getValue)
+                .findFirst()
+                .orElse("unknown");
+    }
+}
@@ -0,0 +1,45 @@
+package com.rbkmoney.payout.manager.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbkmoney.payout.manager.config.properties.TracingProperties;
+import com.rbkmoney.payout.manager.tracing.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public Tracer tracer(TracingProperties tracingProperties, MeterRegistry meterRegistry) {
+        return new Tracer(tracingProperties, spanExporter(tracingProperties), meterRegistry);
+    }
+
+    @Bean
+    public TracingAspect tracingAspect(Tracer tracer) {
+        return new TracingAspect(tracer);
+    }
+
+    private SpanExporter spanExporter(TracingProperties tracingProperties) {
+        if (!tracingProperties.isEnabled()) {
+            return null;
+        }
+        var zipkinSpanFormatter = new ZipkinSpanFormatter(new ObjectMapper(), tracingProperties.getServiceName());
+        switch (tracingProperties.getExporter()) {
+            case FILE:
+                return new FileSpanExporter(Path.of(tracingProperties.getFile().getPath()), zipkinSpanFormatter);
+            case ZIPKIN:
+                return new ZipkinSpanExporter(
+                        URI.create(tracingProperties.getZipkin().getUrl()),
+                        Duration.ofMillis(tracingProperties.getZipkin().getTimeoutMs()),
+                        zipkinSpanFormatter);
+            default:
+                throw new IllegalArgumentException(
+                        String.format("Unknown span exporter, exporter='%s'", tracingProperties.getExporter()));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.rbkmoney.payout.manager.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionProperties {
+
+    private boolean enabled;
+    private int maxPartyBuckets;
+
+    private Limit defaultPartyLimit = new Limit();
+    private Map<String, Limit> methodLimits = new HashMap<>();
+    private Map<String, Map<String, Limit>> partyLimits = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        private double ratePerSecond;
+        private int burst;
+
+    }
+}
@@ -0,0 +1,32 @@
+package com.rbkmoney.payout.manager.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "bulkhead")
+public class BulkheadProperties {
+
+    private boolean enabled;
+
+    private Limit reads = new Limit();
+    private Limit creates = new Limit();
+    private Limit transitions = new Limit();
+    private Limit schedules = new Limit();
+    private Limit compensations = new Limit();
+    private Limit background = new Limit();
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        private int maxConcurrent;
+        private int maxConnections;
+        private long maxWaitMs;
+
+    }
+}
@@ -0,0 +1,24 @@
+package com.rbkmoney.payout.manager.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "hedging")
+public class HedgingProperties {
+
+    private boolean enabled;
+    private double percentile;
+    private long minDelayMs;
+    private long maxDelayMs;
+    private int windowSize;
+    private int minSamples;
+    private double budgetRatio;
+    private int maxBudget;
+    private int maxThreads;
+
+}
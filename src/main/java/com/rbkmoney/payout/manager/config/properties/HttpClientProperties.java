@@ -0,0 +1,30 @@
+package com.rbkmoney.payout.manager.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "http-client")
+public class HttpClientProperties {
+
+    private Pool shumway = new Pool();
+    private Pool partyManagement = new Pool();
+
+    @Getter
+    @Setter
+    public static class Pool {
+
+        private int maxTotal;
+        private int maxPerRoute;
+        private int connectTimeoutMs;
+        private int connectionRequestTimeoutMs;
+        private long keepAliveMs;
+        private long idleTimeoutMs;
+        private int validateAfterInactivityMs;
+
+    }
+}
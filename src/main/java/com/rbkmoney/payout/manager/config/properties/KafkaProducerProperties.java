@@ -0,0 +1,31 @@
+package com.rbkmoney.payout.manager.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "kafka.producer")
+public class KafkaProducerProperties {
+
+    private int lingerMs;
+    private int batchSize;
+    private String compressionType;
+    private boolean enableIdempotence;
+
+    private Async async = new Async();
+
+    @Getter
+    @Setter
+    public static class Async {
+
+        private boolean enabled;
+        private int maxInFlightEvents;
+        private long maxBlockMs;
+        private long retryIntervalMs;
+
+    }
+}
@@ -0,0 +1,45 @@
+package com.rbkmoney.payout.manager.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "tracing")
+public class TracingProperties {
+
+    private boolean enabled;
+    private String serviceName;
+    private Exporter exporter;
+    private int queueSize;
+    private int batchSize;
+    private long flushIntervalMs;
+
+    private File file = new File();
+    private Zipkin zipkin = new Zipkin();
+
+    public enum Exporter {
+        FILE,
+        ZIPKIN
+    }
+
+    @Getter
+    @Setter
+    public static class File {
+
+        private String path;
+
+    }
+
+    @Getter
+    @Setter
+    public static class Zipkin {
+
+        private String url;
+        private int timeoutMs;
+
+    }
+}
@@ -0,0 +1,25 @@
+package com.rbkmoney.payout.manager.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "capture")
+public class TrafficCaptureProperties {
+
+    private boolean enabled;
+    private String file;
+    private boolean anonymize;
+    private String anonymizationSalt;
+    private List<String> preservedFields = new ArrayList<>();
+    private int queueSize;
+    private long maxRecords;
+
+}
@@ -3,6 +3,7 @@ package com.rbkmoney.payout.manager.dao;
 import com.rbkmoney.dao.DaoException;
 import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CashFlowPostingDao {
@@ -11,4 +12,6 @@ public interface CashFlowPostingDao {
 
     List<CashFlowPosting> getByPayoutId(String payoutId) throws DaoException;
 
+    List<CashFlowPosting> getByPayoutIds(Collection<String> payoutIds) throws DaoException;
+
 }
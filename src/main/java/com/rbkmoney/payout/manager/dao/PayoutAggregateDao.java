@@ -0,0 +1,26 @@
+package com.rbkmoney.payout.manager.dao;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutAggregate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface PayoutAggregateDao {
+
+    void add(List<PayoutAggregate> deltas) throws DaoException;
+
+    List<PayoutAggregate> getStats(
+            String partyId,
+            String shopId,
+            LocalDate fromDay,
+            LocalDate toDay) throws DaoException;
+
+    void lockShop(String partyId, String shopId, boolean exclusive) throws DaoException;
+
+    List<Payout> getShops(LocalDate fromDay) throws DaoException;
+
+    int rebuild(String partyId, String shopId, LocalDate fromDay) throws DaoException;
+
+}
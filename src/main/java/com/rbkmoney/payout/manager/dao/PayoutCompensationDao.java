@@ -0,0 +1,26 @@
+package com.rbkmoney.payout.manager.dao;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.domain.enums.CompensationType;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutCompensation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PayoutCompensationDao {
+
+    boolean save(String payoutId, CompensationType type, LocalDateTime createdAt) throws DaoException;
+
+    List<PayoutCompensation> claimDue(LocalDateTime now, LocalDateTime lockedUntil, int limit) throws DaoException;
+
+    void succeed(long id, LocalDateTime completedAt) throws DaoException;
+
+    void retry(long id, LocalDateTime nextAttemptAt, String lastError) throws DaoException;
+
+    void fail(long id, LocalDateTime completedAt, String lastError) throws DaoException;
+
+    long countPending() throws DaoException;
+
+    LocalDateTime getOldestPendingCreatedAt() throws DaoException;
+
+}
@@ -4,18 +4,37 @@ import com.rbkmoney.dao.DaoException;
 import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
 import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface PayoutDao {
 
     Payout get(String payoutId) throws DaoException;
 
     Payout getForUpdate(String payoutId) throws DaoException;
 
+    List<Payout> getSummaries(Collection<String> payoutIds) throws DaoException;
+
+    List<Payout> getStatuses(Collection<String> payoutIds) throws DaoException;
+
     long save(Payout payout) throws DaoException;
 
     default void changeStatus(String payoutId, PayoutStatus payoutStatus) throws DaoException {
         changeStatus(payoutId, payoutStatus, null);
     }
 
-    void changeStatus(String payoutId, PayoutStatus payoutStatus, String cancelDetails) throws DaoException;
+    default void changeStatus(String payoutId, PayoutStatus payoutStatus, String cancelDetails) throws DaoException {
+        changeStatus(payoutId, payoutStatus, cancelDetails, null);
+    }
+
+    void changeStatus(
+            String payoutId,
+            PayoutStatus payoutStatus,
+            String cancelDetails,
+            byte[] snapshot) throws DaoException;
+
+    void saveHoldClock(String payoutId, byte[] holdClock) throws DaoException;
+
+    void lockShop(String partyId, String shopId) throws DaoException;
 
 }
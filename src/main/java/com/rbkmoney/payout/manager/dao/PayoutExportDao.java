@@ -0,0 +1,13 @@
+package com.rbkmoney.payout.manager.dao;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+
+import java.util.function.BiConsumer;
+
+public interface PayoutExportDao {
+
+    void export(PayoutExportFilter filter, BiConsumer<Payout, CashFlowPosting> rowHandler) throws DaoException;
+
+}
@@ -0,0 +1,22 @@
+package com.rbkmoney.payout.manager.dao;
+
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Builder
+@ToString
+public class PayoutExportFilter {
+
+    private final LocalDateTime fromTime;
+    private final LocalDateTime toTime;
+    private final String partyId;
+    private final String shopId;
+    private final PayoutStatus status;
+    private final boolean withPostings;
+
+}
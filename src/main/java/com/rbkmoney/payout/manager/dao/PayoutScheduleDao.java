@@ -0,0 +1,23 @@
+package com.rbkmoney.payout.manager.dao;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutSchedule;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PayoutScheduleDao {
+
+    long save(PayoutSchedule payoutSchedule) throws DaoException;
+
+    List<PayoutSchedule> claimDue(LocalDateTime now, LocalDateTime lockedUntil, int limit) throws DaoException;
+
+    void complete(long id, LocalDateTime lastRunAt, LocalDateTime nextRunAt, String lastPayoutId) throws DaoException;
+
+    void fail(long id, LocalDateTime lastRunAt, LocalDateTime retryAt, String lastError) throws DaoException;
+
+    void skip(long id, LocalDateTime lastRunAt, LocalDateTime nextRunAt, String lastError) throws DaoException;
+
+    long countDue(LocalDateTime now) throws DaoException;
+
+}
@@ -0,0 +1,20 @@
+package com.rbkmoney.payout.manager.dao;
+
+import com.rbkmoney.dao.DaoException;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface WorkLeaseDao {
+
+    void heartbeat(String job, String nodeId) throws DaoException;
+
+    List<String> getLiveNodes(String job, long nodeTtlMs) throws DaoException;
+
+    boolean tryAcquire(String job, int shard, String owner, long leaseMs) throws DaoException;
+
+    void releaseExcept(String job, String owner, Collection<Integer> shards) throws DaoException;
+
+    void removeNode(String job, String nodeId) throws DaoException;
+
+}
@@ -0,0 +1,147 @@
+package com.rbkmoney.payout.manager.dao.impl;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.dao.impl.AbstractGenericDao;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.Query;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Supplier;
+
+public abstract class AbstractInstrumentedDao extends AbstractGenericDao {
+
+    private final QueryMetrics queryMetrics;
+
+    protected AbstractInstrumentedDao(HikariDataSource dataSource, QueryMetrics queryMetrics) {
+        super(dataSource);
+        this.queryMetrics = queryMetrics;
+    }
+
+    protected <T> T fetchOne(String queryName, Query query, RowMapper<T> rowMapper) throws DaoException {
+        CountingRowMapper<T> countingRowMapper = new CountingRowMapper<>(rowMapper);
+        return instrument(queryName, query::getSQL, countingRowMapper,
+                () -> fetchOne(query, countingRowMapper));
+    }
+
+    protected <T> List<T> fetch(String queryName, Query query, RowMapper<T> rowMapper) throws DaoException {
+        CountingRowMapper<T> countingRowMapper = new CountingRowMapper<>(rowMapper);
+        return instrument(queryName, query::getSQL, countingRowMapper,
+                () -> fetch(query, countingRowMapper));
+    }
+
+    protected PreparedQuery prepare(String queryName, Query query) {
+        return PreparedQuery.of(queryName, getDslContext(), query);
+    }
+
+    protected <T> T fetchOne(
+            PreparedQuery preparedQuery,
+            SqlParameterSource parameterSource,
+            RowMapper<T> rowMapper) throws DaoException {
+        CountingRowMapper<T> countingRowMapper = new CountingRowMapper<>(rowMapper);
+        return instrument(preparedQuery.getName(), preparedQuery::getNamedSql, countingRowMapper,
+                () -> fetchOne(preparedQuery.getNamedSql(), parameterSource, countingRowMapper));
+    }
+
+    protected <T> List<T> fetch(
+            PreparedQuery preparedQuery,
+            SqlParameterSource parameterSource,
+            RowMapper<T> rowMapper) throws DaoException {
+        CountingRowMapper<T> countingRowMapper = new CountingRowMapper<>(rowMapper);
+        return instrument(preparedQuery.getName(), preparedQuery::getNamedSql, countingRowMapper,
+                () -> fetch(preparedQuery.getNamedSql(), parameterSource, countingRowMapper));
+    }
+
+    protected void executeOne(PreparedQuery preparedQuery, SqlParameterSource parameterSource) throws DaoException {
+        instrument(preparedQuery.getName(), preparedQuery::getNamedSql, null, () -> {
+            executeOne(preparedQuery.getNamedSql(), parameterSource);
+            return null;
+        });
+    }
+
+    protected void executeOne(String queryName, Query query) throws DaoException {
+        instrument(queryName, query::getSQL, null, () -> {
+            executeOne(query);
+            return null;
+        });
+    }
+
+    protected void executeOne(String queryName, Query query, KeyHolder keyHolder) throws DaoException {
+        instrument(queryName, query::getSQL, null, () -> {
+            executeOne(query, keyHolder);
+            return null;
+        });
+    }
+
+    protected void batchExecute(String queryName, List<Query> queries) throws DaoException {
+        Supplier<String> sqlShape = () -> queries.isEmpty() ? "" : queries.get(0).getSQL();
+        long start = queryMetrics.start();
+        boolean failed = true;
+        try {
+            batchExecute(queries);
+            failed = false;
+        } finally {
+            queryMetrics.record(queryName, System.nanoTime() - start, 0L, queries.size(), failed, sqlShape);
+        }
+    }
+
+    private <T> T instrument(
+            String queryName,
+            Supplier<String> sqlShape,
+            CountingRowMapper<?> countingRowMapper,
+            Supplier<T> execution) {
+        long start = queryMetrics.start();
+        RuntimeException failure = null;
+        try {
+            return execution.get();
+        } catch (RuntimeException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            long totalNanos = System.nanoTime() - start;
+            long fetchNanos = countingRowMapper == null ? 0L : countingRowMapper.mappingNanos;
+            long rows = countingRowMapper == null ? affectedRows(failure) : countingRowMapper.rows;
+            queryMetrics.record(queryName, totalNanos - fetchNanos, fetchNanos, rows, failure != null, sqlShape);
+        }
+    }
+
+    private static long affectedRows(RuntimeException failure) {
+        if (failure == null) {
+            // executeOne succeeds only when exactly one row was affected
+            return 1L;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JdbcUpdateAffectedIncorrectNumberOfRowsException) {
+                return ((JdbcUpdateAffectedIncorrectNumberOfRowsException) cause).getActualRowsAffected();
+            }
+        }
+        return 0L;
+    }
+
+    private static class CountingRowMapper<T> implements RowMapper<T> {
+
+        private final RowMapper<T> rowMapper;
+        private long rows;
+        private long mappingNanos;
+
+        private CountingRowMapper(RowMapper<T> rowMapper) {
+            this.rowMapper = rowMapper;
+        }
+
+        @Override
+        public T mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+            long start = System.nanoTime();
+            try {
+                return rowMapper.mapRow(resultSet, rowNum);
+            } finally {
+                rows++;
+                mappingNanos += System.nanoTime() - start;
+            }
+        }
+    }
+}
@@ -1,45 +1,61 @@
 package com.rbkmoney.payout.manager.dao.impl;
 
 import com.rbkmoney.dao.DaoException;
-import com.rbkmoney.dao.impl.AbstractGenericDao;
 import com.rbkmoney.mapper.RecordRowMapper;
 import com.rbkmoney.payout.manager.dao.CashFlowPostingDao;
 import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
+import com.rbkmoney.payout.manager.tracing.Traced;
 import com.zaxxer.hikari.HikariDataSource;
 import org.jooq.Query;
+import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import static com.rbkmoney.payout.manager.domain.tables.CashFlowPosting.CASH_FLOW_POSTING;
 
 @Component
-public class CashFlowPostingDaoImpl extends AbstractGenericDao implements CashFlowPostingDao {
+public class CashFlowPostingDaoImpl extends AbstractInstrumentedDao implements CashFlowPostingDao {
 
     private final RowMapper<CashFlowPosting> cashFlowPostingRowMapper;
+    private final PreparedQuery getByPayoutIdQuery;
 
     @Autowired
-    public CashFlowPostingDaoImpl(HikariDataSource dataSource) {
-        super(dataSource);
+    public CashFlowPostingDaoImpl(HikariDataSource dataSource, QueryMetrics queryMetrics) {
+        super(dataSource, queryMetrics);
         cashFlowPostingRowMapper = new RecordRowMapper<>(CASH_FLOW_POSTING, CashFlowPosting.class);
+        getByPayoutIdQuery = prepare("cashFlowPosting.getByPayoutId",
+                getDslContext().selectFrom(CASH_FLOW_POSTING).where(CASH_FLOW_POSTING.PAYOUT_ID.eq(DSL.param("payoutId", CASH_FLOW_POSTING.PAYOUT_ID))));
     }
 
     @Override
+    @Traced("db.cashFlowPosting.save")
     public void save(List<CashFlowPosting> cashFlowPostings) throws DaoException {
         List<Query> queries = cashFlowPostings.stream()
                 .map(cashFlowPosting -> getDslContext().insertInto(CASH_FLOW_POSTING)
                         .set(getDslContext().newRecord(CASH_FLOW_POSTING, cashFlowPosting)))
                 .collect(Collectors.toList());
-        batchExecute(queries);
+        batchExecute("cashFlowPosting.save", queries);
     }
 
     @Override
+    @Traced("db.cashFlowPosting.getByPayoutId")
     public List<CashFlowPosting> getByPayoutId(String payoutId) throws DaoException {
+        MapSqlParameterSource params = new MapSqlParameterSource("payoutId", payoutId);
+        return fetch(getByPayoutIdQuery, params, cashFlowPostingRowMapper);
+    }
+
+    @Override
+    @Traced("db.cashFlowPosting.getByPayoutIds")
+    public List<CashFlowPosting> getByPayoutIds(Collection<String> payoutIds) throws DaoException {
         Query query = getDslContext().selectFrom(CASH_FLOW_POSTING)
-                .where(CASH_FLOW_POSTING.PAYOUT_ID.eq(payoutId));
-        return fetch(query, cashFlowPostingRowMapper);
+                .where(CASH_FLOW_POSTING.PAYOUT_ID.eq(DSL.any(payoutIds.toArray(String[]::new))))
+                .orderBy(CASH_FLOW_POSTING.ID);
+        return fetch("cashFlowPosting.getByPayoutIds", query, cashFlowPostingRowMapper);
     }
 }
@@ -0,0 +1,140 @@
+package com.rbkmoney.payout.manager.dao.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class ConnectionProfiler {
+
+    private static final CodePath UNKNOWN_CODE_PATH = new CodePath("unknown", false);
+
+    private final ThreadLocal<Deque<CodePath>> codePaths = ThreadLocal.withInitial(ArrayDeque::new);
+    private final ThreadLocal<Deque<Checkout>> checkouts = ThreadLocal.withInitial(ArrayDeque::new);
+    private final ThreadLocal<Long> sqlStartNanos = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long waitAlertThresholdNanos;
+    private final Counter waitAlertCounter;
+    private final Counter timeoutCounter;
+
+    public ConnectionProfiler(
+            MeterRegistry meterRegistry,
+            @Value("${connection-profiler.enabled}") boolean enabled,
+            @Value("${connection-profiler.waitAlertThresholdMs}") long waitAlertThresholdMs) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.waitAlertThresholdNanos = TimeUnit.MILLISECONDS.toNanos(waitAlertThresholdMs);
+        this.waitAlertCounter = meterRegistry.counter("pm.db.connection.wait_alerts");
+        this.timeoutCounter = meterRegistry.counter("pm.db.connection.timeouts");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void enter(String path, boolean transactional) {
+        codePaths.get().push(new CodePath(path, transactional));
+    }
+
+    public void exit() {
+        codePaths.get().poll();
+    }
+
+    public void onAcquired(long waitNanos) {
+        CodePath codePath = currentCodePath();
+        timer("pm.db.connection.wait", codePath).record(waitNanos, TimeUnit.NANOSECONDS);
+        if (waitNanos >= waitAlertThresholdNanos) {
+            waitAlertCounter.increment();
+            log.warn("Long wait for DB connection, path='{}', transactional='{}', waitMs='{}'",
+                    codePath.path, codePath.transactional, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+        checkouts.get().push(new Checkout(codePath, System.nanoTime()));
+    }
+
+    public void onReleased() {
+        Checkout checkout = checkouts.get().poll();
+        if (checkout == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        // a non-transactional statement releases its connection before the statement call returns
+        addRunningSqlTime(checkout, now);
+        long holdNanos = now - checkout.startNanos;
+        long sqlNanos = Math.min(checkout.sqlNanos, holdNanos);
+        timer("pm.db.connection.hold", checkout.codePath).record(holdNanos, TimeUnit.NANOSECONDS);
+        timer("pm.db.connection.hold.sql", checkout.codePath).record(sqlNanos, TimeUnit.NANOSECONDS);
+        timer("pm.db.connection.hold.outside_sql", checkout.codePath)
+                .record(holdNanos - sqlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void onTimeout() {
+        CodePath codePath = currentCodePath();
+        timeoutCounter.increment();
+        log.error("Timeout while waiting for DB connection, path='{}', transactional='{}'",
+                codePath.path, codePath.transactional);
+    }
+
+    public void startSql() {
+        sqlStartNanos.set(System.nanoTime());
+    }
+
+    public void endSql() {
+        Checkout checkout = checkouts.get().peek();
+        if (checkout != null) {
+            addRunningSqlTime(checkout, System.nanoTime());
+        }
+        sqlStartNanos.remove();
+    }
+
+    private void addRunningSqlTime(Checkout checkout, long now) {
+        Long sqlStart = sqlStartNanos.get();
+        if (sqlStart != null) {
+            checkout.sqlNanos += now - Math.max(sqlStart, checkout.startNanos);
+        }
+    }
+
+    private CodePath currentCodePath() {
+        CodePath codePath = codePaths.get().peek();
+        return codePath == null ? UNKNOWN_CODE_PATH : codePath;
+    }
+
+    private Timer timer(String name, CodePath codePath) {
+        return Timer.builder(name)
+                .tag("path", codePath.path)
+                .tag("transactional", String.valueOf(codePath.transactional))
+                .register(meterRegistry);
+    }
+
+    private static class CodePath {
+
+        private final String path;
+        private final boolean transactional;
+
+        private CodePath(String path, boolean transactional) {
+            this.path = path;
+            this.transactional = transactional;
+        }
+    }
+
+    private static class Checkout {
+
+        private final CodePath codePath;
+        private final long startNanos;
+        private long sqlNanos;
+
+        private Checkout(CodePath codePath, long startNanos) {
+            this.codePath = codePath;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.rbkmoney.payout.manager.dao.impl;
+
+import com.rbkmoney.payout.manager.tracing.Traced;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ConnectionProfilingAspect {
+
+    private final ConnectionProfiler connectionProfiler;
+
+    @Around("@annotation(traced)")
+    public Object profile(ProceedingJoinPoint joinPoint, Traced traced) throws Throwable {
+        if (!connectionProfiler.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        boolean transactional = ((MethodSignature) joinPoint.getSignature()).getMethod()
+                .isAnnotationPresent(Transactional.class);
+        connectionProfiler.enter(traced.value(), transactional);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            connectionProfiler.exit();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.rbkmoney.payout.manager.dao.impl;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.mapper.RecordRowMapper;
+import com.rbkmoney.payout.manager.dao.PayoutAggregateDao;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutAggregate;
+import com.rbkmoney.payout.manager.tracing.Traced;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.Query;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.rbkmoney.payout.manager.domain.tables.Payout.PAYOUT;
+import static com.rbkmoney.payout.manager.domain.tables.PayoutAggregate.PAYOUT_AGGREGATE;
+
+@Component
+public class PayoutAggregateDaoImpl extends AbstractInstrumentedDao implements PayoutAggregateDao {
+
+    private final RowMapper<PayoutAggregate> payoutAggregateRowMapper;
+
+    @Autowired
+    public PayoutAggregateDaoImpl(HikariDataSource dataSource, QueryMetrics queryMetrics) {
+        super(dataSource, queryMetrics);
+        payoutAggregateRowMapper = new RecordRowMapper<>(PAYOUT_AGGREGATE, PayoutAggregate.class);
+    }
+
+    @Override
+    @Traced("db.payoutAggregate.add")
+    public void add(List<PayoutAggregate> deltas) throws DaoException {
+        List<Query> queries = deltas.stream()
+                .sorted(Comparator.comparing(PayoutAggregate::getStatus))
+                .map(delta -> getDslContext().insertInto(PAYOUT_AGGREGATE)
+                        .set(getDslContext().newRecord(PAYOUT_AGGREGATE, delta))
+                        .onConflict(
+                                PAYOUT_AGGREGATE.PARTY_ID,
+                                PAYOUT_AGGREGATE.SHOP_ID,
+                                PAYOUT_AGGREGATE.CURRENCY_CODE,
+                                PAYOUT_AGGREGATE.STATUS,
+                                PAYOUT_AGGREGATE.DAY)
+                        .doUpdate()
+                        .set(PAYOUT_AGGREGATE.PAYOUT_COUNT, PAYOUT_AGGREGATE.PAYOUT_COUNT.plus(delta.getPayoutCount()))
+                        .set(PAYOUT_AGGREGATE.AMOUNT, PAYOUT_AGGREGATE.AMOUNT.plus(delta.getAmount()))
+                        .set(PAYOUT_AGGREGATE.FEE, PAYOUT_AGGREGATE.FEE.plus(delta.getFee())))
+                .collect(Collectors.toList());
+        batchExecute("payoutAggregate.add", queries);
+    }
+
+    @Override
+    @Traced("db.payoutAggregate.getStats")
+    public List<PayoutAggregate> getStats(
+            String partyId,
+            String shopId,
+            LocalDate fromDay,
+            LocalDate toDay) throws DaoException {
+        Condition condition = PAYOUT_AGGREGATE.PARTY_ID.eq(partyId)
+                .and(PAYOUT_AGGREGATE.DAY.between(fromDay, toDay));
+        if (shopId != null) {
+            condition = condition.and(PAYOUT_AGGREGATE.SHOP_ID.eq(shopId));
+        }
+        Query query = getDslContext().selectFrom(PAYOUT_AGGREGATE)
+                .where(condition)
+                .and(PAYOUT_AGGREGATE.PAYOUT_COUNT.gt(0L))
+                .orderBy(PAYOUT_AGGREGATE.DAY, PAYOUT_AGGREGATE.SHOP_ID, PAYOUT_AGGREGATE.STATUS);
+        return fetch("payoutAggregate.getStats", query, payoutAggregateRowMapper);
+    }
+
+    @Override
+    @Traced("db.payoutAggregate.lockShop")
+    public void lockShop(String partyId, String shopId, boolean exclusive) throws DaoException {
+        String lockFunction = exclusive ? "pg_advisory_xact_lock" : "pg_advisory_xact_lock_shared";
+        Query query = getDslContext().selectOne()
+                .from(DSL.table(lockFunction + "(hashtext({0}))", "payout_aggregate/" + partyId + "/" + shopId));
+
+        fetchOne("payoutAggregate.lockShop", query, (resultSet, rowNum) -> resultSet.getInt(1));
+    }
+
+    @Override
+    @Traced("db.payoutAggregate.getShops")
+    public List<Payout> getShops(LocalDate fromDay) throws DaoException {
+        Condition condition = fromDay == null ? DSL.noCondition() : PAYOUT.CREATED_AT.ge(fromDay.atStartOfDay());
+        Query query = getDslContext().selectDistinct(PAYOUT.PARTY_ID, PAYOUT.SHOP_ID)
+                .from(PAYOUT)
+                .where(condition);
+        return fetch("payoutAggregate.getShops", query, (resultSet, rowNum) -> {
+            var payout = new Payout();
+            payout.setPartyId(resultSet.getString(PAYOUT.PARTY_ID.getName()));
+            payout.setShopId(resultSet.getString(PAYOUT.SHOP_ID.getName()));
+            return payout;
+        });
+    }
+
+    @Override
+    @Traced("db.payoutAggregate.rebuild")
+    public int rebuild(String partyId, String shopId, LocalDate fromDay) throws DaoException {
+        Field<LocalDate> day = PAYOUT.CREATED_AT.cast(SQLDataType.LOCALDATE);
+        Condition aggregateCondition = PAYOUT_AGGREGATE.PARTY_ID.eq(partyId)
+                .and(PAYOUT_AGGREGATE.SHOP_ID.eq(shopId));
+        Condition payoutCondition = PAYOUT.PARTY_ID.eq(partyId)
+                .and(PAYOUT.SHOP_ID.eq(shopId));
+        if (fromDay != null) {
+            aggregateCondition = aggregateCondition.and(PAYOUT_AGGREGATE.DAY.ge(fromDay));
+            payoutCondition = payoutCondition.and(PAYOUT.CREATED_AT.ge(fromDay.atStartOfDay()));
+        }
+        Query delete = getDslContext().deleteFrom(PAYOUT_AGGREGATE)
+                .where(aggregateCondition)
+                .returning(PAYOUT_AGGREGATE.DAY);
+        Query insert = getDslContext().insertInto(PAYOUT_AGGREGATE,
+                PAYOUT_AGGREGATE.PARTY_ID,
+                PAYOUT_AGGREGATE.SHOP_ID,
+                PAYOUT_AGGREGATE.CURRENCY_CODE,
+                PAYOUT_AGGREGATE.STATUS,
+                PAYOUT_AGGREGATE.DAY,
+                PAYOUT_AGGREGATE.PAYOUT_COUNT,
+                PAYOUT_AGGREGATE.AMOUNT,
+                PAYOUT_AGGREGATE.FEE)
+                .select(getDslContext().select(
+                        PAYOUT.PARTY_ID,
+                        PAYOUT.SHOP_ID,
+                        PAYOUT.CURRENCY_CODE,
+                        PAYOUT.STATUS,
+                        day,
+                        DSL.count().cast(SQLDataType.BIGINT),
+                        DSL.sum(PAYOUT.AMOUNT).cast(SQLDataType.BIGINT),
+                        DSL.sum(PAYOUT.FEE).cast(SQLDataType.BIGINT))
+                        .from(PAYOUT)
+                        .where(payoutCondition)
+                        .groupBy(PAYOUT.PARTY_ID, PAYOUT.SHOP_ID, PAYOUT.CURRENCY_CODE, PAYOUT.STATUS, day))
+                .returning(PAYOUT_AGGREGATE.DAY);
+        fetch("payoutAggregate.rebuild.delete", delete, (resultSet, rowNum) -> rowNum);
+        return fetch("payoutAggregate.rebuild.insert", insert, (resultSet, rowNum) -> rowNum).size();
+    }
+}
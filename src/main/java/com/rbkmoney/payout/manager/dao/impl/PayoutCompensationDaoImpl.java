@@ -0,0 +1,133 @@
+package com.rbkmoney.payout.manager.dao.impl;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.mapper.RecordRowMapper;
+import com.rbkmoney.payout.manager.dao.PayoutCompensationDao;
+import com.rbkmoney.payout.manager.domain.enums.CompensationStatus;
+import com.rbkmoney.payout.manager.domain.enums.CompensationType;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutCompensation;
+import com.rbkmoney.payout.manager.tracing.Traced;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.rbkmoney.payout.manager.domain.tables.PayoutCompensation.PAYOUT_COMPENSATION;
+import static org.jooq.impl.DSL.min;
+
+@Component
+public class PayoutCompensationDaoImpl extends AbstractInstrumentedDao implements PayoutCompensationDao {
+
+    private final RowMapper<PayoutCompensation> payoutCompensationRowMapper;
+
+    @Autowired
+    public PayoutCompensationDaoImpl(HikariDataSource dataSource, QueryMetrics queryMetrics) {
+        super(dataSource, queryMetrics);
+        payoutCompensationRowMapper = new RecordRowMapper<>(PAYOUT_COMPENSATION, PayoutCompensation.class);
+    }
+
+    @Override
+    @Traced("db.payoutCompensation.save")
+    public boolean save(String payoutId, CompensationType type, LocalDateTime createdAt) throws DaoException {
+        Query query = getDslContext().insertInto(PAYOUT_COMPENSATION)
+                .set(PAYOUT_COMPENSATION.PAYOUT_ID, payoutId)
+                .set(PAYOUT_COMPENSATION.TYPE, type)
+                .set(PAYOUT_COMPENSATION.STATUS, CompensationStatus.PENDING)
+                .set(PAYOUT_COMPENSATION.CREATED_AT, createdAt)
+                .set(PAYOUT_COMPENSATION.NEXT_ATTEMPT_AT, createdAt)
+                .onConflict(PAYOUT_COMPENSATION.PAYOUT_ID)
+                .doNothing()
+                .returning(PAYOUT_COMPENSATION.ID);
+
+        return !fetch("payoutCompensation.save", query, (resultSet, rowNum) -> resultSet.getLong(1)).isEmpty();
+    }
+
+    @Override
+    @Traced("db.payoutCompensation.claimDue")
+    public List<PayoutCompensation> claimDue(
+            LocalDateTime now,
+            LocalDateTime lockedUntil,
+            int limit) throws DaoException {
+        Query query = getDslContext().update(PAYOUT_COMPENSATION)
+                .set(PAYOUT_COMPENSATION.LOCKED_UNTIL, lockedUntil)
+                .set(PAYOUT_COMPENSATION.ATTEMPTS, PAYOUT_COMPENSATION.ATTEMPTS.plus(1))
+                .where(PAYOUT_COMPENSATION.ID.in(getDslContext().select(PAYOUT_COMPENSATION.ID)
+                        .from(PAYOUT_COMPENSATION)
+                        .where(PAYOUT_COMPENSATION.STATUS.eq(CompensationStatus.PENDING))
+                        .and(PAYOUT_COMPENSATION.NEXT_ATTEMPT_AT.le(now))
+                        .and(PAYOUT_COMPENSATION.LOCKED_UNTIL.isNull()
+                                .or(PAYOUT_COMPENSATION.LOCKED_UNTIL.lt(now)))
+                        .orderBy(PAYOUT_COMPENSATION.NEXT_ATTEMPT_AT)
+                        .limit(limit)
+                        .forUpdate()
+                        .skipLocked()))
+                .returning();
+        return fetch("payoutCompensation.claimDue", query, payoutCompensationRowMapper);
+    }
+
+    @Override
+    @Traced("db.payoutCompensation.succeed")
+    public void succeed(long id, LocalDateTime completedAt) throws DaoException {
+        Query query = getDslContext().update(PAYOUT_COMPENSATION)
+                .set(PAYOUT_COMPENSATION.STATUS, CompensationStatus.SUCCEEDED)
+                .set(PAYOUT_COMPENSATION.COMPLETED_AT, completedAt)
+                .setNull(PAYOUT_COMPENSATION.LAST_ERROR)
+                .setNull(PAYOUT_COMPENSATION.LOCKED_UNTIL)
+                .where(PAYOUT_COMPENSATION.ID.eq(id));
+
+        executeOne("payoutCompensation.succeed", query);
+    }
+
+    @Override
+    @Traced("db.payoutCompensation.retry")
+    public void retry(long id, LocalDateTime nextAttemptAt, String lastError) throws DaoException {
+        Query query = getDslContext().update(PAYOUT_COMPENSATION)
+                .set(PAYOUT_COMPENSATION.NEXT_ATTEMPT_AT, nextAttemptAt)
+                .set(PAYOUT_COMPENSATION.LAST_ERROR, lastError)
+                .setNull(PAYOUT_COMPENSATION.LOCKED_UNTIL)
+                .where(PAYOUT_COMPENSATION.ID.eq(id));
+
+        executeOne("payoutCompensation.retry", query);
+    }
+
+    @Override
+    @Traced("db.payoutCompensation.fail")
+    public void fail(long id, LocalDateTime completedAt, String lastError) throws DaoException {
+        Query query = getDslContext().update(PAYOUT_COMPENSATION)
+                .set(PAYOUT_COMPENSATION.STATUS, CompensationStatus.FAILED)
+                .set(PAYOUT_COMPENSATION.COMPLETED_AT, completedAt)
+                .set(PAYOUT_COMPENSATION.LAST_ERROR, lastError)
+                .setNull(PAYOUT_COMPENSATION.LOCKED_UNTIL)
+                .where(PAYOUT_COMPENSATION.ID.eq(id));
+
+        executeOne("payoutCompensation.fail", query);
+    }
+
+    @Override
+    @Traced("db.payoutCompensation.countPending")
+    public long countPending() throws DaoException {
+        Query query = getDslContext().selectCount()
+                .from(PAYOUT_COMPENSATION)
+                .where(PAYOUT_COMPENSATION.STATUS.eq(CompensationStatus.PENDING));
+
+        return fetchOne("payoutCompensation.countPending", query, (resultSet, rowNum) -> resultSet.getLong(1));
+    }
+
+    @Override
+    @Traced("db.payoutCompensation.getOldestPendingCreatedAt")
+    public LocalDateTime getOldestPendingCreatedAt() throws DaoException {
+        Query query = getDslContext().select(min(PAYOUT_COMPENSATION.CREATED_AT))
+                .from(PAYOUT_COMPENSATION)
+                .where(PAYOUT_COMPENSATION.STATUS.eq(CompensationStatus.PENDING));
+
+        return fetchOne("payoutCompensation.getOldestPendingCreatedAt", query, (resultSet, rowNum) -> {
+            Timestamp createdAt = resultSet.getTimestamp(1);
+            return createdAt == null ? null : createdAt.toLocalDateTime();
+        });
+    }
+}
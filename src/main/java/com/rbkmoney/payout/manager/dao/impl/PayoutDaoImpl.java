@@ -1,72 +1,163 @@
 package com.rbkmoney.payout.manager.dao.impl;
 
 import com.rbkmoney.dao.DaoException;
-import com.rbkmoney.dao.impl.AbstractGenericDao;
 import com.rbkmoney.mapper.RecordRowMapper;
 import com.rbkmoney.payout.manager.dao.PayoutDao;
 import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
 import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.tracing.Traced;
 import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.Field;
 import org.jooq.Query;
+import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import static com.rbkmoney.payout.manager.domain.tables.Payout.PAYOUT;
 
 @Component
-public class PayoutDaoImpl extends AbstractGenericDao implements PayoutDao {
+public class PayoutDaoImpl extends AbstractInstrumentedDao implements PayoutDao {
+
+    private static final List<Field<?>> SUMMARY_FIELDS = List.of(
+            PAYOUT.ID, PAYOUT.PAYOUT_ID, PAYOUT.SEQUENCE_ID, PAYOUT.CREATED_AT, PAYOUT.PARTY_ID, PAYOUT.SHOP_ID,
+            PAYOUT.STATUS, PAYOUT.PAYOUT_TOOL_ID, PAYOUT.AMOUNT, PAYOUT.FEE, PAYOUT.CURRENCY_CODE,
+            PAYOUT.CANCEL_DETAILS);
 
     private final RowMapper<Payout> payoutRowMapper;
+    private final PreparedQuery getQuery;
+    private final PreparedQuery getForUpdateQuery;
+    private final PreparedQuery changeStatusQuery;
 
     @Autowired
-    public PayoutDaoImpl(HikariDataSource dataSource) {
-        super(dataSource);
+    public PayoutDaoImpl(HikariDataSource dataSource, QueryMetrics queryMetrics) {
+        super(dataSource, queryMetrics);
         payoutRowMapper = new RecordRowMapper<>(PAYOUT, Payout.class);
+        getQuery = prepare("payout.get", getDslContext().selectFrom(PAYOUT)
+                .where(PAYOUT.PAYOUT_ID.eq(DSL.param("payoutId", PAYOUT.PAYOUT_ID))));
+        getForUpdateQuery = prepare("payout.getForUpdate", getDslContext().selectFrom(PAYOUT)
+                .where(PAYOUT.PAYOUT_ID.eq(DSL.param("payoutId", PAYOUT.PAYOUT_ID)))
+                .forUpdate());
+        changeStatusQuery = prepare("payout.changeStatus", getDslContext().update(PAYOUT)
+                .set(PAYOUT.STATUS, DSL.param("status", PAYOUT.STATUS))
+                .set(PAYOUT.SEQUENCE_ID, PAYOUT.SEQUENCE_ID.plus(DSL.inline(1)))
+                .set(PAYOUT.CANCEL_DETAILS, DSL.param("cancelDetails", PAYOUT.CANCEL_DETAILS))
+                .set(PAYOUT.SNAPSHOT, DSL.param("snapshot", PAYOUT.SNAPSHOT))
+                .where(PAYOUT.PAYOUT_ID.eq(DSL.param("payoutId", PAYOUT.PAYOUT_ID))));
     }
 
     @Override
+    @Traced("db.payout.get")
     public Payout get(String payoutId) throws DaoException {
-        Query query = getDslContext().selectFrom(PAYOUT)
-                .where(PAYOUT.PAYOUT_ID.eq(payoutId));
+        MapSqlParameterSource params = new MapSqlParameterSource("payoutId", payoutId);
 
-        return fetchOne(query, payoutRowMapper);
+        return fetchOne(getQuery, params, payoutRowMapper);
     }
 
     @Override
+    @Traced("db.payout.getForUpdate")
     public Payout getForUpdate(String payoutId) throws DaoException {
-        Query query = getDslContext().selectFrom(PAYOUT)
-                .where(PAYOUT.PAYOUT_ID.eq(payoutId))
-                .forUpdate();
+        MapSqlParameterSource params = new MapSqlParameterSource("payoutId", payoutId);
+
+        return fetchOne(getForUpdateQuery, params, payoutRowMapper);
+    }
+
+    @Override
+    @Traced("db.payout.getSummaries")
+    public List<Payout> getSummaries(Collection<String> payoutIds) throws DaoException {
+        Query query = getDslContext().select(SUMMARY_FIELDS)
+                .from(PAYOUT)
+                .where(PAYOUT.PAYOUT_ID.eq(DSL.any(payoutIds.toArray(String[]::new))));
+
+        return fetch("payout.getSummaries", query, (resultSet, rowNum) -> {
+            Payout payout = toStatus(resultSet);
+            payout.setId(resultSet.getLong(PAYOUT.ID.getName()));
+            payout.setCreatedAt(resultSet.getObject(PAYOUT.CREATED_AT.getName(), LocalDateTime.class));
+            payout.setPartyId(resultSet.getString(PAYOUT.PARTY_ID.getName()));
+            payout.setShopId(resultSet.getString(PAYOUT.SHOP_ID.getName()));
+            payout.setPayoutToolId(resultSet.getString(PAYOUT.PAYOUT_TOOL_ID.getName()));
+            payout.setAmount(resultSet.getLong(PAYOUT.AMOUNT.getName()));
+            payout.setFee(resultSet.getLong(PAYOUT.FEE.getName()));
+            payout.setCurrencyCode(resultSet.getString(PAYOUT.CURRENCY_CODE.getName()));
+            return payout;
+        });
+    }
+
+    @Override
+    @Traced("db.payout.getStatuses")
+    public List<Payout> getStatuses(Collection<String> payoutIds) throws DaoException {
+        Query query = getDslContext().select(PAYOUT.PAYOUT_ID, PAYOUT.SEQUENCE_ID, PAYOUT.STATUS, PAYOUT.CANCEL_DETAILS)
+                .from(PAYOUT)
+                .where(PAYOUT.PAYOUT_ID.eq(DSL.any(payoutIds.toArray(String[]::new))));
 
-        return fetchOne(query, payoutRowMapper);
+        return fetch("payout.getStatuses", query, (resultSet, rowNum) -> toStatus(resultSet));
+    }
+
+    private Payout toStatus(ResultSet resultSet) throws SQLException {
+        var payout = new Payout();
+        payout.setPayoutId(resultSet.getString(PAYOUT.PAYOUT_ID.getName()));
+        payout.setSequenceId(resultSet.getInt(PAYOUT.SEQUENCE_ID.getName()));
+        payout.setStatus(PayoutStatus.valueOf(resultSet.getString(PAYOUT.STATUS.getName())));
+        payout.setCancelDetails(resultSet.getString(PAYOUT.CANCEL_DETAILS.getName()));
+        return payout;
     }
 
     @Override
+    @Traced("db.payout.save")
     public long save(Payout payout) throws DaoException {
         Query query = getDslContext().insertInto(PAYOUT)
                 .set(getDslContext().newRecord(PAYOUT, payout))
                 .returning(PAYOUT.ID);
 
         KeyHolder keyHolder = new GeneratedKeyHolder();
-        executeOne(query, keyHolder);
+        executeOne("payout.save", query, keyHolder);
         return Optional.ofNullable(keyHolder.getKey())
                 .map(Number::longValue)
                 .orElseThrow();
     }
 
     @Override
-    public void changeStatus(String payoutId, PayoutStatus payoutStatus, String cancelDetails) throws DaoException {
+    @Traced("db.payout.changeStatus")
+    public void changeStatus(
+            String payoutId,
+            PayoutStatus payoutStatus,
+            String cancelDetails,
+            byte[] snapshot) throws DaoException {
+        MapSqlParameterSource params = new MapSqlParameterSource("payoutId", payoutId)
+                .addValue("status", payoutStatus.getLiteral())
+                .addValue("cancelDetails", cancelDetails)
+                .addValue("snapshot", snapshot, Types.BINARY);
+
+        executeOne(changeStatusQuery, params);
+    }
+
+    @Override
+    @Traced("db.payout.saveHoldClock")
+    public void saveHoldClock(String payoutId, byte[] holdClock) throws DaoException {
         Query query = getDslContext().update(PAYOUT)
-                .set(PAYOUT.STATUS, payoutStatus)
-                .set(PAYOUT.SEQUENCE_ID, PAYOUT.SEQUENCE_ID.plus(1))
-                .set(PAYOUT.CANCEL_DETAILS, cancelDetails)
+                .set(PAYOUT.HOLD_CLOCK, holdClock)
                 .where(PAYOUT.PAYOUT_ID.eq(payoutId));
 
-        executeOne(query);
+        executeOne("payout.saveHoldClock", query);
+    }
+
+    @Override
+    @Traced("db.payout.lockShop")
+    public void lockShop(String partyId, String shopId) throws DaoException {
+        Query query = getDslContext().selectOne()
+                .from(DSL.table("pg_advisory_xact_lock(hashtext({0}))", partyId + "/" + shopId));
+
+        fetchOne("payout.lockShop", query, (resultSet, rowNum) -> resultSet.getInt(1));
     }
 }
@@ -0,0 +1,140 @@
+package com.rbkmoney.payout.manager.dao.impl;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.dao.PayoutExportDao;
+import com.rbkmoney.payout.manager.dao.PayoutExportFilter;
+import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.Condition;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.ResultQuery;
+import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static com.rbkmoney.payout.manager.domain.tables.CashFlowPosting.CASH_FLOW_POSTING;
+import static com.rbkmoney.payout.manager.domain.tables.Payout.PAYOUT;
+
+@Slf4j
+@Component
+public class PayoutExportDaoImpl implements PayoutExportDao, DisposableBean {
+
+    private static final List<Field<?>> PAYOUT_FIELDS = List.of(
+            PAYOUT.PAYOUT_ID, PAYOUT.CREATED_AT, PAYOUT.PARTY_ID, PAYOUT.SHOP_ID, PAYOUT.STATUS,
+            PAYOUT.PAYOUT_TOOL_ID, PAYOUT.AMOUNT, PAYOUT.FEE, PAYOUT.CURRENCY_CODE, PAYOUT.CANCEL_DETAILS);
+    private static final List<Field<?>> POSTING_FIELDS = List.of(
+            CASH_FLOW_POSTING.ID, CASH_FLOW_POSTING.FROM_ACCOUNT_ID, CASH_FLOW_POSTING.FROM_ACCOUNT_TYPE,
+            CASH_FLOW_POSTING.TO_ACCOUNT_ID, CASH_FLOW_POSTING.TO_ACCOUNT_TYPE, CASH_FLOW_POSTING.AMOUNT,
+            CASH_FLOW_POSTING.CURRENCY_CODE, CASH_FLOW_POSTING.DESCRIPTION);
+
+    private final DataSourceProperties dataSourceProperties;
+
+    @Value("${export.maxConnections}")
+    private int maxConnections;
+
+    @Value("${export.connectionTimeoutMs}")
+    private long connectionTimeoutMs;
+
+    @Value("${export.fetchSize}")
+    private int fetchSize;
+
+    private volatile HikariDataSource exportDataSource;
+
+    public PayoutExportDaoImpl(DataSourceProperties dataSourceProperties) {
+        this.dataSourceProperties = dataSourceProperties;
+    }
+
+    @Override
+    public void export(PayoutExportFilter filter, BiConsumer<Payout, CashFlowPosting> rowHandler) throws DaoException {
+        try (Connection connection = getExportDataSource().getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                DSLContext dslContext = DSL.using(connection, SQLDialect.POSTGRES);
+                try (Cursor<Record> cursor = buildQuery(dslContext, filter).fetchSize(fetchSize).fetchLazy()) {
+                    for (Record record : cursor) {
+                        Payout payout = record.into(PAYOUT).into(Payout.class);
+                        CashFlowPosting cashFlowPosting = filter.isWithPostings()
+                                && record.get(CASH_FLOW_POSTING.ID) != null
+                                ? record.into(CASH_FLOW_POSTING).into(CashFlowPosting.class)
+                                : null;
+                        rowHandler.accept(payout, cashFlowPosting);
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException | DataAccessException ex) {
+            throw new DaoException(String.format("Failed to export payouts, filter='%s'", filter), ex);
+        }
+    }
+
+    private ResultQuery<Record> buildQuery(DSLContext dslContext, PayoutExportFilter filter) {
+        Condition condition = PAYOUT.CREATED_AT.ge(filter.getFromTime())
+                .and(PAYOUT.CREATED_AT.lt(filter.getToTime()));
+        if (filter.getPartyId() != null) {
+            condition = condition.and(PAYOUT.PARTY_ID.eq(filter.getPartyId()));
+        }
+        if (filter.getShopId() != null) {
+            condition = condition.and(PAYOUT.SHOP_ID.eq(filter.getShopId()));
+        }
+        if (filter.getStatus() != null) {
+            condition = condition.and(PAYOUT.STATUS.eq(filter.getStatus()));
+        }
+        if (!filter.isWithPostings()) {
+            return dslContext.select(PAYOUT_FIELDS)
+                    .from(PAYOUT)
+                    .where(condition)
+                    .orderBy(PAYOUT.CREATED_AT, PAYOUT.ID);
+        }
+        return dslContext.select(PAYOUT_FIELDS)
+                .select(POSTING_FIELDS)
+                .from(PAYOUT)
+                .leftJoin(CASH_FLOW_POSTING).on(CASH_FLOW_POSTING.PAYOUT_ID.eq(PAYOUT.PAYOUT_ID))
+                .where(condition)
+                .orderBy(PAYOUT.CREATED_AT, PAYOUT.ID, CASH_FLOW_POSTING.ID);
+    }
+
+    private HikariDataSource getExportDataSource() {
+        if (exportDataSource == null) {
+            synchronized (this) {
+                if (exportDataSource == null) {
+                    HikariConfig config = new HikariConfig();
+                    config.setPoolName("export");
+                    config.setJdbcUrl(dataSourceProperties.determineUrl());
+                    config.setUsername(dataSourceProperties.determineUsername());
+                    config.setPassword(dataSourceProperties.determinePassword());
+                    config.setDriverClassName(dataSourceProperties.determineDriverClassName());
+                    config.setMaximumPoolSize(maxConnections);
+                    config.setMinimumIdle(0);
+                    config.setConnectionTimeout(connectionTimeoutMs);
+                    config.setReadOnly(true);
+                    exportDataSource = new HikariDataSource(config);
+                    log.info("Export connection pool has been created, maxConnections='{}'", maxConnections);
+                }
+            }
+        }
+        return exportDataSource;
+    }
+
+    @Override
+    public void destroy() {
+        if (exportDataSource != null) {
+            exportDataSource.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.rbkmoney.payout.manager.dao.impl;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.mapper.RecordRowMapper;
+import com.rbkmoney.payout.manager.dao.PayoutScheduleDao;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutSchedule;
+import com.rbkmoney.payout.manager.tracing.Traced;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.Condition;
+import org.jooq.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static com.rbkmoney.payout.manager.domain.tables.PayoutSchedule.PAYOUT_SCHEDULE;
+
+@Component
+public class PayoutScheduleDaoImpl extends AbstractInstrumentedDao implements PayoutScheduleDao {
+
+    private final RowMapper<PayoutSchedule> payoutScheduleRowMapper;
+
+    @Autowired
+    public PayoutScheduleDaoImpl(HikariDataSource dataSource, QueryMetrics queryMetrics) {
+        super(dataSource, queryMetrics);
+        payoutScheduleRowMapper = new RecordRowMapper<>(PAYOUT_SCHEDULE, PayoutSchedule.class);
+    }
+
+    @Override
+    @Traced("db.payoutSchedule.save")
+    public long save(PayoutSchedule payoutSchedule) throws DaoException {
+        Query query = getDslContext().insertInto(PAYOUT_SCHEDULE)
+                .set(getDslContext().newRecord(PAYOUT_SCHEDULE, payoutSchedule))
+                .onConflict(PAYOUT_SCHEDULE.PARTY_ID, PAYOUT_SCHEDULE.SHOP_ID)
+                .doUpdate()
+                .set(PAYOUT_SCHEDULE.CRON, payoutSchedule.getCron())
+                .set(PAYOUT_SCHEDULE.CURRENCY_CODE, payoutSchedule.getCurrencyCode())
+                .set(PAYOUT_SCHEDULE.AMOUNT, payoutSchedule.getAmount())
+                .set(PAYOUT_SCHEDULE.ENABLED, payoutSchedule.getEnabled())
+                .set(PAYOUT_SCHEDULE.NEXT_RUN_AT, payoutSchedule.getNextRunAt())
+                .set(PAYOUT_SCHEDULE.FAILED_ATTEMPTS, 0)
+                .setNull(PAYOUT_SCHEDULE.LAST_ERROR)
+                .returning(PAYOUT_SCHEDULE.ID);
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        executeOne("payoutSchedule.save", query, keyHolder);
+        return Optional.ofNullable(keyHolder.getKey())
+                .map(Number::longValue)
+                .orElseThrow();
+    }
+
+    @Override
+    @Traced("db.payoutSchedule.claimDue")
+    public List<PayoutSchedule> claimDue(
+            LocalDateTime now,
+            LocalDateTime lockedUntil,
+            int limit) throws DaoException {
+        Query query = getDslContext().update(PAYOUT_SCHEDULE)
+                .set(PAYOUT_SCHEDULE.LOCKED_UNTIL, lockedUntil)
+                .where(PAYOUT_SCHEDULE.ID.in(getDslContext().select(PAYOUT_SCHEDULE.ID)
+                        .from(PAYOUT_SCHEDULE)
+                        .where(isDue(now))
+                        .orderBy(PAYOUT_SCHEDULE.NEXT_RUN_AT)
+                        .limit(limit)
+                        .forUpdate()
+                        .skipLocked()))
+                .returning();
+        return fetch("payoutSchedule.claimDue", query, payoutScheduleRowMapper);
+    }
+
+    @Override
+    @Traced("db.payoutSchedule.complete")
+    public void complete(
+            long id,
+            LocalDateTime lastRunAt,
+            LocalDateTime nextRunAt,
+            String lastPayoutId) throws DaoException {
+        Query query = getDslContext().update(PAYOUT_SCHEDULE)
+                .set(PAYOUT_SCHEDULE.LAST_RUN_AT, lastRunAt)
+                .set(PAYOUT_SCHEDULE.NEXT_RUN_AT, nextRunAt)
+                .set(PAYOUT_SCHEDULE.LAST_PAYOUT_ID, lastPayoutId)
+                .setNull(PAYOUT_SCHEDULE.LAST_ERROR)
+                .set(PAYOUT_SCHEDULE.FAILED_ATTEMPTS, 0)
+                .setNull(PAYOUT_SCHEDULE.LOCKED_UNTIL)
+                .where(PAYOUT_SCHEDULE.ID.eq(id));
+
+        executeOne("payoutSchedule.complete", query);
+    }
+
+    @Override
+    @Traced("db.payoutSchedule.fail")
+    public void fail(
+            long id,
+            LocalDateTime lastRunAt,
+            LocalDateTime retryAt,
+            String lastError) throws DaoException {
+        // next_run_at is kept, so the retry creates the payout with the same id;
+        // the lease is extended up to retryAt to hold the schedule back
+        Query query = getDslContext().update(PAYOUT_SCHEDULE)
+                .set(PAYOUT_SCHEDULE.LAST_RUN_AT, lastRunAt)
+                .set(PAYOUT_SCHEDULE.LAST_ERROR, lastError)
+                .set(PAYOUT_SCHEDULE.FAILED_ATTEMPTS, PAYOUT_SCHEDULE.FAILED_ATTEMPTS.plus(1))
+                .set(PAYOUT_SCHEDULE.LOCKED_UNTIL, retryAt)
+                .where(PAYOUT_SCHEDULE.ID.eq(id));
+
+        executeOne("payoutSchedule.fail", query);
+    }
+
+    @Override
+    @Traced("db.payoutSchedule.skip")
+    public void skip(
+            long id,
+            LocalDateTime lastRunAt,
+            LocalDateTime nextRunAt,
+            String lastError) throws DaoException {
+        Query query = getDslContext().update(PAYOUT_SCHEDULE)
+                .set(PAYOUT_SCHEDULE.LAST_RUN_AT, lastRunAt)
+                .set(PAYOUT_SCHEDULE.NEXT_RUN_AT, nextRunAt)
+                .set(PAYOUT_SCHEDULE.LAST_ERROR, lastError)
+                .set(PAYOUT_SCHEDULE.FAILED_ATTEMPTS, 0)
+                .setNull(PAYOUT_SCHEDULE.LOCKED_UNTIL)
+                .where(PAYOUT_SCHEDULE.ID.eq(id));
+
+        executeOne("payoutSchedule.skip", query);
+    }
+
+    @Override
+    @Traced("db.payoutSchedule.countDue")
+    public long countDue(LocalDateTime now) throws DaoException {
+        Query query = getDslContext().selectCount()
+                .from(PAYOUT_SCHEDULE)
+                .where(isDue(now));
+
+        return fetchOne("payoutSchedule.countDue", query, (resultSet, rowNum) -> resultSet.getLong(1));
+    }
+
+    private Condition isDue(LocalDateTime now) {
+        return PAYOUT_SCHEDULE.ENABLED.isTrue()
+                .and(PAYOUT_SCHEDULE.NEXT_RUN_AT.le(now))
+                .and(PAYOUT_SCHEDULE.LOCKED_UNTIL.isNull().or(PAYOUT_SCHEDULE.LOCKED_UNTIL.lt(now)));
+    }
+}
@@ -0,0 +1,18 @@
+package com.rbkmoney.payout.manager.dao.impl;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+
+@Getter
+@RequiredArgsConstructor
+public class PreparedQuery {
+
+    private final String name;
+    private final String namedSql;
+
+    public static PreparedQuery of(String name, DSLContext dslContext, Query query) {
+        return new PreparedQuery(name, dslContext.renderNamedParams(query));
+    }
+}
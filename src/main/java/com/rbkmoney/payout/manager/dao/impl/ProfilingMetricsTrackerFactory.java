@@ -0,0 +1,53 @@
+package com.rbkmoney.payout.manager.dao.impl;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class ProfilingMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    private final MetricsTrackerFactory delegate;
+    private final ConnectionProfiler connectionProfiler;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new ProfilingMetricsTracker(delegate.create(poolName, poolStats), connectionProfiler);
+    }
+
+    @RequiredArgsConstructor
+    private static class ProfilingMetricsTracker implements IMetricsTracker {
+
+        private final IMetricsTracker delegate;
+        private final ConnectionProfiler connectionProfiler;
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            delegate.recordConnectionCreatedMillis(connectionCreatedMillis);
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            delegate.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+            connectionProfiler.onAcquired(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            delegate.recordConnectionUsageMillis(elapsedBorrowedMillis);
+            connectionProfiler.onReleased();
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            delegate.recordConnectionTimeout();
+            connectionProfiler.onTimeout();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
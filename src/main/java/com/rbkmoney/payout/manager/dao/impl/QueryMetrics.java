@@ -0,0 +1,65 @@
+package com.rbkmoney.payout.manager.dao.impl;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+public class QueryMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final ConnectionProfiler connectionProfiler;
+    private final long slowThresholdNanos;
+
+    public QueryMetrics(
+            MeterRegistry meterRegistry,
+            ConnectionProfiler connectionProfiler,
+            @Value("${query-metrics.slowThresholdMs}") long slowThresholdMs) {
+        this.meterRegistry = meterRegistry;
+        this.connectionProfiler = connectionProfiler;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+    }
+
+    public long start() {
+        connectionProfiler.startSql();
+        return System.nanoTime();
+    }
+
+    public void record(
+            String queryName,
+            long executeNanos,
+            long fetchNanos,
+            long rows,
+            boolean failed,
+            Supplier<String> sqlShape) {
+        connectionProfiler.endSql();
+        Timer.builder("pm.db.query.execute")
+                .tag("query", queryName)
+                .tag("result", failed ? "failed" : "success")
+                .register(meterRegistry)
+                .record(executeNanos, TimeUnit.NANOSECONDS);
+        Timer.builder("pm.db.query.fetch")
+                .tag("query", queryName)
+                .register(meterRegistry)
+                .record(fetchNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("pm.db.query.rows")
+                .tag("query", queryName)
+                .register(meterRegistry)
+                .record(rows);
+        if (executeNanos + fetchNanos >= slowThresholdNanos) {
+            log.warn("Slow query, query='{}', executeMs='{}', fetchMs='{}', rows='{}', sql='{}'",
+                    queryName,
+                    TimeUnit.NANOSECONDS.toMillis(executeNanos),
+                    TimeUnit.NANOSECONDS.toMillis(fetchNanos),
+                    rows,
+                    sqlShape.get());
+        }
+    }
+}
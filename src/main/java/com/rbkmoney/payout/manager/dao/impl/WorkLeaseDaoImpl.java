@@ -0,0 +1,107 @@
+package com.rbkmoney.payout.manager.dao.impl;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.dao.WorkLeaseDao;
+import com.rbkmoney.payout.manager.tracing.Traced;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.Field;
+import org.jooq.Query;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static com.rbkmoney.payout.manager.domain.tables.WorkLease.WORK_LEASE;
+import static com.rbkmoney.payout.manager.domain.tables.WorkNode.WORK_NODE;
+
+@Component
+public class WorkLeaseDaoImpl extends AbstractInstrumentedDao implements WorkLeaseDao {
+
+    @Autowired
+    public WorkLeaseDaoImpl(HikariDataSource dataSource, QueryMetrics queryMetrics) {
+        super(dataSource, queryMetrics);
+    }
+
+    @Override
+    @Traced("db.workLease.heartbeat")
+    public void heartbeat(String job, String nodeId) throws DaoException {
+        Query query = getDslContext().insertInto(WORK_NODE)
+                .set(WORK_NODE.JOB, job)
+                .set(WORK_NODE.NODE_ID, nodeId)
+                .set(WORK_NODE.HEARTBEAT_AT, dbNowPlus(0L))
+                .onConflict(WORK_NODE.JOB, WORK_NODE.NODE_ID)
+                .doUpdate()
+                .set(WORK_NODE.HEARTBEAT_AT, dbNowPlus(0L));
+
+        executeOne("workLease.heartbeat", query);
+    }
+
+    @Override
+    @Traced("db.workLease.getLiveNodes")
+    public List<String> getLiveNodes(String job, long nodeTtlMs) throws DaoException {
+        Query query = getDslContext().select(WORK_NODE.NODE_ID)
+                .from(WORK_NODE)
+                .where(WORK_NODE.JOB.eq(job))
+                .and(WORK_NODE.HEARTBEAT_AT.gt(dbNowPlus(-nodeTtlMs)))
+                .orderBy(WORK_NODE.NODE_ID);
+
+        return fetch("workLease.getLiveNodes", query, (resultSet, rowNum) -> resultSet.getString(1));
+    }
+
+    @Override
+    @Traced("db.workLease.tryAcquire")
+    public boolean tryAcquire(String job, int shard, String owner, long leaseMs) throws DaoException {
+        Query query = getDslContext().insertInto(WORK_LEASE)
+                .set(WORK_LEASE.JOB, job)
+                .set(WORK_LEASE.SHARD, shard)
+                .set(WORK_LEASE.OWNER, owner)
+                .set(WORK_LEASE.LEASE_UNTIL, dbNowPlus(leaseMs))
+                .onConflict(WORK_LEASE.JOB, WORK_LEASE.SHARD)
+                .doUpdate()
+                .set(WORK_LEASE.OWNER, owner)
+                .set(WORK_LEASE.LEASE_UNTIL, dbNowPlus(leaseMs))
+                .where(WORK_LEASE.OWNER.eq(owner).or(WORK_LEASE.LEASE_UNTIL.lt(dbNowPlus(0L))))
+                .returning(WORK_LEASE.SHARD);
+
+        return !fetch("workLease.tryAcquire", query, (resultSet, rowNum) -> resultSet.getInt(1)).isEmpty();
+    }
+
+    @Override
+    @Traced("db.workLease.releaseExcept")
+    public void releaseExcept(String job, String owner, Collection<Integer> shards) throws DaoException {
+        deleteLeasesExcept(job, owner, shards);
+    }
+
+    @Override
+    @Traced("db.workLease.removeNode")
+    public void removeNode(String job, String nodeId) throws DaoException {
+        deleteLeasesExcept(job, nodeId, List.of());
+        Query query = getDslContext().deleteFrom(WORK_NODE)
+                .where(WORK_NODE.JOB.eq(job))
+                .and(WORK_NODE.NODE_ID.eq(nodeId))
+                .returning(WORK_NODE.NODE_ID);
+
+        fetch("workLease.removeNode", query, (resultSet, rowNum) -> resultSet.getString(1));
+    }
+
+    private void deleteLeasesExcept(String job, String owner, Collection<Integer> shards) {
+        Query query = getDslContext().deleteFrom(WORK_LEASE)
+                .where(WORK_LEASE.JOB.eq(job))
+                .and(WORK_LEASE.OWNER.eq(owner))
+                .and(WORK_LEASE.SHARD.notIn(shards))
+                .returning(WORK_LEASE.SHARD);
+
+        fetch("workLease.releaseExcept", query, (resultSet, rowNum) -> resultSet.getInt(1));
+    }
+
+    private Field<LocalDateTime> dbNowPlus(long millis) {
+        return DSL.field(
+                "(now() at time zone 'utc') + {0} * interval '1 millisecond'",
+                SQLDataType.LOCALDATETIME,
+                DSL.val(millis));
+    }
+}
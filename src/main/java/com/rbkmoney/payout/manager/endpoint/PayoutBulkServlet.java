@@ -0,0 +1,66 @@
+package com.rbkmoney.payout.manager.endpoint;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbkmoney.payout.manager.service.PayoutReadService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+@Slf4j
+@WebServlet("/payout/bulk")
+public class PayoutBulkServlet extends HttpServlet {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private PayoutReadService payoutReadService;
+
+    @Value("${payout-read.bulk.enabled}")
+    private boolean enabled;
+
+    @Value("${payout-read.bulk.maxIds}")
+    private int maxIds;
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!enabled) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        List<String> payoutIds;
+        PayoutReadService.Projection projection;
+        try {
+            payoutIds = objectMapper.readValue(req.getInputStream(), new TypeReference<List<String>>() {
+            });
+            String projectionParameter = req.getParameter("projection");
+            projection = projectionParameter == null
+                    ? PayoutReadService.Projection.FULL
+                    : PayoutReadService.Projection.valueOf(projectionParameter.toUpperCase(Locale.ROOT));
+        } catch (JsonProcessingException | IllegalArgumentException ex) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "Expected body: JSON array of payout ids, and optional parameter " +
+                            "projection (status|without_cash_flow|full)");
+            return;
+        }
+        if (payoutIds == null || payoutIds.size() > maxIds || payoutIds.contains(null)) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    String.format("Expected from 0 to %d non-null payout ids", maxIds));
+            return;
+        }
+        List<PayoutReadService.BulkPayout> payouts = payoutReadService.getPayouts(payoutIds, projection);
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resp.setContentType("application/x-ndjson");
+        payoutReadService.writeBulk(payouts, projection, resp.getWriter());
+    }
+}
@@ -0,0 +1,80 @@
+package com.rbkmoney.payout.manager.endpoint;
+
+import com.rbkmoney.payout.manager.dao.PayoutExportFilter;
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import com.rbkmoney.payout.manager.exception.StorageException;
+import com.rbkmoney.payout.manager.service.PayoutExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+import static com.rbkmoney.payout.manager.util.ServletUtil.getRequiredParameter;
+
+@Slf4j
+@WebServlet("/payout/export")
+public class PayoutExportServlet extends HttpServlet {
+
+    @Autowired
+    private PayoutExportService payoutExportService;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!payoutExportService.isEnabled()) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        PayoutExportFilter filter;
+        PayoutExportService.Format format;
+        try {
+            filter = PayoutExportFilter.builder()
+                    .fromTime(LocalDateTime.parse(getRequiredParameter(req, "fromTime")))
+                    .toTime(LocalDateTime.parse(getRequiredParameter(req, "toTime")))
+                    .partyId(req.getParameter("partyId"))
+                    .shopId(req.getParameter("shopId"))
+                    .status(parseStatus(req.getParameter("status")))
+                    .withPostings(Boolean.parseBoolean(req.getParameter("withPostings")))
+                    .build();
+            String formatParameter = req.getParameter("format");
+            format = formatParameter == null
+                    ? PayoutExportService.Format.CSV
+                    : PayoutExportService.Format.valueOf(formatParameter.toUpperCase(Locale.ROOT));
+        } catch (DateTimeParseException | IllegalArgumentException ex) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "Expected parameters: fromTime, toTime (ISO local date-time, UTC) and optional " +
+                            "partyId, shopId, status, withPostings, format (csv|jsonl)");
+            return;
+        }
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resp.setContentType(format == PayoutExportService.Format.CSV ? "text/csv" : "application/x-ndjson");
+        try {
+            payoutExportService.export(filter, format, resp.getWriter());
+        } catch (StorageException ex) {
+            log.error("Failed to export payouts, filter='{}'", filter, ex);
+            if (!resp.isCommitted()) {
+                resp.reset();
+                resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+
+    private PayoutStatus parseStatus(String status) {
+        if (status == null) {
+            return null;
+        }
+        for (PayoutStatus payoutStatus : PayoutStatus.values()) {
+            if (payoutStatus.getLiteral().equalsIgnoreCase(status)) {
+                return payoutStatus;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown payout status, status='%s'", status));
+    }
+}
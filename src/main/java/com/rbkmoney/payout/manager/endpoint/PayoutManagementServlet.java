@@ -1,13 +1,20 @@
 package com.rbkmoney.payout.manager.endpoint;
 
 import com.rbkmoney.payout.manager.PayoutManagementSrv;
+import com.rbkmoney.payout.manager.service.TrafficCaptureService;
 import com.rbkmoney.woody.thrift.impl.http.THServiceBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.servlet.*;
 import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Slf4j
 @WebServlet("/payout/management")
@@ -18,6 +25,9 @@ public class PayoutManagementServlet extends GenericServlet {
     @Autowired
     private PayoutManagementSrv.Iface requestHandler;
 
+    @Autowired
+    private TrafficCaptureService trafficCaptureService;
+
     @Override
     public void init(ServletConfig config) throws ServletException {
         log.info("Payout management servlet init.");
@@ -29,6 +39,84 @@ public class PayoutManagementServlet extends GenericServlet {
     @Override
     public void service(ServletRequest req, ServletResponse res) throws ServletException, IOException {
         log.info("Start new request to servlet.");
-        thriftServlet.service(req, res);
+        if (!trafficCaptureService.isEnabled() || !(req instanceof HttpServletRequest)) {
+            thriftServlet.service(req, res);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) req;
+        byte[] body = httpRequest.getInputStream().readAllBytes();
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : Collections.list(httpRequest.getHeaderNames())) {
+            if (trafficCaptureService.shouldCaptureHeader(name)) {
+                headers.put(name, httpRequest.getHeader(name));
+            }
+        }
+        long startedAt = System.nanoTime();
+        try {
+            thriftServlet.service(new CapturedBodyRequest(httpRequest, body), res);
+        } finally {
+            trafficCaptureService.capture(body, headers, startedAt, System.nanoTime() - startedAt);
+        }
+    }
+
+    private static class CapturedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CapturedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // the body is already buffered, so it is available to the listener right away
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException ex) {
+                        readListener.onError(ex);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
     }
 }
@@ -0,0 +1,84 @@
+package com.rbkmoney.payout.manager.endpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutAggregate;
+import com.rbkmoney.payout.manager.service.PayoutAggregateService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.rbkmoney.payout.manager.util.ServletUtil.getRequiredParameter;
+
+@Slf4j
+@WebServlet("/payout/stats")
+public class PayoutStatsServlet extends HttpServlet {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private PayoutAggregateService payoutAggregateService;
+
+    @Value("${payout-aggregate.stats.enabled}")
+    private boolean enabled;
+
+    @Value("${payout-aggregate.stats.maxDays}")
+    private int maxDays;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!enabled) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String partyId;
+        LocalDate fromDay;
+        LocalDate toDay;
+        try {
+            partyId = getRequiredParameter(req, "partyId");
+            fromDay = LocalDate.parse(getRequiredParameter(req, "fromDay"));
+            toDay = LocalDate.parse(getRequiredParameter(req, "toDay"));
+            if (fromDay.isAfter(toDay) || ChronoUnit.DAYS.between(fromDay, toDay) >= maxDays) {
+                throw new IllegalArgumentException(
+                        String.format("Invalid day range, fromDay='%s', toDay='%s'", fromDay, toDay));
+            }
+        } catch (DateTimeParseException | IllegalArgumentException ex) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    String.format("Expected parameters: partyId, fromDay, toDay (ISO date, UTC, at most %d days) " +
+                            "and optional shopId", maxDays));
+            return;
+        }
+        List<PayoutAggregate> stats = payoutAggregateService.getStats(
+                partyId, req.getParameter("shopId"), fromDay, toDay);
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resp.setContentType("application/json");
+        objectMapper.writeValue(resp.getWriter(), stats.stream()
+                .map(this::toValues)
+                .collect(Collectors.toList()));
+    }
+
+    private Map<String, Object> toValues(PayoutAggregate payoutAggregate) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("shop_id", payoutAggregate.getShopId());
+        values.put("currency_code", payoutAggregate.getCurrencyCode());
+        values.put("status", payoutAggregate.getStatus().getLiteral());
+        values.put("day", payoutAggregate.getDay().toString());
+        values.put("payout_count", payoutAggregate.getPayoutCount());
+        values.put("amount", payoutAggregate.getAmount());
+        values.put("fee", payoutAggregate.getFee());
+        return values;
+    }
+}
@@ -0,0 +1,12 @@
+package com.rbkmoney.payout.manager.exception;
+
+public class LockAcquisitionException extends RuntimeException {
+
+    public LockAcquisitionException(String message) {
+        super(message);
+    }
+
+    public LockAcquisitionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
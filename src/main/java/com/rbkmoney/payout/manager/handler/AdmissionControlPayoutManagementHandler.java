@@ -0,0 +1,59 @@
+package com.rbkmoney.payout.manager.handler;
+
+import com.rbkmoney.damsel.base.InvalidRequest;
+import com.rbkmoney.payout.manager.*;
+import com.rbkmoney.payout.manager.service.AdmissionControlService;
+import com.rbkmoney.woody.api.flow.error.WErrorDefinition;
+import com.rbkmoney.woody.api.flow.error.WErrorSource;
+import com.rbkmoney.woody.api.flow.error.WErrorType;
+import com.rbkmoney.woody.api.flow.error.WUnavailableResultException;
+import lombok.RequiredArgsConstructor;
+import org.apache.thrift.TException;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+@Primary
+@Service
+@RequiredArgsConstructor
+public class AdmissionControlPayoutManagementHandler implements PayoutManagementSrv.Iface {
+
+    private final BulkheadPayoutManagementHandler payoutManagementHandler;
+    private final AdmissionControlService admissionControlService;
+
+    @Override
+    public Payout createPayout(PayoutParams payoutParams) throws
+            InsufficientFunds, InvalidRequest, PayoutAlreadyExists, NotFound, TException {
+        String partyId = payoutParams.isSetShopParams() ? payoutParams.getShopParams().getPartyId() : null;
+        checkAdmission("createPayout", partyId);
+        return payoutManagementHandler.createPayout(payoutParams);
+    }
+
+    @Override
+    public Payout getPayout(String payoutId) throws NotFound, TException {
+        checkAdmission("getPayout", null);
+        return payoutManagementHandler.getPayout(payoutId);
+    }
+
+    @Override
+    public void confirmPayout(String payoutId) throws NotFound, InvalidRequest, TException {
+        checkAdmission("confirmPayout", null);
+        payoutManagementHandler.confirmPayout(payoutId);
+    }
+
+    @Override
+    public void cancelPayout(String payoutId, String details) throws NotFound, InvalidRequest, TException {
+        checkAdmission("cancelPayout", null);
+        payoutManagementHandler.cancelPayout(payoutId, details);
+    }
+
+    private void checkAdmission(String method, String partyId) {
+        if (!admissionControlService.admit(method, partyId)) {
+            WErrorDefinition errorDefinition = new WErrorDefinition(WErrorSource.INTERNAL);
+            errorDefinition.setErrorType(WErrorType.UNAVAILABLE_RESULT);
+            errorDefinition.setErrorSource(WErrorSource.INTERNAL);
+            errorDefinition.setErrorReason(String.format("Too many requests, method='%s', partyId='%s'",
+                    method, partyId));
+            throw new WUnavailableResultException(errorDefinition);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.rbkmoney.payout.manager.handler;
+
+import com.rbkmoney.damsel.base.InvalidRequest;
+import com.rbkmoney.payout.manager.*;
+import com.rbkmoney.payout.manager.service.BulkheadService;
+import com.rbkmoney.payout.manager.service.BulkheadService.OperationClass;
+import lombok.RequiredArgsConstructor;
+import org.apache.thrift.TException;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class BulkheadPayoutManagementHandler implements PayoutManagementSrv.Iface {
+
+    private final PayoutManagementHandler payoutManagementHandler;
+    private final BulkheadService bulkheadService;
+
+    @Override
+    public Payout createPayout(PayoutParams payoutParams) throws
+            InsufficientFunds, InvalidRequest, PayoutAlreadyExists, NotFound, TException {
+        return bulkheadService.execute(
+                OperationClass.CREATES,
+                () -> payoutManagementHandler.createPayout(payoutParams));
+    }
+
+    @Override
+    public Payout getPayout(String payoutId) throws NotFound, TException {
+        return bulkheadService.execute(
+                OperationClass.READS,
+                () -> payoutManagementHandler.getPayout(payoutId));
+    }
+
+    @Override
+    public void confirmPayout(String payoutId) throws NotFound, InvalidRequest, TException {
+        bulkheadService.execute(OperationClass.TRANSITIONS, () -> {
+            payoutManagementHandler.confirmPayout(payoutId);
+            return null;
+        });
+    }
+
+    @Override
+    public void cancelPayout(String payoutId, String details) throws NotFound, InvalidRequest, TException {
+        bulkheadService.execute(OperationClass.TRANSITIONS, () -> {
+            payoutManagementHandler.cancelPayout(payoutId, details);
+            return null;
+        });
+    }
+}
@@ -2,12 +2,15 @@ package com.rbkmoney.payout.manager.handler;
 
 import com.rbkmoney.damsel.base.InvalidRequest;
 import com.rbkmoney.payout.manager.*;
-import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
 import com.rbkmoney.payout.manager.exception.*;
-import com.rbkmoney.payout.manager.service.CashFlowPostingService;
-import com.rbkmoney.payout.manager.service.PayoutKafkaProducerService;
+import com.rbkmoney.payout.manager.service.PayoutManagementService;
+import com.rbkmoney.payout.manager.service.PayoutReadService;
 import com.rbkmoney.payout.manager.service.PayoutService;
-import com.rbkmoney.payout.manager.util.ThriftUtil;
+import com.rbkmoney.payout.manager.tracing.Traced;
+import com.rbkmoney.woody.api.flow.error.WErrorDefinition;
+import com.rbkmoney.woody.api.flow.error.WErrorSource;
+import com.rbkmoney.woody.api.flow.error.WErrorType;
+import com.rbkmoney.woody.api.flow.error.WUnavailableResultException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.thrift.TException;
@@ -22,21 +25,20 @@ import java.util.Optional;
 public class PayoutManagementHandler implements com.rbkmoney.payout.manager.PayoutManagementSrv.Iface {
 
     private final PayoutService payoutService;
-    private final CashFlowPostingService cashFlowPostingService;
-    private final PayoutKafkaProducerService payoutKafkaProducerService;
+    private final PayoutReadService payoutReadService;
+    private final PayoutManagementService payoutManagementService;
 
     @Override
+    @Traced("handler.createPayout")
     public Payout createPayout(PayoutParams payoutParams) throws
             InsufficientFunds, InvalidRequest, PayoutAlreadyExists, NotFound, TException {
         try {
-            String payoutId = payoutService.create(
+            return payoutManagementService.create(
                     payoutParams.getShopParams().getPartyId(),
                     payoutParams.getShopParams().getShopId(),
                     payoutParams.getCash(),
                     payoutParams.getPayoutId(),
                     payoutParams.getPayoutToolId());
-            sendToKafka(payoutId);
-            return getPayout(payoutId);
         } catch (InsufficientFundsException ex) {
             throw new InsufficientFunds();
         } catch (InvalidRequestException ex) {
@@ -46,25 +48,31 @@ public class PayoutManagementHandler implements com.rbkmoney.payout.manager.Payo
             throw new PayoutAlreadyExists();
         } catch (NotFoundException ex) {
             throw new NotFound().setMessage(ex.getMessage());
+        } catch (LockAcquisitionException ex) {
+            WErrorDefinition errorDefinition = new WErrorDefinition(WErrorSource.INTERNAL);
+            errorDefinition.setErrorType(WErrorType.UNAVAILABLE_RESULT);
+            errorDefinition.setErrorSource(WErrorSource.INTERNAL);
+            errorDefinition.setErrorReason(ex.getMessage());
+            throw new WUnavailableResultException(errorDefinition);
         }
     }
 
     @Override
+    @Traced("handler.getPayout")
     public Payout getPayout(String payoutId) throws NotFound, TException {
         try {
-            var payout = payoutService.get(payoutId);
-            List<CashFlowPosting> cashFlowPostings = cashFlowPostingService.getCashFlowPostings(payout.getPayoutId());
-            return ThriftUtil.toThriftPayout(payout, cashFlowPostings);
+            return payoutReadService.get(payoutId);
         } catch (NotFoundException ex) {
             throw new NotFound().setMessage(ex.getMessage());
         }
     }
 
     @Override
+    @Traced("handler.confirmPayout")
     public void confirmPayout(String payoutId) throws NotFound, InvalidRequest, TException {
         try {
             payoutService.confirm(payoutId);
-            sendToKafka(payoutId);
+            payoutManagementService.publish(payoutId);
         } catch (InvalidStateException ex) {
             throw new InvalidRequest(
                     Optional.ofNullable(ex.getMessage()).map(List::of).orElse(List.of()));
@@ -74,10 +82,11 @@ public class PayoutManagementHandler implements com.rbkmoney.payout.manager.Payo
     }
 
     @Override
+    @Traced("handler.cancelPayout")
     public void cancelPayout(String payoutId, String details) throws NotFound, InvalidRequest, TException {
         try {
             payoutService.cancel(payoutId, details);
-            sendToKafka(payoutId);
+            payoutManagementService.publish(payoutId);
         } catch (InvalidStateException ex) {
             throw new InvalidRequest(
                     Optional.ofNullable(ex.getMessage()).map(List::of).orElse(List.of()));
@@ -85,11 +94,4 @@ public class PayoutManagementHandler implements com.rbkmoney.payout.manager.Payo
             throw new NotFound().setMessage(ex.getMessage());
         }
     }
-
-    private void sendToKafka(String payoutId) {
-        var payout = payoutService.get(payoutId);
-        List<CashFlowPosting> cashFlowPostings = cashFlowPostingService.getCashFlowPostings(payoutId);
-        Event event = ThriftUtil.createEvent(payout, cashFlowPostings);
-        payoutKafkaProducerService.send(event);
-    }
 }
@@ -0,0 +1,78 @@
+package com.rbkmoney.payout.manager.job;
+
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.service.PayoutAggregateService;
+import com.rbkmoney.payout.manager.service.WorkCoordinationService;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+@Slf4j
+@DisallowConcurrentExecution
+public class PayoutAggregateReconcileJob extends QuartzJobBean {
+
+    private static final String JOB = "payout-aggregate-reconcile";
+
+    @Autowired
+    private PayoutAggregateService payoutAggregateService;
+
+    @Autowired
+    private WorkCoordinationService workCoordinationService;
+
+    @Value("${payout-aggregate.reconcile.lookbackDays}")
+    private int lookbackDays;
+
+    @Value("${payout-aggregate.reconcile.shards}")
+    private int shards;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+        LocalDate fromDay = lookbackDays > 0 ? LocalDate.now(ZoneOffset.UTC).minusDays(lookbackDays) : null;
+        List<Payout> shops;
+        try {
+            shops = payoutAggregateService.getShops(fromDay);
+        } catch (RuntimeException ex) {
+            log.error("Failed to get shops for payout aggregate reconciliation", ex);
+            throw new JobExecutionException(ex);
+        }
+        log.info("Start payout aggregate reconciliation, fromDay='{}', shops='{}'", fromDay, shops.size());
+        Map<Integer, List<Payout>> shopsByShard = shops.stream()
+                .collect(Collectors.groupingBy(shop -> WorkCoordinationService.shardOf(shop.getPartyId(), shards)));
+        AtomicInteger reconciled = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        try {
+            workCoordinationService.runOwnedShards(JOB, shards, (shard, leaseLost) -> {
+                for (Payout shop : shopsByShard.getOrDefault(shard, List.of())) {
+                    if (leaseLost.getAsBoolean()) {
+                        log.warn("Lease of the shard was lost, stop reconciliation of the shard, shard='{}'", shard);
+                        return;
+                    }
+                    try {
+                        payoutAggregateService.reconcileShop(shop.getPartyId(), shop.getShopId(), fromDay);
+                        reconciled.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        failed.incrementAndGet();
+                        log.error("Failed to reconcile payout aggregates, partyId='{}', shopId='{}'",
+                                shop.getPartyId(), shop.getShopId(), ex);
+                    }
+                }
+            });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JobExecutionException("Payout aggregate reconciliation was interrupted", ex);
+        }
+        log.info("Payout aggregate reconciliation has been finished, reconciled='{}', failed='{}'",
+                reconciled.get(), failed.get());
+    }
+}
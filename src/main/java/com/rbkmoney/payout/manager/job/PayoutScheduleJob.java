@@ -0,0 +1,30 @@
+package com.rbkmoney.payout.manager.job;
+
+import com.rbkmoney.payout.manager.service.PayoutScheduleService;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+@Slf4j
+@DisallowConcurrentExecution
+public class PayoutScheduleJob extends QuartzJobBean {
+
+    @Autowired
+    private PayoutScheduleService payoutScheduleService;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+        try {
+            payoutScheduleService.processDueSchedules();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JobExecutionException(ex);
+        } catch (RuntimeException ex) {
+            log.error("Failed to process payout schedules", ex);
+            throw new JobExecutionException(ex);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.config.properties.AdmissionProperties;
+import com.rbkmoney.payout.manager.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+public class AdmissionControlService {
+
+    private static final String OTHER_PARTY = "other";
+    private static final String ANY_PARTY = "any";
+
+    private final AdmissionProperties admissionProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TokenBucket> methodBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> partyBuckets;
+    private final Counter evictedCounter;
+
+    public AdmissionControlService(AdmissionProperties admissionProperties, MeterRegistry meterRegistry) {
+        this.admissionProperties = admissionProperties;
+        this.meterRegistry = meterRegistry;
+        this.evictedCounter = meterRegistry.counter("pm.admission.party_buckets.evicted");
+        this.partyBuckets = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                boolean evict = size() > admissionProperties.getMaxPartyBuckets();
+                if (evict) {
+                    evictedCounter.increment();
+                }
+                return evict;
+            }
+        });
+        meterRegistry.gaugeMapSize("pm.admission.party_buckets", Tags.empty(), partyBuckets);
+    }
+
+    public boolean admit(String method, String partyId) {
+        if (!admissionProperties.isEnabled()) {
+            return true;
+        }
+        boolean admitted = admit(method, partyId == null ? null : getPartyBucket(method, partyId));
+        if (!admitted) {
+            log.warn("Request has been throttled, method='{}', partyId='{}'", method, partyId);
+        }
+        meterRegistry.counter("pm.admission.requests",
+                "method", method,
+                "party", toPartyTag(partyId),
+                "result", admitted ? "admitted" : "throttled")
+                .increment();
+        return admitted;
+    }
+
+    private boolean admit(String method, TokenBucket partyBucket) {
+        // the party is checked first so a throttled party never spends the shared method budget
+        if (partyBucket != null && !partyBucket.tryAcquire()) {
+            return false;
+        }
+        TokenBucket methodBucket = getMethodBucket(method);
+        if (methodBucket != null && !methodBucket.tryAcquire()) {
+            if (partyBucket != null) {
+                partyBucket.refund();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private TokenBucket getMethodBucket(String method) {
+        AdmissionProperties.Limit limit = admissionProperties.getMethodLimits().get(method);
+        if (limit == null) {
+            return null;
+        }
+        return methodBuckets.computeIfAbsent(method, key -> toTokenBucket(limit));
+    }
+
+    private TokenBucket getPartyBucket(String method, String partyId) {
+        return partyBuckets.computeIfAbsent(
+                method + "/" + partyId, key -> toTokenBucket(getPartyLimit(method, partyId)));
+    }
+
+    private AdmissionProperties.Limit getPartyLimit(String method, String partyId) {
+        Map<String, AdmissionProperties.Limit> limits = admissionProperties.getPartyLimits().get(partyId);
+        if (limits != null && limits.containsKey(method)) {
+            return limits.get(method);
+        }
+        return admissionProperties.getDefaultPartyLimit();
+    }
+
+    private String toPartyTag(String partyId) {
+        if (partyId == null) {
+            return ANY_PARTY;
+        }
+        return admissionProperties.getPartyLimits().containsKey(partyId) ? partyId : OTHER_PARTY;
+    }
+
+    private TokenBucket toTokenBucket(AdmissionProperties.Limit limit) {
+        return new TokenBucket(limit.getRatePerSecond(), limit.getBurst());
+    }
+}
@@ -0,0 +1,147 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.exception.InsufficientFundsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+public class BalanceLedgerService {
+
+    private final Map<String, AccountEntry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong evictedAt = new AtomicLong(System.nanoTime());
+
+    private final Counter passedCounter;
+    private final Counter rejectedCounter;
+
+    @Value("${balance-ledger.enabled}")
+    private boolean enabled;
+
+    @Value("${balance-ledger.ttlMs}")
+    private long ttlMs;
+
+    public BalanceLedgerService(MeterRegistry meterRegistry) {
+        this.passedCounter = meterRegistry.counter("pm.balance_ledger.reservations", "result", "passed");
+        this.rejectedCounter = meterRegistry.counter("pm.balance_ledger.reservations", "result", "rejected");
+        meterRegistry.gaugeMapSize("pm.balance_ledger.accounts", Tags.empty(), entries);
+    }
+
+    public Reservation reserve(String partyId, String shopId, long amount) {
+        Reservation reservation = new Reservation(toKey(partyId, shopId), sequence.incrementAndGet(), amount);
+        if (!enabled) {
+            return reservation;
+        }
+        evictExpired();
+        entries.compute(reservation.getKey(), (key, entry) -> {
+            AccountEntry accountEntry = entry == null ? new AccountEntry() : entry;
+            if (accountEntry.isFresh(ttlMs)) {
+                long estimatedAmount = accountEntry.estimateAvailableAmount();
+                if (estimatedAmount < amount) {
+                    rejectedCounter.increment();
+                    throw new InsufficientFundsException(String.format(
+                            "Estimated available amount in shop account is not enough, partyId='%s', " +
+                                    "shopId='%s', estimatedAmount='%d', amount='%d'",
+                            partyId, shopId, estimatedAmount, amount));
+                }
+            }
+            accountEntry.inFlight.put(reservation.getSequenceId(), amount);
+            return accountEntry;
+        });
+        passedCounter.increment();
+        return reservation;
+    }
+
+    public void observe(Reservation reservation, long availableAmount) {
+        if (!enabled) {
+            return;
+        }
+        entries.computeIfPresent(reservation.getKey(), (key, entry) -> {
+            entry.observedAmount = availableAmount;
+            entry.observedAt = System.nanoTime();
+            entry.observedSequenceId = sequence.get();
+            return entry;
+        });
+    }
+
+    public void complete(Reservation reservation) {
+        if (!enabled) {
+            return;
+        }
+        entries.computeIfPresent(reservation.getKey(), (key, entry) -> {
+            entry.inFlight.remove(reservation.getSequenceId());
+            return entry.inFlight.isEmpty() && !entry.isFresh(ttlMs) ? null : entry;
+        });
+    }
+
+    public void invalidate(String partyId, String shopId) {
+        if (!enabled) {
+            return;
+        }
+        entries.computeIfPresent(toKey(partyId, shopId), (key, entry) -> {
+            entry.observedAt = null;
+            return entry.inFlight.isEmpty() ? null : entry;
+        });
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        long lastEvictedAt = evictedAt.get();
+        if (now - lastEvictedAt < TimeUnit.MILLISECONDS.toNanos(ttlMs)
+                || !evictedAt.compareAndSet(lastEvictedAt, now)) {
+            return;
+        }
+        // an entry completed while its observation was fresh is dropped here once the observation expires
+        for (String key : entries.keySet()) {
+            entries.computeIfPresent(key, (k, entry) ->
+                    entry.inFlight.isEmpty() && !entry.isFresh(ttlMs) ? null : entry);
+        }
+    }
+
+    private String toKey(String partyId, String shopId) {
+        return partyId + "/" + shopId;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Reservation {
+
+        private final String key;
+        private final long sequenceId;
+        private final long amount;
+
+    }
+
+    private static class AccountEntry {
+
+        private final NavigableMap<Long, Long> inFlight = new TreeMap<>();
+        private long observedAmount;
+        private long observedSequenceId;
+        private Long observedAt;
+
+        private boolean isFresh(long ttlMs) {
+            return observedAt != null
+                    && System.nanoTime() - observedAt < TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        }
+
+        private long estimateAvailableAmount() {
+            long heldAfterObservation = inFlight.tailMap(observedSequenceId, false).values().stream()
+                    .mapToLong(Long::longValue)
+                    .sum();
+            return observedAmount - heldAfterObservation;
+        }
+    }
+}
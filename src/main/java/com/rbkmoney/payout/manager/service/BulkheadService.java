@@ -0,0 +1,215 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.config.properties.BulkheadProperties;
+import com.rbkmoney.woody.api.flow.error.WErrorDefinition;
+import com.rbkmoney.woody.api.flow.error.WErrorSource;
+import com.rbkmoney.woody.api.flow.error.WErrorType;
+import com.rbkmoney.woody.api.flow.error.WUnavailableResultException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.thrift.TException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class BulkheadService {
+
+    private final BulkheadProperties bulkheadProperties;
+    private final Map<OperationClass, Bulkhead> bulkheads = new EnumMap<>(OperationClass.class);
+    private final ThreadLocal<Context> currentContext = new ThreadLocal<>();
+
+    public BulkheadService(
+            BulkheadProperties bulkheadProperties,
+            MeterRegistry meterRegistry,
+            @Value("${spring.datasource.hikari.maximum-pool-size}") int poolSize) {
+        this.bulkheadProperties = bulkheadProperties;
+        bulkheads.put(OperationClass.READS,
+                new Bulkhead(OperationClass.READS, bulkheadProperties.getReads(), meterRegistry));
+        bulkheads.put(OperationClass.CREATES,
+                new Bulkhead(OperationClass.CREATES, bulkheadProperties.getCreates(), meterRegistry));
+        bulkheads.put(OperationClass.TRANSITIONS,
+                new Bulkhead(OperationClass.TRANSITIONS, bulkheadProperties.getTransitions(), meterRegistry));
+        bulkheads.put(OperationClass.SCHEDULES,
+                new Bulkhead(OperationClass.SCHEDULES, bulkheadProperties.getSchedules(), meterRegistry));
+        bulkheads.put(OperationClass.COMPENSATIONS,
+                new Bulkhead(OperationClass.COMPENSATIONS, bulkheadProperties.getCompensations(), meterRegistry));
+        bulkheads.put(OperationClass.BACKGROUND,
+                new Bulkhead(OperationClass.BACKGROUND, bulkheadProperties.getBackground(), meterRegistry));
+        int maxConnections = bulkheads.values().stream().mapToInt(bulkhead -> bulkhead.maxConnections).sum();
+        if (bulkheadProperties.isEnabled() && maxConnections > poolSize) {
+            throw new IllegalStateException(String.format(
+                    "Bulkhead connection quotas exceed the connection pool, maxConnections='%d', poolSize='%d'",
+                    maxConnections, poolSize));
+        }
+    }
+
+    public <T> T execute(OperationClass operationClass, BulkheadCall<T> call) throws TException {
+        if (!bulkheadProperties.isEnabled() || currentContext.get() != null) {
+            return call.call();
+        }
+        Bulkhead bulkhead = bulkheads.get(operationClass);
+        bulkhead.acquireCall();
+        currentContext.set(new Context(bulkhead, false));
+        try {
+            return call.call();
+        } finally {
+            currentContext.remove();
+            bulkhead.releaseCall();
+        }
+    }
+
+    public void acquireConnection() {
+        if (!bulkheadProperties.isEnabled()) {
+            return;
+        }
+        Context context = currentContext.get();
+        if (context == null) {
+            // jobs and Kafka callbacks run outside of a handler or worker call and share the background quota
+            context = new Context(bulkheads.get(OperationClass.BACKGROUND), true);
+            currentContext.set(context);
+        }
+        if (context.connectionDepth == 0) {
+            try {
+                context.bulkhead.acquireConnection();
+            } catch (RuntimeException ex) {
+                if (context.background) {
+                    currentContext.remove();
+                }
+                throw ex;
+            }
+        }
+        context.connectionDepth++;
+    }
+
+    public void releaseConnection() {
+        Context context = currentContext.get();
+        if (context == null || context.connectionDepth == 0) {
+            return;
+        }
+        context.connectionDepth--;
+        if (context.connectionDepth == 0) {
+            context.bulkhead.releaseConnection();
+            if (context.background) {
+                currentContext.remove();
+            }
+        }
+    }
+
+    public enum OperationClass {
+        READS, CREATES, TRANSITIONS, SCHEDULES, COMPENSATIONS, BACKGROUND
+    }
+
+    @FunctionalInterface
+    public interface BulkheadCall<T> {
+
+        T call() throws TException;
+
+    }
+
+    private static class Context {
+
+        private final Bulkhead bulkhead;
+        private final boolean background;
+        private int connectionDepth;
+
+        private Context(Bulkhead bulkhead, boolean background) {
+            this.bulkhead = bulkhead;
+            this.background = background;
+        }
+    }
+
+    private static class Bulkhead {
+
+        private final String name;
+        private final BulkheadProperties.Limit limit;
+        private final int maxConcurrent;
+        private final int maxConnections;
+        private final Semaphore calls;
+        private final Semaphore connections;
+        private final Counter admittedCounter;
+        private final Counter rejectedCounter;
+        private final Counter connectionRejectedCounter;
+        private final Timer waitTimer;
+        private final Timer connectionWaitTimer;
+
+        private Bulkhead(OperationClass operationClass, BulkheadProperties.Limit limit, MeterRegistry meterRegistry) {
+            this.name = operationClass.name().toLowerCase(Locale.ROOT);
+            this.limit = limit;
+            this.maxConcurrent = Math.max(limit.getMaxConcurrent(), 1);
+            this.maxConnections = Math.max(limit.getMaxConnections(), 1);
+            this.calls = new Semaphore(maxConcurrent);
+            this.connections = new Semaphore(maxConnections);
+            this.admittedCounter = meterRegistry.counter("pm.bulkhead.calls", "class", name, "result", "admitted");
+            this.rejectedCounter = meterRegistry.counter("pm.bulkhead.calls", "class", name, "result", "rejected");
+            this.connectionRejectedCounter = meterRegistry.counter(
+                    "pm.bulkhead.connections.rejected", "class", name);
+            this.waitTimer = meterRegistry.timer("pm.bulkhead.wait", "class", name);
+            this.connectionWaitTimer = meterRegistry.timer("pm.bulkhead.connections.wait", "class", name);
+            Tags tags = Tags.of("class", name);
+            meterRegistry.gauge("pm.bulkhead.active", tags, calls,
+                    semaphore -> maxConcurrent - semaphore.availablePermits());
+            meterRegistry.gauge("pm.bulkhead.saturation", tags, calls,
+                    semaphore -> (double) (maxConcurrent - semaphore.availablePermits()) / maxConcurrent);
+            meterRegistry.gauge("pm.bulkhead.connections.active", tags, connections,
+                    semaphore -> maxConnections - semaphore.availablePermits());
+            meterRegistry.gauge("pm.bulkhead.connections.saturation", tags, connections,
+                    semaphore -> (double) (maxConnections - semaphore.availablePermits()) / maxConnections);
+        }
+
+        private void acquireCall() {
+            if (!tryAcquire(calls, waitTimer)) {
+                rejectedCounter.increment();
+                log.warn("Bulkhead is full, class='{}', maxConcurrent='{}'", name, maxConcurrent);
+                throw unavailable(String.format("Bulkhead is full, class='%s'", name));
+            }
+            admittedCounter.increment();
+        }
+
+        private void releaseCall() {
+            calls.release();
+        }
+
+        private void acquireConnection() {
+            if (!tryAcquire(connections, connectionWaitTimer)) {
+                connectionRejectedCounter.increment();
+                log.warn("Bulkhead connection quota is exhausted, class='{}', maxConnections='{}'",
+                        name, maxConnections);
+                throw unavailable(String.format("Bulkhead connection quota is exhausted, class='%s'", name));
+            }
+        }
+
+        private void releaseConnection() {
+            connections.release();
+        }
+
+        private boolean tryAcquire(Semaphore semaphore, Timer timer) {
+            long startedAt = System.nanoTime();
+            try {
+                return semaphore.tryAcquire(limit.getMaxWaitMs(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private WUnavailableResultException unavailable(String reason) {
+            WErrorDefinition errorDefinition = new WErrorDefinition(WErrorSource.INTERNAL);
+            errorDefinition.setErrorType(WErrorType.UNAVAILABLE_RESULT);
+            errorDefinition.setErrorSource(WErrorSource.INTERNAL);
+            errorDefinition.setErrorReason(reason);
+            return new WUnavailableResultException(errorDefinition);
+        }
+    }
+}
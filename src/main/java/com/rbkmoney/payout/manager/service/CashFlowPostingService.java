@@ -5,6 +5,7 @@ import com.rbkmoney.payout.manager.dao.CashFlowPostingDao;
 import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
 import com.rbkmoney.payout.manager.exception.NotFoundException;
 import com.rbkmoney.payout.manager.exception.StorageException;
+import com.rbkmoney.payout.manager.tracing.Traced;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -20,6 +21,7 @@ public class CashFlowPostingService {
 
     private final CashFlowPostingDao cashFlowPostingDao;
 
+    @Traced("cashFlowPosting.save")
     @Transactional(propagation = Propagation.REQUIRED)
     public void save(List<CashFlowPosting> cashFlowPostings) {
         log.info("Trying to save a CashFlowPosting, cashFlowPostings='{}'", cashFlowPostings.size());
@@ -32,6 +34,7 @@ public class CashFlowPostingService {
         }
     }
 
+    @Traced("cashFlowPosting.get")
     public List<CashFlowPosting> getCashFlowPostings(String payoutId) {
         log.info("Trying to get a CashFlowPosting, payoutId='{}'", payoutId);
         List<CashFlowPosting> cashFlowPostings;
@@ -0,0 +1,262 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.config.properties.HedgingProperties;
+import com.rbkmoney.payout.manager.tracing.Tracer;
+import com.rbkmoney.woody.api.trace.TraceData;
+import com.rbkmoney.woody.api.trace.context.TraceContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.thrift.TException;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Service
+public class HedgedRequestService implements DisposableBean {
+
+    private final HedgingProperties hedgingProperties;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, LatencyWindow> latencyWindows = new ConcurrentHashMap<>();
+    private final HedgeBudget hedgeBudget;
+
+    public HedgedRequestService(HedgingProperties hedgingProperties, MeterRegistry meterRegistry) {
+        this.hedgingProperties = hedgingProperties;
+        this.meterRegistry = meterRegistry;
+        this.executor = new ThreadPoolExecutor(
+                0,
+                Math.max(hedgingProperties.getMaxThreads(), 1),
+                60L,
+                TimeUnit.SECONDS,
+                new SynchronousQueue<>());
+        this.hedgeBudget = new HedgeBudget(hedgingProperties.getBudgetRatio(), hedgingProperties.getMaxBudget());
+        meterRegistry.gauge("pm.hedging.threads", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    public <T> T execute(String operation, HedgedCall<T> call) throws TException {
+        if (!hedgingProperties.isEnabled()) {
+            return call.call();
+        }
+        LatencyWindow latencyWindow = latencyWindows.computeIfAbsent(
+                operation,
+                key -> new LatencyWindow(hedgingProperties.getWindowSize()));
+        long hedgeDelayMs = latencyWindow.getHedgeDelayMs();
+        hedgeBudget.onRequest();
+        if (hedgeDelayMs < 0) {
+            return timed(call, latencyWindow);
+        }
+        CompletableFuture<T> primary;
+        try {
+            primary = submit(operation, call, latencyWindow);
+        } catch (RejectedExecutionException ex) {
+            count(operation, "rejected");
+            return timed(call, latencyWindow);
+        }
+        try {
+            try {
+                return primary.get(hedgeDelayMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                return hedge(operation, call, latencyWindow, primary);
+            }
+        } catch (ExecutionException ex) {
+            throw rethrow(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format("Interrupted while waiting for '%s'", operation), ex);
+        }
+    }
+
+    private <T> T hedge(
+            String operation,
+            HedgedCall<T> call,
+            LatencyWindow latencyWindow,
+            CompletableFuture<T> primary) throws ExecutionException, InterruptedException {
+        if (!hedgeBudget.tryAcquire()) {
+            count(operation, "budget_exhausted");
+            return primary.get();
+        }
+        CompletableFuture<T> secondary;
+        try {
+            secondary = submit(operation, call, latencyWindow);
+        } catch (RejectedExecutionException ex) {
+            count(operation, "rejected");
+            return primary.get();
+        }
+        count(operation, "fired");
+        CompletableFuture<T> winner = awaitFirstSuccess(operation, primary, secondary);
+        if (winner == secondary) {
+            count(operation, "won");
+            primary.cancel(true);
+        } else {
+            secondary.cancel(true);
+        }
+        return winner.get();
+    }
+
+    private <T> CompletableFuture<T> awaitFirstSuccess(
+            String operation,
+            CompletableFuture<T> primary,
+            CompletableFuture<T> secondary) {
+        await(operation, CompletableFuture.anyOf(primary, secondary));
+        CompletableFuture<T> first = primary.isDone() ? primary : secondary;
+        if (!first.isCompletedExceptionally()) {
+            return first;
+        }
+        CompletableFuture<T> other = first == primary ? secondary : primary;
+        await(operation, other);
+        return other.isCompletedExceptionally() ? primary : other;
+    }
+
+    private void await(String operation, CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (CompletionException | CancellationException ex) {
+            log.debug("Attempt has failed, operation='{}'", operation, ex);
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(String operation, HedgedCall<T> call, LatencyWindow latencyWindow) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(withCallerContext(() -> {
+            try {
+                future.complete(timed(call, latencyWindow));
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        }));
+        return future;
+    }
+
+    private Runnable withCallerContext(Runnable task) {
+        // each attempt gets its own copy of the woody trace data, so concurrent attempts do not share client spans
+        TraceData traceData = TraceContext.getCurrentTraceData();
+        TraceData attemptTraceData = traceData == null ? null : traceData.cloneObject();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        Runnable spanTask = Tracer.withCurrentSpan(task);
+        return () -> {
+            if (attemptTraceData != null) {
+                TraceContext.setCurrentTraceData(attemptTraceData);
+            }
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            try {
+                spanTask.run();
+            } finally {
+                TraceContext.reset();
+                MDC.clear();
+            }
+        };
+    }
+
+    private <T> T timed(HedgedCall<T> call, LatencyWindow latencyWindow) throws TException {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            latencyWindow.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private TException rethrow(Throwable cause) {
+        if (cause instanceof TException) {
+            return (TException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    private void count(String operation, String result) {
+        meterRegistry.counter("pm.hedging.hedges", "operation", operation, "result", result).increment();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface HedgedCall<T> {
+
+        T call() throws TException;
+
+    }
+
+    private class LatencyWindow {
+
+        private final long[] samples;
+        private final int refreshEvery;
+        private int next;
+        private int size;
+        private int sinceRefresh;
+        private volatile long hedgeDelayMs = -1L;
+
+        private LatencyWindow(int windowSize) {
+            this.samples = new long[Math.max(windowSize, 1)];
+            this.refreshEvery = Math.max(samples.length / 10, 1);
+        }
+
+        private long getHedgeDelayMs() {
+            return hedgeDelayMs;
+        }
+
+        private synchronized void record(long latencyMs) {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+            if (++sinceRefresh >= refreshEvery && size >= hedgingProperties.getMinSamples()) {
+                sinceRefresh = 0;
+                long[] sorted = Arrays.copyOf(samples, size);
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(hedgingProperties.getPercentile() * sorted.length) - 1;
+                long percentileMs = sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+                hedgeDelayMs = Math.max(
+                        hedgingProperties.getMinDelayMs(),
+                        Math.min(hedgingProperties.getMaxDelayMs(), percentileMs));
+            }
+        }
+    }
+
+    private static class HedgeBudget {
+
+        private final double ratio;
+        private final double capacity;
+        private double tokens;
+
+        private HedgeBudget(double ratio, int capacity) {
+            this.ratio = ratio;
+            this.capacity = Math.max(capacity, 1);
+        }
+
+        private synchronized void onRequest() {
+            tokens = Math.min(capacity, tokens + ratio);
+        }
+
+        private synchronized boolean tryAcquire() {
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.rbkmoney.damsel.domain.FinalCashFlowPosting;
 import com.rbkmoney.damsel.domain.Party;
 import com.rbkmoney.damsel.payment_processing.*;
 import com.rbkmoney.payout.manager.exception.NotFoundException;
+import com.rbkmoney.payout.manager.tracing.Traced;
 import lombok.RequiredArgsConstructor;
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
@@ -22,11 +23,15 @@ public class PartyManagementService {
     private final UserInfo userInfo = new UserInfo("admin", UserType.internal_user(new InternalUser()));
 
     private final PartyManagementSrv.Iface partyManagementClient;
+    private final HedgedRequestService hedgedRequestService;
 
+    @Traced("hellgate.getParty")
     public Party getParty(String partyId) throws NotFoundException {
         log.info("Trying to get party, partyId='{}'", partyId);
         try {
-            Party party = partyManagementClient.get(userInfo, partyId);
+            Party party = hedgedRequestService.execute(
+                    "getParty",
+                    () -> partyManagementClient.get(userInfo, partyId));
             log.info("Party has been found, partyId='{}'", partyId);
             return party;
         } catch (PartyNotFound ex) {
@@ -41,6 +46,7 @@ public class PartyManagementService {
         }
     }
 
+    @Traced("hellgate.computePayoutCashFlow")
     public List<FinalCashFlowPosting> computePayoutCashFlow(
             String partyId,
             String shopId,
@@ -51,10 +57,9 @@ public class PartyManagementService {
         PayoutParams payoutParams = new PayoutParams(shopId, amount, timestamp)
                 .setPayoutToolId(payoutToolId);
         try {
-            var finalCashFlowPostings = partyManagementClient.computePayoutCashFlow(
-                    userInfo,
-                    partyId,
-                    payoutParams);
+            var finalCashFlowPostings = hedgedRequestService.execute(
+                    "computePayoutCashFlow",
+                    () -> partyManagementClient.computePayoutCashFlow(userInfo, partyId, payoutParams));
             log.info("Payout cash flow has been computed, partyId='{}', payoutParams='{}', postings='{}'",
                     partyId, payoutParams, finalCashFlowPostings);
             return finalCashFlowPostings;
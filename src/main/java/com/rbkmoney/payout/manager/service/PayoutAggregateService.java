@@ -0,0 +1,98 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.dao.PayoutAggregateDao;
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutAggregate;
+import com.rbkmoney.payout.manager.exception.StorageException;
+import com.rbkmoney.payout.manager.tracing.Traced;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PayoutAggregateService {
+
+    private final PayoutAggregateDao payoutAggregateDao;
+
+    @Traced("payoutAggregate.onCreated")
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onCreated(Payout payout) {
+        add(payout, List.of(toDelta(payout, payout.getStatus(), 1)));
+    }
+
+    @Traced("payoutAggregate.onStatusChanged")
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onStatusChanged(Payout payout, PayoutStatus payoutStatus) {
+        if (payout.getStatus() == payoutStatus) {
+            return;
+        }
+        add(payout, List.of(toDelta(payout, payout.getStatus(), -1), toDelta(payout, payoutStatus, 1)));
+    }
+
+    @Traced("payoutAggregate.getStats")
+    public List<PayoutAggregate> getStats(String partyId, String shopId, LocalDate fromDay, LocalDate toDay) {
+        log.info("Trying to get payout stats, partyId='{}', shopId='{}', fromDay='{}', toDay='{}'",
+                partyId, shopId, fromDay, toDay);
+        try {
+            return payoutAggregateDao.getStats(partyId, shopId, fromDay, toDay);
+        } catch (DaoException ex) {
+            throw new StorageException(
+                    String.format("Failed to get payout stats, partyId='%s', shopId='%s'", partyId, shopId), ex);
+        }
+    }
+
+    public List<Payout> getShops(LocalDate fromDay) {
+        try {
+            return payoutAggregateDao.getShops(fromDay);
+        } catch (DaoException ex) {
+            throw new StorageException(String.format("Failed to get shops with payouts, fromDay='%s'", fromDay), ex);
+        }
+    }
+
+    @Traced("payoutAggregate.reconcileShop")
+    @Transactional(propagation = Propagation.REQUIRED)
+    public int reconcileShop(String partyId, String shopId, LocalDate fromDay) {
+        try {
+            // the exclusive lock waits for in-flight increments of this shop and holds new ones until commit
+            payoutAggregateDao.lockShop(partyId, shopId, true);
+            return payoutAggregateDao.rebuild(partyId, shopId, fromDay);
+        } catch (DaoException ex) {
+            throw new StorageException(
+                    String.format("Failed to reconcile payout aggregates, partyId='%s', shopId='%s'",
+                            partyId, shopId),
+                    ex);
+        }
+    }
+
+    private void add(Payout payout, List<PayoutAggregate> deltas) {
+        try {
+            payoutAggregateDao.lockShop(payout.getPartyId(), payout.getShopId(), false);
+            payoutAggregateDao.add(deltas);
+        } catch (DaoException ex) {
+            throw new StorageException(
+                    String.format("Failed to update payout aggregates, payoutId='%s'", payout.getPayoutId()), ex);
+        }
+    }
+
+    private PayoutAggregate toDelta(Payout payout, PayoutStatus payoutStatus, int sign) {
+        var delta = new PayoutAggregate();
+        delta.setPartyId(payout.getPartyId());
+        delta.setShopId(payout.getShopId());
+        delta.setCurrencyCode(payout.getCurrencyCode());
+        delta.setStatus(payoutStatus);
+        delta.setDay(payout.getCreatedAt().toLocalDate());
+        delta.setPayoutCount((long) sign);
+        delta.setAmount(sign * payout.getAmount());
+        delta.setFee(sign * payout.getFee());
+        return delta;
+    }
+}
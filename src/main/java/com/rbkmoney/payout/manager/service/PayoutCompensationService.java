@@ -0,0 +1,219 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.damsel.shumpune.PostingPlan;
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.dao.PayoutCompensationDao;
+import com.rbkmoney.payout.manager.dao.PayoutDao;
+import com.rbkmoney.payout.manager.domain.enums.CompensationType;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutCompensation;
+import com.rbkmoney.payout.manager.exception.StorageException;
+import com.rbkmoney.payout.manager.service.BulkheadService.OperationClass;
+import com.rbkmoney.payout.manager.util.PostingPlanUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+public class PayoutCompensationService implements DisposableBean {
+
+    private final PayoutCompensationDao payoutCompensationDao;
+    private final PayoutDao payoutDao;
+    private final ShumwayService shumwayService;
+    private final BulkheadService bulkheadService;
+    private final ExecutorService executorService;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+    private final long maxRunMs;
+
+    private final Counter enqueuedCounter;
+    private final Counter succeededCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Timer latencyTimer;
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong oldestAgeMs = new AtomicLong();
+
+    public PayoutCompensationService(
+            PayoutCompensationDao payoutCompensationDao,
+            PayoutDao payoutDao,
+            ShumwayService shumwayService,
+            BulkheadService bulkheadService,
+            MeterRegistry meterRegistry,
+            @Value("${compensation.enabled}") boolean enabled,
+            @Value("${compensation.parallelism}") int parallelism,
+            @Value("${compensation.batchSize}") int batchSize,
+            @Value("${compensation.maxAttempts}") int maxAttempts,
+            @Value("${compensation.leaseMs}") long leaseMs,
+            @Value("${compensation.retryBackoffMs}") long retryBackoffMs,
+            @Value("${compensation.maxRetryBackoffMs}") long maxRetryBackoffMs,
+            @Value("${compensation.maxRunMs}") long maxRunMs) {
+        this.payoutCompensationDao = payoutCompensationDao;
+        this.payoutDao = payoutDao;
+        this.shumwayService = shumwayService;
+        this.bulkheadService = bulkheadService;
+        this.executorService = Executors.newFixedThreadPool(parallelism);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+        this.maxRunMs = maxRunMs;
+        this.enqueuedCounter = meterRegistry.counter("pm.compensation.enqueued");
+        this.succeededCounter = meterRegistry.counter("pm.compensation.processed", "result", "succeeded");
+        this.retriedCounter = meterRegistry.counter("pm.compensation.processed", "result", "retried");
+        this.failedCounter = meterRegistry.counter("pm.compensation.processed", "result", "failed");
+        this.latencyTimer = meterRegistry.timer("pm.compensation.latency");
+        meterRegistry.gauge("pm.compensation.depth", depth);
+        meterRegistry.gauge("pm.compensation.oldest_age_ms", oldestAgeMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String payoutId, CompensationType type) {
+        log.info("Trying to enqueue payout compensation, payoutId='{}', type='{}'", payoutId, type);
+        try {
+            if (payoutCompensationDao.save(payoutId, type, LocalDateTime.now(ZoneOffset.UTC))) {
+                enqueuedCounter.increment();
+            } else {
+                log.info("Payout compensation already enqueued, payoutId='{}'", payoutId);
+            }
+        } catch (DaoException ex) {
+            throw new StorageException(
+                    String.format("Failed to enqueue payout compensation, payoutId='%s'", payoutId), ex);
+        }
+    }
+
+    public void processDue() throws InterruptedException {
+        LocalDateTime startedAt = LocalDateTime.now(ZoneOffset.UTC);
+        long deadline = System.currentTimeMillis() + maxRunMs;
+        refreshQueueStats();
+        log.info("Start processing payout compensations, depth='{}'", depth.get());
+        int processed = 0;
+        while (System.currentTimeMillis() < deadline) {
+            LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+            List<PayoutCompensation> batch = payoutCompensationDao.claimDue(now, now.plus(lease), batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Future<?>> futures = new ArrayList<>(batch.size());
+            for (PayoutCompensation payoutCompensation : batch) {
+                futures.add(executorService.submit(() -> bulkheadService.execute(OperationClass.COMPENSATIONS, () -> {
+                    process(payoutCompensation);
+                    return null;
+                })));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    log.error("Unexpected error while processing payout compensation", ex.getCause());
+                }
+            }
+            processed += batch.size();
+        }
+        refreshQueueStats();
+        log.info("Payout compensations have been processed, processed='{}', depth='{}', duration='{}'",
+                processed, depth.get(), Duration.between(startedAt, LocalDateTime.now(ZoneOffset.UTC)));
+    }
+
+    private void process(PayoutCompensation payoutCompensation) {
+        String payoutId = payoutCompensation.getPayoutId();
+        try {
+            PostingPlan postingPlan = getStoredPostingPlan(payoutId);
+            switch (payoutCompensation.getType()) {
+                case ROLLBACK:
+                    shumwayService.rollback(payoutId, postingPlan);
+                    break;
+                case REVERT:
+                    shumwayService.revert(payoutId, postingPlan);
+                    break;
+                default:
+                    throw new IllegalStateException(String.format("Unknown compensation type, type='%s'",
+                            payoutCompensation.getType()));
+            }
+        } catch (Exception ex) {
+            onFailure(payoutCompensation, ex);
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        payoutCompensationDao.succeed(payoutCompensation.getId(), now);
+        succeededCounter.increment();
+        latencyTimer.record(Duration.between(payoutCompensation.getCreatedAt(), now));
+        log.info("Payout compensation has been processed, payoutId='{}', type='{}', attempts='{}'",
+                payoutId, payoutCompensation.getType(), payoutCompensation.getAttempts());
+    }
+
+    private PostingPlan getStoredPostingPlan(String payoutId) {
+        Payout payout = payoutDao.get(payoutId);
+        if (payout == null) {
+            return null;
+        }
+        try {
+            return PostingPlanUtil.getPostingPlan(payout);
+        } catch (IllegalStateException ex) {
+            log.warn("Failed to read stored posting plan, it will be rebuilt, payoutId='{}'", payoutId, ex);
+            return null;
+        }
+    }
+
+    private void onFailure(PayoutCompensation payoutCompensation, Exception ex) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        String lastError = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+        int attempts = payoutCompensation.getAttempts();
+        if (attempts >= maxAttempts) {
+            log.error("Payout compensation failed, attempts are exhausted, manual intervention is required, " +
+                            "payoutId='{}', type='{}', attempts='{}'",
+                    payoutCompensation.getPayoutId(), payoutCompensation.getType(), attempts, ex);
+            payoutCompensationDao.fail(payoutCompensation.getId(), now, lastError);
+            failedCounter.increment();
+            return;
+        }
+        long backoffMs = Math.min(maxRetryBackoffMs, retryBackoffMs << Math.min(attempts - 1, 20));
+        log.warn("Payout compensation failed, it will be retried, payoutId='{}', type='{}', attempts='{}', " +
+                        "backoffMs='{}'",
+                payoutCompensation.getPayoutId(), payoutCompensation.getType(), attempts, backoffMs, ex);
+        payoutCompensationDao.retry(payoutCompensation.getId(), now.plus(Duration.ofMillis(backoffMs)), lastError);
+        retriedCounter.increment();
+    }
+
+    private void refreshQueueStats() {
+        depth.set(payoutCompensationDao.countPending());
+        LocalDateTime oldestCreatedAt = payoutCompensationDao.getOldestPendingCreatedAt();
+        oldestAgeMs.set(oldestCreatedAt == null
+                ? 0L
+                : Duration.between(oldestCreatedAt, LocalDateTime.now(ZoneOffset.UTC)).toMillis());
+    }
+
+    @Override
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,214 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.dao.PayoutExportDao;
+import com.rbkmoney.payout.manager.dao.PayoutExportFilter;
+import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.exception.StorageException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.rbkmoney.payout.manager.util.PayoutValuesUtil.payoutValues;
+import static com.rbkmoney.payout.manager.util.PayoutValuesUtil.postingValues;
+
+@Slf4j
+@Service
+public class PayoutExportService {
+
+    private static final List<String> PAYOUT_COLUMNS = List.of(
+            "payout_id", "created_at", "party_id", "shop_id", "status", "payout_tool_id",
+            "amount", "fee", "currency_code", "cancel_details");
+    private static final List<String> POSTING_COLUMNS = List.of(
+            "from_account_id", "from_account_type", "to_account_id", "to_account_type",
+            "posting_amount", "posting_currency_code", "description");
+
+    private final PayoutExportDao payoutExportDao;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Counter rowsCounter;
+    private final Timer exportTimer;
+
+    @Value("${export.enabled}")
+    private boolean enabled;
+
+    public PayoutExportService(PayoutExportDao payoutExportDao, MeterRegistry meterRegistry) {
+        this.payoutExportDao = payoutExportDao;
+        this.rowsCounter = meterRegistry.counter("pm.export.rows");
+        this.exportTimer = meterRegistry.timer("pm.export.duration");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void export(PayoutExportFilter filter, Format format, Writer writer) throws IOException {
+        log.info("Trying to export payouts, filter='{}', format='{}'", filter, format);
+        RowWriter rowWriter = format == Format.CSV
+                ? new CsvRowWriter(writer, filter.isWithPostings())
+                : new JsonLinesRowWriter(writer);
+        try {
+            exportTimer.record(() -> {
+                payoutExportDao.export(filter, (payout, cashFlowPosting) -> {
+                    rowWriter.write(payout, cashFlowPosting);
+                    rowsCounter.increment();
+                });
+                rowWriter.finish();
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } catch (DaoException ex) {
+            // rows already streamed cannot be taken back, so the reader is told the export is incomplete
+            rowWriter.writeTrailer(false);
+            writer.flush();
+            throw new StorageException(String.format("Failed to export payouts, filter='%s'", filter), ex);
+        }
+        rowWriter.writeTrailer(true);
+        writer.flush();
+        log.info("Payouts have been exported, filter='{}'", filter);
+    }
+
+    public enum Format {
+        CSV, JSONL
+    }
+
+    private interface RowWriter {
+
+        void write(Payout payout, CashFlowPosting cashFlowPosting);
+
+        void finish();
+
+        void writeTrailer(boolean complete) throws IOException;
+
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private final boolean withPostings;
+        private long rows;
+
+        private CsvRowWriter(Writer writer, boolean withPostings) {
+            this.writer = writer;
+            this.withPostings = withPostings;
+            List<String> header = withPostings
+                    ? Stream.concat(PAYOUT_COLUMNS.stream(), POSTING_COLUMNS.stream()).collect(Collectors.toList())
+                    : PAYOUT_COLUMNS;
+            writeLine(header);
+        }
+
+        @Override
+        public void write(Payout payout, CashFlowPosting cashFlowPosting) {
+            List<Object> values = new ArrayList<>(payoutValues(payout).values());
+            if (withPostings) {
+                values.addAll(cashFlowPosting == null
+                        ? Collections.nCopies(POSTING_COLUMNS.size(), null)
+                        : postingValues(cashFlowPosting).values());
+            }
+            writeLine(values);
+            rows++;
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        @Override
+        public void writeTrailer(boolean complete) throws IOException {
+            writer.write(complete
+                    ? String.format("#export_status=complete,rows=%d\n", rows)
+                    : String.format("#export_status=failed,rows=%d\n", rows));
+        }
+
+        private void writeLine(List<?> values) {
+            try {
+                writer.write(values.stream()
+                        .map(CsvRowWriter::escape)
+                        .collect(Collectors.joining(",")));
+                writer.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private static String escape(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String string = value.toString();
+            if (string.contains(",") || string.contains("\"") || string.contains("\n") || string.contains("\r")
+                    || string.startsWith("#")) {
+                return "\"" + string.replace("\"", "\"\"") + "\"";
+            }
+            return string;
+        }
+    }
+
+    private class JsonLinesRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private Map<String, Object> current;
+        private List<Map<String, Object>> postings;
+        private long rows;
+
+        private JsonLinesRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(Payout payout, CashFlowPosting cashFlowPosting) {
+            if (current == null || !current.get("payout_id").equals(payout.getPayoutId())) {
+                finish();
+                current = payoutValues(payout);
+                postings = new ArrayList<>();
+            }
+            if (cashFlowPosting != null) {
+                postings.add(postingValues(cashFlowPosting));
+            }
+        }
+
+        @Override
+        public void finish() {
+            if (current == null) {
+                return;
+            }
+            if (!postings.isEmpty()) {
+                current.put("postings", postings);
+            }
+            try {
+                writer.write(objectMapper.writeValueAsString(current));
+                writer.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            current = null;
+            postings = null;
+            rows++;
+        }
+
+        @Override
+        public void writeTrailer(boolean complete) throws IOException {
+            Map<String, Object> trailer = new LinkedHashMap<>();
+            trailer.put("export_status", complete ? "complete" : "failed");
+            trailer.put("rows", rows);
+            writer.write(objectMapper.writeValueAsString(trailer));
+            writer.write('\n');
+        }
+    }
+}
@@ -2,19 +2,58 @@ package com.rbkmoney.payout.manager.service;
 
 import com.rbkmoney.kafka.common.exception.KafkaProduceException;
 import com.rbkmoney.payout.manager.Event;
-import com.rbkmoney.payout.manager.Payout;
-import lombok.RequiredArgsConstructor;
+import com.rbkmoney.payout.manager.PayoutStatus;
+import com.rbkmoney.payout.manager.config.properties.KafkaProducerProperties;
+import com.rbkmoney.payout.manager.tracing.Traced;
+import com.rbkmoney.payout.manager.util.ThriftUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Slf4j
 @Service
-@RequiredArgsConstructor
-public class PayoutKafkaProducerService {
+public class PayoutKafkaProducerService implements DisposableBean {
+
+    public static final String EVENT_MODE_HEADER = "pm-event-mode";
+    public static final String SLIM_EVENT_MODE = "slim";
+
+    private static final int LOCK_STRIPES = 64;
 
     private final KafkaTemplate<String, Event> kafkaTemplate;
+    private final PayoutSnapshotKafkaProducerService payoutSnapshotKafkaProducerService;
+    private final KafkaProducerProperties.Async asyncProperties;
+    private final Semaphore inFlightEvents;
+    private final Map<String, CompletableFuture<Void>> inFlightByPayout = new ConcurrentHashMap<>();
+    private final Map<String, List<Event>> undeliveredEvents = new ConcurrentHashMap<>();
+    private final Object[] payoutLocks = new Object[LOCK_STRIPES];
+    private final ScheduledExecutorService redeliveryExecutor;
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter redeliveredCounter;
+    private final Counter trimmedPostingsCounter;
+    private final Timer ackTimer;
 
     @Value("${kafka.topic.pm-events-payout.name}")
     private String topicName;
@@ -22,26 +61,244 @@ public class PayoutKafkaProducerService {
     @Value("${kafka.topic.pm-events-payout.produce.enabled}")
     private boolean producerEnabled;
 
+    @Value("${kafka.topic.pm-events-payout.produce.slim-status-changes}")
+    private boolean slimStatusChanges;
+
+    public PayoutKafkaProducerService(
+            KafkaTemplate<String, Event> kafkaTemplate,
+            PayoutSnapshotKafkaProducerService payoutSnapshotKafkaProducerService,
+            KafkaProducerProperties kafkaProducerProperties,
+            MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.payoutSnapshotKafkaProducerService = payoutSnapshotKafkaProducerService;
+        this.asyncProperties = kafkaProducerProperties.getAsync();
+        this.inFlightEvents = new Semaphore(asyncProperties.getMaxInFlightEvents());
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            payoutLocks[i] = new Object();
+        }
+        this.sentCounter = meterRegistry.counter("pm.kafka.producer.events", "result", "sent");
+        this.failedCounter = meterRegistry.counter("pm.kafka.producer.events", "result", "failed");
+        this.redeliveredCounter = meterRegistry.counter("pm.kafka.producer.events", "result", "redelivered");
+        this.trimmedPostingsCounter = meterRegistry.counter("pm.kafka.producer.trimmed_postings");
+        this.ackTimer = meterRegistry.timer("pm.kafka.producer.ack");
+        meterRegistry.gauge("pm.kafka.producer.in_flight", inFlightEvents,
+                semaphore -> asyncProperties.getMaxInFlightEvents() - semaphore.availablePermits());
+        meterRegistry.gaugeMapSize("pm.kafka.producer.undelivered_payouts", Tags.empty(), undeliveredEvents);
+        meterRegistry.gauge("pm.kafka.producer.undelivered_events", undeliveredEvents,
+                events -> events.values().stream().mapToInt(List::size).sum());
+        if (asyncProperties.isEnabled()) {
+            this.redeliveryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "kafka-event-redelivery");
+                thread.setDaemon(true);
+                return thread;
+            });
+            redeliveryExecutor.scheduleWithFixedDelay(
+                    this::redeliverAll,
+                    asyncProperties.getRetryIntervalMs(),
+                    asyncProperties.getRetryIntervalMs(),
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.redeliveryExecutor = null;
+        }
+    }
+
+    @Traced("kafka.sendPayoutEvent")
     public void send(Event event) {
         if (producerEnabled) {
-            sendPayout(event);
+            sendPayout(slimStatusChanges ? toSlimEvent(event) : event);
         }
+        payoutSnapshotKafkaProducerService.send(event.getPayout());
+    }
+
+    @Override
+    public void destroy() {
+        if (redeliveryExecutor != null) {
+            redeliveryExecutor.shutdownNow();
+        }
+        for (String payoutId : List.copyOf(inFlightByPayout.keySet())) {
+            try {
+                awaitInFlight(payoutId);
+            } catch (KafkaProduceException e) {
+                log.error("Payout event is still in flight on shutdown: payoutId={}", payoutId, e);
+            }
+        }
+        redeliverAll();
+        undeliveredEvents.forEach((payoutId, events) -> log.error(
+                "Payout events were not delivered before shutdown and must be republished: " +
+                        "topicName={}, payoutId={}, events={}", topicName, payoutId, events));
     }
 
     private void sendPayout(Event event) {
+        if (!asyncProperties.isEnabled()) {
+            sendPayoutSync(event);
+            return;
+        }
+        String payoutId = event.getPayoutId();
+        // the previous event of the payout must be settled first, otherwise a failed event
+        // would be redelivered behind a later one
+        awaitInFlight(payoutId);
+        synchronized (lockFor(payoutId)) {
+            List<Event> undelivered = undeliveredEvents.remove(payoutId);
+            if (undelivered != null) {
+                redeliverSync(payoutId, undelivered);
+            }
+            // a terminal event has no follow-up that would trigger a redelivery, so it is acked before returning
+            if (undelivered != null || isTerminal(event)) {
+                sendPayoutSync(event);
+                return;
+            }
+            sendPayoutAsync(event);
+        }
+    }
+
+    private void sendPayoutSync(Event event) {
         try {
             log.info("Try to send payout data to kafka: topicName={}, payoutId={}",
                     topicName, event.getPayoutId());
-            kafkaTemplate.send(topicName, event.getPayoutId(), event).get();
+            long start = System.nanoTime();
+            kafkaTemplate.send(toRecord(event)).get();
+            ackTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            sentCounter.increment();
             log.info("Payout data to kafka was sent: topicName={}, payoutId={}",
                     topicName, event.getPayoutId());
         } catch (InterruptedException e) {
             log.error("InterruptedException command: {}", event, e);
+            failedCounter.increment();
             Thread.currentThread().interrupt();
             throw new KafkaProduceException(e);
         } catch (Exception e) {
             log.error("Error while sending command: {}", event, e);
+            failedCounter.increment();
             throw new KafkaProduceException(e);
         }
     }
+
+    private void sendPayoutAsync(Event event) {
+        acquireInFlightPermit(event);
+        log.info("Try to send payout data to kafka asynchronously: topicName={}, payoutId={}",
+                topicName, event.getPayoutId());
+        long start = System.nanoTime();
+        try {
+            CompletableFuture<Void> settled = kafkaTemplate.send(toRecord(event)).completable().handle(
+                    (result, ex) -> {
+                        inFlightEvents.release();
+                        if (ex == null) {
+                            ackTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            sentCounter.increment();
+                            log.info("Payout data to kafka was sent: topicName={}, payoutId={}",
+                                    topicName, event.getPayoutId());
+                        } else {
+                            failedCounter.increment();
+                            log.error("Error while sending command asynchronously, " +
+                                    "event will be redelivered in background: {}", event, ex);
+                            addUndelivered(event.getPayoutId(), List.of(event));
+                        }
+                        return null;
+                    });
+            inFlightByPayout.put(event.getPayoutId(), settled);
+            settled.thenRun(() -> inFlightByPayout.remove(event.getPayoutId(), settled));
+        } catch (Exception e) {
+            inFlightEvents.release();
+            failedCounter.increment();
+            log.error("Error while sending command: {}", event, e);
+            throw new KafkaProduceException(e);
+        }
+    }
+
+    private void awaitInFlight(String payoutId) {
+        CompletableFuture<Void> inFlight = inFlightByPayout.get(payoutId);
+        if (inFlight == null) {
+            return;
+        }
+        try {
+            inFlight.get(asyncProperties.getMaxBlockMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaProduceException(e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new KafkaProduceException(String.format(
+                    "Previous event of the payout is not settled, payoutId=%s", payoutId));
+        }
+    }
+
+    private void acquireInFlightPermit(Event event) {
+        try {
+            if (!inFlightEvents.tryAcquire(asyncProperties.getMaxBlockMs(), TimeUnit.MILLISECONDS)) {
+                failedCounter.increment();
+                throw new KafkaProduceException(String.format(
+                        "Too many in-flight events, payoutId=%s, maxInFlightEvents=%d",
+                        event.getPayoutId(), asyncProperties.getMaxInFlightEvents()));
+            }
+        } catch (InterruptedException e) {
+            log.error("InterruptedException command: {}", event, e);
+            Thread.currentThread().interrupt();
+            throw new KafkaProduceException(e);
+        }
+    }
+
+    private void redeliverAll() {
+        for (String payoutId : List.copyOf(undeliveredEvents.keySet())) {
+            synchronized (lockFor(payoutId)) {
+                List<Event> undelivered = undeliveredEvents.remove(payoutId);
+                if (undelivered == null) {
+                    continue;
+                }
+                try {
+                    redeliverSync(payoutId, undelivered);
+                } catch (KafkaProduceException e) {
+                    log.warn("Failed to redeliver payout events, will retry: payoutId={}", payoutId);
+                }
+            }
+        }
+    }
+
+    private void redeliverSync(String payoutId, List<Event> undelivered) {
+        undelivered.sort(Comparator.comparingInt(Event::getSequenceId));
+        log.warn("Redeliver undelivered payout events: topicName={}, payoutId={}, events={}",
+                topicName, payoutId, undelivered.size());
+        for (int i = 0; i < undelivered.size(); i++) {
+            try {
+                sendPayoutSync(undelivered.get(i));
+                redeliveredCounter.increment();
+            } catch (KafkaProduceException e) {
+                addUndelivered(payoutId, new ArrayList<>(undelivered.subList(i, undelivered.size())));
+                throw e;
+            }
+        }
+    }
+
+    private void addUndelivered(String payoutId, List<Event> events) {
+        undeliveredEvents.merge(payoutId, new ArrayList<>(events), (previous, current) -> {
+            current.addAll(previous);
+            return current;
+        });
+    }
+
+    private boolean isTerminal(Event event) {
+        if (!event.getPayoutChange().isSetStatusChanged()) {
+            return false;
+        }
+        PayoutStatus status = event.getPayoutChange().getStatusChanged().getStatus();
+        return status.isSetConfirmed() || status.isSetCancelled();
+    }
+
+    private Object lockFor(String payoutId) {
+        return payoutLocks[Math.floorMod(payoutId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private Event toSlimEvent(Event event) {
+        Event slimEvent = ThriftUtil.toSlimEvent(event);
+        if (slimEvent != event) {
+            trimmedPostingsCounter.increment(event.getPayout().getCashFlowSize());
+        }
+        return slimEvent;
+    }
+
+    private ProducerRecord<String, Event> toRecord(Event event) {
+        ProducerRecord<String, Event> record = new ProducerRecord<>(topicName, event.getPayoutId(), event);
+        if (slimStatusChanges && event.getPayoutChange().isSetStatusChanged()) {
+            record.headers().add(EVENT_MODE_HEADER, SLIM_EVENT_MODE.getBytes(StandardCharsets.UTF_8));
+        }
+        return record;
+    }
 }
@@ -0,0 +1,35 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.damsel.domain.Cash;
+import com.rbkmoney.payout.manager.Event;
+import com.rbkmoney.payout.manager.Payout;
+import com.rbkmoney.payout.manager.util.ThriftUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PayoutManagementService {
+
+    private final PayoutService payoutService;
+    private final PayoutReadService payoutReadService;
+    private final PayoutKafkaProducerService payoutKafkaProducerService;
+    private final ShopLockService shopLockService;
+
+    public Payout create(String partyId, String shopId, Cash cash, String payoutId, String payoutToolId) {
+        String createdPayoutId = shopLockService.executeInLock(
+                partyId,
+                shopId,
+                () -> payoutService.create(partyId, shopId, cash, payoutId, payoutToolId));
+        return publish(createdPayoutId);
+    }
+
+    public Payout publish(String payoutId) {
+        var payout = payoutService.get(payoutId);
+        Event event = ThriftUtil.createEvent(payout, payoutReadService.toThriftPayout(payout));
+        payoutKafkaProducerService.send(event);
+        return event.getPayout();
+    }
+}
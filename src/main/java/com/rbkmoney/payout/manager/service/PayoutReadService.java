@@ -0,0 +1,272 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.Payout;
+import com.rbkmoney.payout.manager.dao.CashFlowPostingDao;
+import com.rbkmoney.payout.manager.dao.PayoutDao;
+import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
+import com.rbkmoney.payout.manager.exception.StorageException;
+import com.rbkmoney.payout.manager.util.PayoutSnapshotUtil;
+import com.rbkmoney.payout.manager.util.PayoutValuesUtil;
+import com.rbkmoney.payout.manager.util.ThriftUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class PayoutReadService {
+
+    private final PayoutService payoutService;
+    private final CashFlowPostingService cashFlowPostingService;
+    private final PayoutDao payoutDao;
+    private final CashFlowPostingDao cashFlowPostingDao;
+    private final Map<String, ReadSlot> inFlightReads = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Counter loadedCounter;
+    private final Counter coalescedCounter;
+    private final Counter snapshotHitCounter;
+    private final Counter snapshotMissCounter;
+    private final Counter bulkCounter;
+
+    @Value("${payout-read.coalescing.enabled}")
+    private boolean coalescingEnabled;
+
+    public PayoutReadService(
+            PayoutService payoutService,
+            CashFlowPostingService cashFlowPostingService,
+            PayoutDao payoutDao,
+            CashFlowPostingDao cashFlowPostingDao,
+            MeterRegistry meterRegistry) {
+        this.payoutService = payoutService;
+        this.cashFlowPostingService = cashFlowPostingService;
+        this.payoutDao = payoutDao;
+        this.cashFlowPostingDao = cashFlowPostingDao;
+        this.bulkCounter = meterRegistry.counter("pm.payout_reads.bulk.payouts");
+        this.loadedCounter = meterRegistry.counter("pm.payout_reads", "result", "loaded");
+        this.coalescedCounter = meterRegistry.counter("pm.payout_reads", "result", "coalesced");
+        this.snapshotHitCounter = meterRegistry.counter("pm.payout_snapshots", "result", "hit");
+        this.snapshotMissCounter = meterRegistry.counter("pm.payout_snapshots", "result", "miss");
+        meterRegistry.gaugeMapSize("pm.payout_reads.in_flight", Tags.empty(), inFlightReads);
+    }
+
+    public Payout get(String payoutId) {
+        if (!coalescingEnabled) {
+            return load(payoutId);
+        }
+        ReadTicket ticket = enqueue(payoutId);
+        if (!ticket.isOwner()) {
+            log.debug("Join pending payout read, payoutId='{}'", payoutId);
+            coalescedCounter.increment();
+            return join(ticket.getFuture());
+        }
+        try {
+            if (ticket.getPrevious() != null) {
+                // a load that started before this caller arrived may miss a committed status change,
+                // so the pending load starts only after it completes
+                ticket.getPrevious().handle((result, error) -> null).join();
+                promote(payoutId, ticket.getFuture());
+            }
+            Payout payout = load(payoutId);
+            ticket.getFuture().complete(payout);
+            return payout;
+        } catch (RuntimeException | Error ex) {
+            ticket.getFuture().completeExceptionally(ex);
+            throw ex;
+        } finally {
+            release(payoutId, ticket.getFuture());
+        }
+    }
+
+    public Payout load(String payoutId) {
+        loadedCounter.increment();
+        return toThriftPayout(payoutService.get(payoutId));
+    }
+
+    public Payout toThriftPayout(com.rbkmoney.payout.manager.domain.tables.pojos.Payout payout) {
+        if (payout.getSnapshot() != null) {
+            try {
+                Payout snapshot = PayoutSnapshotUtil.deserialize(payout.getSnapshot());
+                snapshotHitCounter.increment();
+                return snapshot;
+            } catch (IllegalStateException ex) {
+                log.warn("Failed to read payout snapshot, fall back to cash flow postings, payoutId='{}'",
+                        payout.getPayoutId(), ex);
+            }
+        }
+        snapshotMissCounter.increment();
+        List<CashFlowPosting> cashFlowPostings = cashFlowPostingService.getCashFlowPostings(payout.getPayoutId());
+        return ThriftUtil.toThriftPayout(payout, cashFlowPostings);
+    }
+
+    public List<BulkPayout> getPayouts(Collection<String> payoutIds, Projection projection) {
+        log.info("Trying to get payouts in bulk, count='{}', projection='{}'", payoutIds.size(), projection);
+        if (payoutIds.isEmpty()) {
+            return List.of();
+        }
+        Set<String> uniquePayoutIds = new LinkedHashSet<>(payoutIds);
+        try {
+            if (projection == Projection.STATUS) {
+                return toBulkPayouts(uniquePayoutIds, payoutDao.getStatuses(uniquePayoutIds), Map.of());
+            }
+            List<com.rbkmoney.payout.manager.domain.tables.pojos.Payout> payouts =
+                    payoutDao.getSummaries(uniquePayoutIds);
+            if (projection == Projection.WITHOUT_CASH_FLOW || payouts.isEmpty()) {
+                return toBulkPayouts(uniquePayoutIds, payouts, Map.of());
+            }
+            Map<String, List<CashFlowPosting>> cashFlowPostings = cashFlowPostingDao.getByPayoutIds(
+                    payouts.stream()
+                            .map(com.rbkmoney.payout.manager.domain.tables.pojos.Payout::getPayoutId)
+                            .collect(Collectors.toList()))
+                    .stream()
+                    .collect(Collectors.groupingBy(CashFlowPosting::getPayoutId));
+            return toBulkPayouts(uniquePayoutIds, payouts, cashFlowPostings);
+        } catch (DaoException ex) {
+            throw new StorageException(
+                    String.format("Failed to get payouts in bulk, count='%d'", uniquePayoutIds.size()), ex);
+        }
+    }
+
+    public void writeBulk(List<BulkPayout> bulkPayouts, Projection projection, Writer writer) throws IOException {
+        for (BulkPayout bulkPayout : bulkPayouts) {
+            writer.write(objectMapper.writeValueAsString(bulkValues(bulkPayout, projection)));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static Map<String, Object> bulkValues(BulkPayout bulkPayout, Projection projection) {
+        if (!bulkPayout.isFound()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("payout_id", bulkPayout.getPayoutId());
+            values.put("found", false);
+            return values;
+        }
+        Map<String, Object> values = projection == Projection.STATUS
+                ? PayoutValuesUtil.statusValues(bulkPayout.getPayout())
+                : PayoutValuesUtil.payoutValues(bulkPayout.getPayout());
+        values.put("found", true);
+        if (projection == Projection.FULL) {
+            values.put("postings", bulkPayout.getCashFlowPostings() == null
+                    ? List.of()
+                    : bulkPayout.getCashFlowPostings().stream()
+                    .map(PayoutValuesUtil::postingValues)
+                    .collect(Collectors.toList()));
+        }
+        return values;
+    }
+
+    private List<BulkPayout> toBulkPayouts(
+            Set<String> payoutIds,
+            List<com.rbkmoney.payout.manager.domain.tables.pojos.Payout> payouts,
+            Map<String, List<CashFlowPosting>> cashFlowPostings) {
+        bulkCounter.increment(payouts.size());
+        Map<String, com.rbkmoney.payout.manager.domain.tables.pojos.Payout> payoutsById = payouts.stream()
+                .collect(Collectors.toMap(
+                        com.rbkmoney.payout.manager.domain.tables.pojos.Payout::getPayoutId,
+                        Function.identity()));
+        return payoutIds.stream()
+                .map(payoutId -> new BulkPayout(payoutId, payoutsById.get(payoutId), cashFlowPostings.get(payoutId)))
+                .collect(Collectors.toList());
+    }
+
+    private ReadTicket enqueue(String payoutId) {
+        ReadTicket[] ticket = new ReadTicket[1];
+        inFlightReads.compute(payoutId, (key, slot) -> {
+            if (slot == null) {
+                CompletableFuture<Payout> future = new CompletableFuture<>();
+                ticket[0] = new ReadTicket(future, null, true);
+                return new ReadSlot(future);
+            }
+            if (slot.pending == null) {
+                slot.pending = new CompletableFuture<>();
+                ticket[0] = new ReadTicket(slot.pending, slot.running, true);
+            } else {
+                ticket[0] = new ReadTicket(slot.pending, null, false);
+            }
+            return slot;
+        });
+        return ticket[0];
+    }
+
+    private void promote(String payoutId, CompletableFuture<Payout> future) {
+        inFlightReads.computeIfPresent(payoutId, (key, slot) -> {
+            slot.running = future;
+            slot.pending = null;
+            return slot;
+        });
+    }
+
+    private void release(String payoutId, CompletableFuture<Payout> future) {
+        inFlightReads.computeIfPresent(payoutId, (key, slot) ->
+                slot.running == future && slot.pending == null ? null : slot);
+    }
+
+    private Payout join(CompletableFuture<Payout> inFlightRead) {
+        try {
+            return inFlightRead.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static class ReadSlot {
+
+        private CompletableFuture<Payout> running;
+        private CompletableFuture<Payout> pending;
+
+        ReadSlot(CompletableFuture<Payout> running) {
+            this.running = running;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class ReadTicket {
+
+        private final CompletableFuture<Payout> future;
+        private final CompletableFuture<Payout> previous;
+        private final boolean owner;
+    }
+
+    public enum Projection {
+        STATUS, WITHOUT_CASH_FLOW, FULL
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class BulkPayout {
+
+        private final String payoutId;
+        private final com.rbkmoney.payout.manager.domain.tables.pojos.Payout payout;
+        private final List<CashFlowPosting> cashFlowPostings;
+
+        public boolean isFound() {
+            return payout != null;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.damsel.domain.Cash;
+import com.rbkmoney.damsel.domain.CurrencyRef;
+import com.rbkmoney.damsel.domain.Shop;
+import com.rbkmoney.damsel.shumpune.Clock;
+import com.rbkmoney.damsel.shumpune.LatestClock;
+import com.rbkmoney.payout.manager.dao.PayoutScheduleDao;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutSchedule;
+import com.rbkmoney.payout.manager.exception.InsufficientFundsException;
+import com.rbkmoney.payout.manager.exception.InvalidRequestException;
+import com.rbkmoney.payout.manager.exception.NotFoundException;
+import com.rbkmoney.payout.manager.exception.PayoutAlreadyExistsException;
+import com.rbkmoney.payout.manager.service.BulkheadService.OperationClass;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.CronExpression;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+public class PayoutScheduleService implements DisposableBean {
+
+    private final PayoutScheduleDao payoutScheduleDao;
+    private final PayoutManagementService payoutManagementService;
+    private final AdmissionControlService admissionControlService;
+    private final BulkheadService bulkheadService;
+    private final PartyManagementService partyManagementService;
+    private final ShumwayService shumwayService;
+    private final ExecutorService executorService;
+
+    private final int batchSize;
+    private final Duration lease;
+    private final long maxRunMs;
+    private final long retryInitialDelayMs;
+    private final long retryMaxDelayMs;
+    private final int retryMaxAttempts;
+
+    private final Counter createdCounter;
+    private final Counter skippedCounter;
+    private final Counter failedCounter;
+    private final Counter abandonedCounter;
+    private final Timer lagTimer;
+    private final AtomicLong dueSchedules = new AtomicLong();
+    private final AtomicInteger inProgress = new AtomicInteger();
+
+    public PayoutScheduleService(
+            PayoutScheduleDao payoutScheduleDao,
+            PayoutManagementService payoutManagementService,
+            AdmissionControlService admissionControlService,
+            BulkheadService bulkheadService,
+            PartyManagementService partyManagementService,
+            ShumwayService shumwayService,
+            MeterRegistry meterRegistry,
+            @Value("${payout-schedule.parallelism}") int parallelism,
+            @Value("${payout-schedule.batchSize}") int batchSize,
+            @Value("${payout-schedule.leaseMs}") long leaseMs,
+            @Value("${payout-schedule.maxRunMs}") long maxRunMs,
+            @Value("${payout-schedule.retry.initialDelayMs}") long retryInitialDelayMs,
+            @Value("${payout-schedule.retry.maxDelayMs}") long retryMaxDelayMs,
+            @Value("${payout-schedule.retry.maxAttempts}") int retryMaxAttempts) {
+        this.payoutScheduleDao = payoutScheduleDao;
+        this.payoutManagementService = payoutManagementService;
+        this.admissionControlService = admissionControlService;
+        this.bulkheadService = bulkheadService;
+        this.partyManagementService = partyManagementService;
+        this.shumwayService = shumwayService;
+        this.executorService = Executors.newFixedThreadPool(parallelism);
+        this.batchSize = batchSize;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.maxRunMs = maxRunMs;
+        this.retryInitialDelayMs = retryInitialDelayMs;
+        this.retryMaxDelayMs = retryMaxDelayMs;
+        this.retryMaxAttempts = retryMaxAttempts;
+        this.createdCounter = meterRegistry.counter("pm.payout_schedule.processed", "result", "created");
+        this.skippedCounter = meterRegistry.counter("pm.payout_schedule.processed", "result", "skipped");
+        this.failedCounter = meterRegistry.counter("pm.payout_schedule.processed", "result", "failed");
+        this.abandonedCounter = meterRegistry.counter("pm.payout_schedule.processed", "result", "abandoned");
+        this.lagTimer = meterRegistry.timer("pm.payout_schedule.lag");
+        meterRegistry.gauge("pm.payout_schedule.due", dueSchedules);
+        meterRegistry.gauge("pm.payout_schedule.in_progress", inProgress);
+    }
+
+    public void processDueSchedules() throws InterruptedException {
+        LocalDateTime startedAt = LocalDateTime.now(ZoneOffset.UTC);
+        long deadline = System.currentTimeMillis() + maxRunMs;
+        dueSchedules.set(payoutScheduleDao.countDue(startedAt));
+        log.info("Start processing payout schedules, due='{}'", dueSchedules.get());
+        int processed = 0;
+        while (System.currentTimeMillis() < deadline) {
+            LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+            List<PayoutSchedule> batch = payoutScheduleDao.claimDue(now, now.plus(lease), batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Future<?>> futures = new ArrayList<>(batch.size());
+            for (PayoutSchedule payoutSchedule : batch) {
+                futures.add(executorService.submit(() -> bulkheadService.execute(OperationClass.SCHEDULES, () -> {
+                    process(payoutSchedule);
+                    return null;
+                })));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    log.error("Unexpected error while processing payout schedule", ex.getCause());
+                }
+            }
+            processed += batch.size();
+            dueSchedules.set(Math.max(0, dueSchedules.get() - batch.size()));
+        }
+        log.info("Payout schedules have been processed, processed='{}', duration='{}'",
+                processed, Duration.between(startedAt, LocalDateTime.now(ZoneOffset.UTC)));
+    }
+
+    private void process(PayoutSchedule payoutSchedule) {
+        inProgress.incrementAndGet();
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        lagTimer.record(Duration.between(payoutSchedule.getNextRunAt(), now));
+        String payoutId = toPayoutId(payoutSchedule);
+        String lastPayoutId = null;
+        try {
+            Long amount = payoutSchedule.getAmount() != null
+                    ? payoutSchedule.getAmount()
+                    : getAvailableAmount(payoutSchedule, payoutId);
+            if (amount <= 0) {
+                log.info("Nothing to pay out by schedule, partyId='{}', shopId='{}'",
+                        payoutSchedule.getPartyId(), payoutSchedule.getShopId());
+                skippedCounter.increment();
+            } else {
+                lastPayoutId = createPayout(payoutSchedule, payoutId, amount);
+                createdCounter.increment();
+            }
+        } catch (InsufficientFundsException | NotFoundException | InvalidRequestException ex) {
+            // a retry with the same request fails the same way, so the slot is given up
+            abandon(payoutSchedule, now, payoutId, ex);
+            return;
+        } catch (Exception ex) {
+            if (payoutSchedule.getFailedAttempts() + 1 >= retryMaxAttempts) {
+                abandon(payoutSchedule, now, payoutId, ex);
+            } else {
+                retry(payoutSchedule, now, payoutId, ex);
+            }
+            return;
+        } finally {
+            inProgress.decrementAndGet();
+        }
+        payoutScheduleDao.complete(
+                payoutSchedule.getId(),
+                now,
+                nextRunAt(payoutSchedule.getCron(), now),
+                lastPayoutId);
+    }
+
+    private void retry(PayoutSchedule payoutSchedule, LocalDateTime now, String payoutId, Exception ex) {
+        LocalDateTime retryAt = now.plus(retryDelay(payoutSchedule.getFailedAttempts()));
+        log.warn("Failed to create payout by schedule, partyId='{}', shopId='{}', payoutId='{}', retryAt='{}'",
+                payoutSchedule.getPartyId(), payoutSchedule.getShopId(), payoutId, retryAt, ex);
+        failedCounter.increment();
+        payoutScheduleDao.fail(payoutSchedule.getId(), now, retryAt, toLastError(ex));
+    }
+
+    private void abandon(PayoutSchedule payoutSchedule, LocalDateTime now, String payoutId, Exception ex) {
+        LocalDateTime nextRunAt = nextRunAt(payoutSchedule.getCron(), now);
+        log.warn("Payout by schedule is given up for the slot, partyId='{}', shopId='{}', payoutId='{}', " +
+                        "failedAttempts='{}', nextRunAt='{}'",
+                payoutSchedule.getPartyId(), payoutSchedule.getShopId(), payoutId,
+                payoutSchedule.getFailedAttempts(), nextRunAt, ex);
+        abandonedCounter.increment();
+        payoutScheduleDao.skip(payoutSchedule.getId(), now, nextRunAt, toLastError(ex));
+    }
+
+    private String toLastError(Exception ex) {
+        return ex.getClass().getSimpleName() + ": " + ex.getMessage();
+    }
+
+    private Duration retryDelay(int failedAttempts) {
+        long delayMs = retryInitialDelayMs << Math.min(failedAttempts, 20);
+        return Duration.ofMillis(Math.min(delayMs, retryMaxDelayMs));
+    }
+
+    private String createPayout(PayoutSchedule payoutSchedule, String payoutId, long amount) {
+        String partyId = payoutSchedule.getPartyId();
+        String shopId = payoutSchedule.getShopId();
+        // scheduled creates share the admission budget of the party with createPayout calls
+        if (!admissionControlService.admit("createPayout", partyId)) {
+            throw new IllegalStateException(String.format(
+                    "Too many requests, method='createPayout', partyId='%s'", partyId));
+        }
+        try {
+            return payoutManagementService.create(
+                    partyId,
+                    shopId,
+                    new Cash(amount, new CurrencyRef(payoutSchedule.getCurrencyCode())),
+                    payoutId,
+                    null)
+                    .getPayoutId();
+        } catch (PayoutAlreadyExistsException ex) {
+            log.info("Payout by schedule already exists, payoutId='{}'", payoutId);
+            return payoutId;
+        }
+    }
+
+    private long getAvailableAmount(PayoutSchedule payoutSchedule, String payoutId) {
+        Shop shop = partyManagementService.getParty(payoutSchedule.getPartyId())
+                .getShops()
+                .get(payoutSchedule.getShopId());
+        if (shop == null) {
+            throw new NotFoundException(String.format("Shop not found, shopId='%s'", payoutSchedule.getShopId()));
+        }
+        return shumwayService.getBalance(
+                shop.getAccount().getSettlement(),
+                Clock.latest(new LatestClock()),
+                payoutId)
+                .getMinAvailableAmount();
+    }
+
+    private String toPayoutId(PayoutSchedule payoutSchedule) {
+        return String.format("schedule-%d-%d",
+                payoutSchedule.getId(), payoutSchedule.getNextRunAt().toEpochSecond(ZoneOffset.UTC));
+    }
+
+    private LocalDateTime nextRunAt(String cron, LocalDateTime after) {
+        try {
+            CronExpression cronExpression = new CronExpression(cron);
+            cronExpression.setTimeZone(TimeZone.getTimeZone(ZoneOffset.UTC));
+            Date next = cronExpression.getNextValidTimeAfter(Date.from(after.toInstant(ZoneOffset.UTC)));
+            if (next == null) {
+                throw new InvalidRequestException(String.format("Cron has no future runs, cron='%s'", cron));
+            }
+            return LocalDateTime.ofInstant(next.toInstant(), ZoneOffset.UTC);
+        } catch (ParseException ex) {
+            throw new InvalidRequestException(String.format("Invalid cron, cron='%s'", cron), ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+}
@@ -3,14 +3,21 @@ package com.rbkmoney.payout.manager.service;
 import com.rbkmoney.damsel.domain.*;
 import com.rbkmoney.damsel.shumpune.Balance;
 import com.rbkmoney.damsel.shumpune.Clock;
+import com.rbkmoney.damsel.shumpune.PostingPlan;
 import com.rbkmoney.dao.DaoException;
 import com.rbkmoney.geck.common.util.TypeUtil;
 import com.rbkmoney.payout.manager.dao.PayoutDao;
+import com.rbkmoney.payout.manager.domain.enums.CompensationType;
 import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
 import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
 import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
 import com.rbkmoney.payout.manager.exception.*;
+import com.rbkmoney.payout.manager.tracing.Traced;
+import com.rbkmoney.payout.manager.tracing.Tracer;
 import com.rbkmoney.payout.manager.util.CashFlowType;
+import com.rbkmoney.payout.manager.util.PayoutSnapshotUtil;
+import com.rbkmoney.payout.manager.util.PostingPlanUtil;
+import com.rbkmoney.payout.manager.util.ThriftUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -34,9 +41,15 @@ public class PayoutService {
     private final ShumwayService shumwayService;
     private final PartyManagementService partyManagementService;
     private final CashFlowPostingService cashFlowPostingService;
+    private final BalanceLedgerService balanceLedgerService;
+    private final ShopLockService shopLockService;
+    private final PayoutAggregateService payoutAggregateService;
+    private final PayoutCompensationService payoutCompensationService;
 
     private final PayoutDao payoutDao;
+    private final Tracer tracer;
 
+    @Traced("payout.create")
     @Transactional(propagation = Propagation.REQUIRED)
     public String create(String partyId, String shopId, Cash cash, String payoutId, String payoutToolId) {
         log.info("Trying to create a payout, partyId='{}', shopId='{}', payoutId='{}', payoutToolId='{}'",
@@ -44,6 +57,7 @@ public class PayoutService {
         if (cash.getAmount() <= 0) {
             throw new InsufficientFundsException("Available amount must be greater than 0");
         }
+        shopLockService.lockAcrossNodes(partyId, shopId);
         if (payoutId == null) {
             payoutId = UUID.randomUUID().toString();
         } else {
@@ -82,23 +96,55 @@ public class PayoutService {
             throw new InsufficientFundsException(
                     String.format("Negative amount in payout cash flow, amount='%d', fee='%d'", amount, fee));
         }
-        save(
-                payoutId,
-                localDateTime,
+        List<CashFlowPosting> cashFlowPostings = toDomainCashFlows(payoutId, localDateTime, finalCashFlowPostings);
+        PostingPlan postingPlan = PostingPlanUtil.toPostingPlan(payoutId, cashFlowPostings);
+        long accountId = shop.getAccount().getSettlement();
+        BalanceLedgerService.Reservation reservation = balanceLedgerService.reserve(
                 partyId,
                 shopId,
-                payoutToolId,
-                amount,
-                fee,
-                cash.getCurrency().getSymbolicCode());
-        List<CashFlowPosting> cashFlowPostings = toDomainCashFlows(payoutId, localDateTime, finalCashFlowPostings);
-        cashFlowPostingService.save(cashFlowPostings);
-        Clock clock = shumwayService.hold(payoutId, cashFlowPostings);
-        validateBalance(payoutId, clock, party, shopId);
+                toSettlementDebit(accountId, cashFlowPostings));
+        try {
+            String savedPayoutId = payoutId;
+            String savedPayoutToolId = payoutToolId;
+            // a self-invocation bypasses the tracing proxy, so the span is opened explicitly
+            tracer.inSpan("payout.save", () -> {
+                save(
+                        savedPayoutId,
+                        localDateTime,
+                        partyId,
+                        shopId,
+                        savedPayoutToolId,
+                        amount,
+                        fee,
+                        cash.getCurrency().getSymbolicCode(),
+                        cashFlowPostings,
+                        postingPlan);
+                return null;
+            });
+            cashFlowPostingService.save(cashFlowPostings);
+            Clock clock = shumwayService.hold(payoutId, postingPlan);
+            saveHoldClock(payoutId, clock);
+            validateBalance(payoutId, clock, accountId, reservation, postingPlan);
+        } finally {
+            balanceLedgerService.complete(reservation);
+        }
         log.info("Payout has been created, payoutId='{}'", payoutId);
         return payoutId;
     }
 
+    private long toSettlementDebit(long accountId, List<CashFlowPosting> cashFlowPostings) {
+        long debit = 0L;
+        for (CashFlowPosting cashFlowPosting : cashFlowPostings) {
+            if (cashFlowPosting.getFromAccountId() == accountId) {
+                debit += cashFlowPosting.getAmount();
+            }
+            if (cashFlowPosting.getToAccountId() == accountId) {
+                debit -= cashFlowPosting.getAmount();
+            }
+        }
+        return debit;
+    }
+
     private void validatePayoutId(String payoutId) {
         if (payoutDao.get(payoutId) != null) {
             throw new PayoutAlreadyExistsException(String.format("Payout already exists, payoutId='%s'", payoutId));
@@ -128,6 +174,35 @@ public class PayoutService {
             long amount,
             long fee,
             String symbolicCode) {
+        save(payoutId, createdAt, partyId, shopId, payoutToolId, amount, fee, symbolicCode, null);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void save(
+            String payoutId,
+            LocalDateTime createdAt,
+            String partyId,
+            String shopId,
+            String payoutToolId,
+            long amount,
+            long fee,
+            String symbolicCode,
+            List<CashFlowPosting> cashFlowPostings) {
+        save(payoutId, createdAt, partyId, shopId, payoutToolId, amount, fee, symbolicCode, cashFlowPostings, null);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void save(
+            String payoutId,
+            LocalDateTime createdAt,
+            String partyId,
+            String shopId,
+            String payoutToolId,
+            long amount,
+            long fee,
+            String symbolicCode,
+            List<CashFlowPosting> cashFlowPostings,
+            PostingPlan postingPlan) {
         log.info("Trying to save a Payout, payoutId='{}'", payoutId);
         try {
             var payout = new Payout();
@@ -141,12 +216,20 @@ public class PayoutService {
             payout.setAmount(amount);
             payout.setFee(fee);
             payout.setCurrencyCode(symbolicCode);
+            if (cashFlowPostings != null) {
+                payout.setSnapshot(PayoutSnapshotUtil.serialize(ThriftUtil.toThriftPayout(payout, cashFlowPostings)));
+            }
+            if (postingPlan != null) {
+                payout.setPostingPlan(PostingPlanUtil.serialize(postingPlan));
+            }
             payoutDao.save(payout);
+            payoutAggregateService.onCreated(payout);
         } catch (DaoException ex) {
             throw new StorageException(String.format("Failed to save Payout, payoutId='%s'", payoutId), ex);
         }
     }
 
+    @Traced("payout.get")
     public Payout get(String payoutId) {
         log.info("Trying to get a Payout, payoutId='{}'", payoutId);
         try {
@@ -161,6 +244,7 @@ public class PayoutService {
         }
     }
 
+    @Traced("payout.confirm")
     @Transactional(propagation = Propagation.REQUIRED)
     public void confirm(String payoutId) {
         log.info("Trying to confirm a payout, payoutId='{}'", payoutId);
@@ -175,14 +259,20 @@ public class PayoutService {
                                 payoutId, payout.getStatus())
                 );
             }
-            payoutDao.changeStatus(payoutId, PayoutStatus.CONFIRMED);
-            shumwayService.commit(payoutId);
+            payoutAggregateService.onStatusChanged(payout, PayoutStatus.CONFIRMED);
+            payoutDao.changeStatus(
+                    payoutId,
+                    PayoutStatus.CONFIRMED,
+                    null,
+                    toSnapshot(payout, PayoutStatus.CONFIRMED, null));
+            shumwayService.commit(payoutId, toPostingPlan(payout));
             log.info("Payout has been confirmed, payoutId='{}'", payoutId);
         } catch (DaoException ex) {
             throw new StorageException(String.format("Failed to confirm a payout, payoutId='%s'", payoutId), ex);
         }
     }
 
+    @Traced("payout.cancel")
     @Transactional(propagation = Propagation.REQUIRED)
     public void cancel(String payoutId, String details) {
         log.info("Trying to cancel a payout, payoutId='{}'", payoutId);
@@ -192,33 +282,92 @@ public class PayoutService {
                 log.info("Payout already cancelled, payoutId='{}'", payoutId);
                 return;
             }
-            payoutDao.changeStatus(payoutId, PayoutStatus.CANCELLED, details);
-            switch (payout.getStatus()) {
-                case UNPAID:
-                case PAID:
-                    shumwayService.rollback(payoutId);
-                    break;
-                case CONFIRMED:
-                    shumwayService.revert(payoutId);
-                    break;
-                default:
-                    throw new InvalidStateException(String.format("Invalid status for 'cancel' action, " +
-                            "payoutId='%s', currentStatus='%s'", payoutId, payout.getStatus()));
+            payoutAggregateService.onStatusChanged(payout, PayoutStatus.CANCELLED);
+            payoutDao.changeStatus(
+                    payoutId,
+                    PayoutStatus.CANCELLED,
+                    details,
+                    toSnapshot(payout, PayoutStatus.CANCELLED, details));
+            CompensationType compensationType = toCompensationType(payout);
+            if (payoutCompensationService.isEnabled()) {
+                payoutCompensationService.enqueue(payoutId, compensationType);
+            } else if (compensationType == CompensationType.ROLLBACK) {
+                shumwayService.rollback(payoutId, toPostingPlan(payout));
+            } else {
+                shumwayService.revert(payoutId, toPostingPlan(payout));
             }
+            balanceLedgerService.invalidate(payout.getPartyId(), payout.getShopId());
             log.info("Payout has been cancelled, payoutId='{}'", payoutId);
         } catch (DaoException ex) {
             throw new StorageException(String.format("Failed to cancel a payout, payoutId='%s'", payoutId), ex);
         }
     }
 
-    private void validateBalance(String payoutId, Clock clock, Party party, String shopId) {
-        long accountId = party.getShops().get(shopId).getAccount().getSettlement();
+    private CompensationType toCompensationType(Payout payout) {
+        switch (payout.getStatus()) {
+            case UNPAID:
+            case PAID:
+                return CompensationType.ROLLBACK;
+            case CONFIRMED:
+                return CompensationType.REVERT;
+            default:
+                throw new InvalidStateException(String.format("Invalid status for 'cancel' action, " +
+                        "payoutId='%s', currentStatus='%s'", payout.getPayoutId(), payout.getStatus()));
+        }
+    }
+
+    private void validateBalance(
+            String payoutId,
+            Clock clock,
+            long accountId,
+            BalanceLedgerService.Reservation reservation,
+            PostingPlan postingPlan) {
         Balance balance = shumwayService.getBalance(accountId, clock, payoutId);
         if (balance == null || balance.getMinAvailableAmount() < 0) {
-            shumwayService.rollback(payoutId);
+            shumwayService.rollback(payoutId, postingPlan);
+            if (balance != null) {
+                balanceLedgerService.observe(reservation, balance.getMinAvailableAmount() + reservation.getAmount());
+            }
             throw new InsufficientFundsException(
                     String.format("Invalid available amount in shop account, balance='%s'", balance));
         }
+        balanceLedgerService.observe(reservation, balance.getMinAvailableAmount());
+    }
+
+    private void saveHoldClock(String payoutId, Clock clock) {
+        if (clock == null) {
+            return;
+        }
+        try {
+            payoutDao.saveHoldClock(payoutId, PostingPlanUtil.serialize(clock));
+        } catch (DaoException ex) {
+            throw new StorageException(String.format("Failed to save hold clock, payoutId='%s'", payoutId), ex);
+        }
+    }
+
+    private PostingPlan toPostingPlan(Payout payout) {
+        try {
+            return PostingPlanUtil.getPostingPlan(payout);
+        } catch (IllegalStateException ex) {
+            log.warn("Failed to read stored posting plan, it will be rebuilt, payoutId='{}'",
+                    payout.getPayoutId(), ex);
+            return null;
+        }
+    }
+
+    private byte[] toSnapshot(Payout payout, PayoutStatus payoutStatus, String cancelDetails) {
+        if (payout.getSnapshot() == null) {
+            return null;
+        }
+        try {
+            var snapshot = PayoutSnapshotUtil.deserialize(payout.getSnapshot());
+            snapshot.setStatus(ThriftUtil.toThriftPayoutStatus(payoutStatus, cancelDetails));
+            return PayoutSnapshotUtil.serialize(snapshot);
+        } catch (IllegalStateException ex) {
+            log.warn("Failed to update payout snapshot, it will be dropped, payoutId='{}'",
+                    payout.getPayoutId(), ex);
+            return null;
+        }
     }
 
     private Payout getForUpdate(String payoutId) {
@@ -0,0 +1,134 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.Payout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class PayoutSnapshotKafkaProducerService implements DisposableBean {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final KafkaTemplate<String, Payout> payoutSnapshotKafkaTemplate;
+    private final PayoutReadService payoutReadService;
+    private final Set<String> pendingPayoutIds = ConcurrentHashMap.newKeySet();
+    private final Object[] payoutLocks = new Object[LOCK_STRIPES];
+    private final ScheduledExecutorService republishExecutor;
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter republishedCounter;
+
+    @Value("${kafka.topic.pm-payout-snapshot.name}")
+    private String topicName;
+
+    @Value("${kafka.topic.pm-payout-snapshot.produce.enabled}")
+    private boolean producerEnabled;
+
+    public PayoutSnapshotKafkaProducerService(
+            KafkaTemplate<String, Payout> payoutSnapshotKafkaTemplate,
+            PayoutReadService payoutReadService,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.topic.pm-payout-snapshot.produce.retry-interval-ms}") long retryIntervalMs) {
+        this.payoutSnapshotKafkaTemplate = payoutSnapshotKafkaTemplate;
+        this.payoutReadService = payoutReadService;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            payoutLocks[i] = new Object();
+        }
+        this.sentCounter = meterRegistry.counter("pm.kafka.producer.snapshots", "result", "sent");
+        this.failedCounter = meterRegistry.counter("pm.kafka.producer.snapshots", "result", "failed");
+        this.republishedCounter = meterRegistry.counter("pm.kafka.producer.snapshots", "result", "republished");
+        meterRegistry.gaugeCollectionSize("pm.kafka.producer.pending_snapshots", Tags.empty(), pendingPayoutIds);
+        this.republishExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kafka-snapshot-republish");
+            thread.setDaemon(true);
+            return thread;
+        });
+        republishExecutor.scheduleWithFixedDelay(
+                this::republishPending, retryIntervalMs, retryIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void send(Payout payout) {
+        if (producerEnabled && payout != null) {
+            synchronized (lockFor(payout.getPayoutId())) {
+                pendingPayoutIds.remove(payout.getPayoutId());
+                sendSnapshot(payout);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        republishExecutor.shutdownNow();
+        payoutSnapshotKafkaTemplate.flush();
+        republishPending();
+        if (!pendingPayoutIds.isEmpty()) {
+            log.error("Payout snapshots were not published before shutdown and must be republished: " +
+                    "topicName={}, payoutIds={}", topicName, pendingPayoutIds);
+        }
+    }
+
+    private void sendSnapshot(Payout payout) {
+        log.info("Try to send payout snapshot to kafka: topicName={}, payoutId={}",
+                topicName, payout.getPayoutId());
+        try {
+            payoutSnapshotKafkaTemplate.send(topicName, payout.getPayoutId(), payout).addCallback(
+                    result -> {
+                        sentCounter.increment();
+                        log.info("Payout snapshot to kafka was sent: topicName={}, payoutId={}",
+                                topicName, payout.getPayoutId());
+                    },
+                    ex -> {
+                        failedCounter.increment();
+                        log.error("Error while sending payout snapshot, " +
+                                "the latest snapshot will be republished: {}", payout, ex);
+                        pendingPayoutIds.add(payout.getPayoutId());
+                    });
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("Error while sending payout snapshot, the latest snapshot will be republished: {}", payout, e);
+            pendingPayoutIds.add(payout.getPayoutId());
+        }
+    }
+
+    private void republishPending() {
+        for (String payoutId : List.copyOf(pendingPayoutIds)) {
+            synchronized (lockFor(payoutId)) {
+                if (!pendingPayoutIds.remove(payoutId)) {
+                    continue;
+                }
+                try {
+                    // the latest state is reloaded so an older snapshot never overwrites a newer one
+                    Payout payout = payoutReadService.load(payoutId);
+                    payoutSnapshotKafkaTemplate.send(topicName, payoutId, payout).get();
+                    republishedCounter.increment();
+                } catch (InterruptedException e) {
+                    pendingPayoutIds.add(payoutId);
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    pendingPayoutIds.add(payoutId);
+                    log.warn("Failed to republish payout snapshot, will retry: payoutId={}", payoutId, e);
+                }
+            }
+        }
+    }
+
+    private Object lockFor(String payoutId) {
+        return payoutLocks[Math.floorMod(payoutId.hashCode(), LOCK_STRIPES)];
+    }
+}
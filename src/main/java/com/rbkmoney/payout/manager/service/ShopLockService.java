@@ -0,0 +1,93 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.dao.PayoutDao;
+import com.rbkmoney.payout.manager.exception.LockAcquisitionException;
+import com.rbkmoney.payout.manager.exception.StorageException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+public class ShopLockService {
+
+    private final PayoutDao payoutDao;
+    private final boolean enabled;
+    private final long timeoutMs;
+    private final boolean advisoryLockEnabled;
+    private final ReentrantLock[] locks;
+    private final Timer[] waitTimers;
+
+    public ShopLockService(
+            PayoutDao payoutDao,
+            MeterRegistry meterRegistry,
+            @Value("${shop-lock.enabled}") boolean enabled,
+            @Value("${shop-lock.stripes}") int stripes,
+            @Value("${shop-lock.timeoutMs}") long timeoutMs,
+            @Value("${shop-lock.advisory.enabled}") boolean advisoryLockEnabled) {
+        this.payoutDao = payoutDao;
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+        this.advisoryLockEnabled = advisoryLockEnabled;
+        this.locks = new ReentrantLock[stripes];
+        this.waitTimers = new Timer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock(true);
+            waitTimers[i] = meterRegistry.timer("pm.shop_lock.wait", "stripe", String.valueOf(i));
+            meterRegistry.gauge("pm.shop_lock.queue", Tags.of("stripe", String.valueOf(i)),
+                    locks[i], ReentrantLock::getQueueLength);
+        }
+    }
+
+    public <T> T executeInLock(String partyId, String shopId, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        int stripe = toStripe(partyId, shopId);
+        ReentrantLock lock = locks[stripe];
+        long start = System.nanoTime();
+        try {
+            if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new LockAcquisitionException(String.format(
+                        "Failed to acquire shop lock in time, partyId='%s', shopId='%s', timeoutMs='%d'",
+                        partyId, shopId, timeoutMs));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new LockAcquisitionException(String.format(
+                    "Interrupted while waiting for shop lock, partyId='%s', shopId='%s'", partyId, shopId), ex);
+        } finally {
+            waitTimers[stripe].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void lockAcrossNodes(String partyId, String shopId) {
+        if (!advisoryLockEnabled) {
+            return;
+        }
+        log.debug("Trying to acquire advisory shop lock, partyId='{}', shopId='{}'", partyId, shopId);
+        try {
+            payoutDao.lockShop(partyId, shopId);
+        } catch (DaoException ex) {
+            throw new StorageException(String.format(
+                    "Failed to acquire advisory shop lock, partyId='%s', shopId='%s'", partyId, shopId), ex);
+        }
+    }
+
+    private int toStripe(String partyId, String shopId) {
+        return Math.floorMod((partyId + "/" + shopId).hashCode(), locks.length);
+    }
+}
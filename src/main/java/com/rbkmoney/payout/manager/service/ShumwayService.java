@@ -2,8 +2,9 @@ package com.rbkmoney.payout.manager.service;
 
 import com.rbkmoney.damsel.base.InvalidRequest;
 import com.rbkmoney.damsel.shumpune.*;
-import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
 import com.rbkmoney.payout.manager.exception.AccounterException;
+import com.rbkmoney.payout.manager.tracing.Traced;
+import com.rbkmoney.payout.manager.util.PostingPlanUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.thrift.TException;
@@ -24,13 +25,12 @@ public class ShumwayService {
     private final RetryTemplate retryTemplate;
     private final CashFlowPostingService cashFlowPostingService;
 
-    public Clock hold(String payoutId, List<CashFlowPosting> cashFlowPostings) {
-        log.debug("Trying to hold payout postings, payoutId='{}', cashFlowPostings='{}'",
-                payoutId, cashFlowPostings);
+    @Traced("shumway.hold")
+    public Clock hold(String payoutId, PostingPlan postingPlan) {
+        log.debug("Trying to hold payout postings, payoutId='{}', postingPlan='{}'", payoutId, postingPlan);
         try {
-            String postingPlanId = toPlanId(payoutId);
-            PostingBatch postingBatch = toPostingBatch(cashFlowPostings);
-            Clock clock = hold(postingPlanId, postingBatch);
+            PostingBatch postingBatch = postingPlan.getBatchList().get(0);
+            Clock clock = hold(postingPlan.getId(), postingBatch);
             log.info("Payout has been held, payoutId='{}', postingBatch='{}', clock='{}'",
                     payoutId, postingBatch, clock);
             return clock;
@@ -49,14 +49,14 @@ public class ShumwayService {
         }
     }
 
-    public void commit(String payoutId) {
+    @Traced("shumway.commit")
+    public void commit(String payoutId, PostingPlan storedPostingPlan) {
         log.debug("Trying to commit payout postings, payoutId='{}'", payoutId);
-        List<CashFlowPosting> cashFlowPostings = cashFlowPostingService.getCashFlowPostings(payoutId);
+        PostingPlan postingPlan = resolvePostingPlan(payoutId, storedPostingPlan);
         try {
-            String postingPlanId = toPlanId(payoutId);
-            List<PostingBatch> postingBatches = List.of(toPostingBatch(cashFlowPostings));
-            commit(postingPlanId, postingBatches);
-            log.info("Payout has been committed, payoutId='{}', postingBatches='{}'", payoutId, postingBatches);
+            commit(postingPlan.getId(), postingPlan.getBatchList());
+            log.info("Payout has been committed, payoutId='{}', postingBatches='{}'",
+                    payoutId, postingPlan.getBatchList());
         } catch (Exception ex) {
             throw new AccounterException(String.format("Failed to commit payout, payoutId='%s'", payoutId), ex);
         }
@@ -74,14 +74,14 @@ public class ShumwayService {
         }
     }
 
-    public void rollback(String payoutId) {
+    @Traced("shumway.rollback")
+    public void rollback(String payoutId, PostingPlan storedPostingPlan) {
         log.debug("Trying to rollback payout postings, payoutId='{}'", payoutId);
-        List<CashFlowPosting> cashFlowPostings = cashFlowPostingService.getCashFlowPostings(payoutId);
+        PostingPlan postingPlan = resolvePostingPlan(payoutId, storedPostingPlan);
         try {
-            String postingPlanId = toPlanId(payoutId);
-            List<PostingBatch> postingBatches = List.of(toPostingBatch(cashFlowPostings));
-            rollback(postingPlanId, postingBatches);
-            log.info("Payout has been rolled back, payoutId='{}', postingBatches='{}'", payoutId, postingBatches);
+            rollback(postingPlan.getId(), postingPlan.getBatchList());
+            log.info("Payout has been rolled back, payoutId='{}', postingBatches='{}'",
+                    payoutId, postingPlan.getBatchList());
         } catch (Exception ex) {
             throw new AccounterException(String.format("Failed to rollback payout, payoutId='%s'", payoutId), ex);
         }
@@ -99,13 +99,14 @@ public class ShumwayService {
         }
     }
 
-    public void revert(String payoutId) {
+    @Traced("shumway.revert")
+    public void revert(String payoutId, PostingPlan storedPostingPlan) {
         log.debug("Trying to revert payout, payoutId='{}'", payoutId);
-        List<CashFlowPosting> cashFlowPostings = cashFlowPostingService.getCashFlowPostings(payoutId);
+        PostingPlan postingPlan = resolvePostingPlan(payoutId, storedPostingPlan);
         try {
             String revertPlanId = toRevertPlanId(payoutId);
             PostingBatch revertPostingBatch = revertPostingBatch(
-                    toPostingBatch(cashFlowPostings),
+                    postingPlan.getBatchList().get(0),
                     posting -> {
                         Posting revertPosting = new Posting(posting);
                         revertPosting.setFromId(posting.getToId());
@@ -123,13 +124,21 @@ public class ShumwayService {
     }
 
     private void revert(String revertPlanId, PostingBatch revertPostingBatch) throws Exception {
+        List<PostingBatch> revertPostingBatches = List.of(revertPostingBatch);
         try {
             log.debug("Start revert operation, revertPlanId='{}', revertPostingBatch='{}'",
                     revertPlanId, revertPostingBatch);
-            hold(revertPlanId, revertPostingBatch);
-            commit(revertPlanId, List.of(revertPostingBatch));
+            try {
+                hold(revertPlanId, revertPostingBatch);
+            } catch (InvalidRequest ex) {
+                // shumway repeats the hold of a held plan with the same batch, so the plan is already finished;
+                // the commit is accepted only if a previous attempt committed the same batch
+                log.info("Revert plan has already been finished, revertPlanId='{}', errors='{}'",
+                        revertPlanId, ex.getErrors());
+            }
+            commit(revertPlanId, revertPostingBatches);
         } catch (Exception ex) {
-            processRollbackRevertWhenError(revertPlanId, List.of(revertPostingBatch), ex);
+            processRollbackRevertWhenError(revertPlanId, revertPostingBatches, ex);
         } finally {
             log.debug("End revert operation, revertPlanId='{}', revertPostingBatch='{}'",
                     revertPlanId, revertPostingBatch);
@@ -168,6 +177,7 @@ public class ShumwayService {
         throw parent;
     }
 
+    @Traced("shumway.getBalance")
     public Balance getBalance(Long accountId, Clock clock, String payoutId) {
         String clockLog = clock.isSetLatest() ? "Latest" : Arrays.toString(clock.getVector().getState());
         try {
@@ -193,38 +203,15 @@ public class ShumwayService {
         }
     }
 
-    private PostingBatch toPostingBatch(List<CashFlowPosting> postings) {
-        return new PostingBatch(
-                1L,
-                postings.stream()
-                        .map(this::toPosting)
-                        .collect(Collectors.toList()));
-    }
-
-    private Posting toPosting(CashFlowPosting cashFlowPosting) {
-        Posting posting = new Posting();
-        posting.setFromId(cashFlowPosting.getFromAccountId());
-        posting.setToId(cashFlowPosting.getToAccountId());
-        posting.setAmount(cashFlowPosting.getAmount());
-        posting.setCurrencySymCode(cashFlowPosting.getCurrencyCode());
-        posting.setDescription(buildPostingDescription(
-                cashFlowPosting.getPayoutId(),
-                cashFlowPosting.getDescription()));
-        return posting;
-    }
-
-    private String buildPostingDescription(String payoutId, String description) {
-        if (description == null) {
-            return "PAYOUT-" + payoutId;
+    private PostingPlan resolvePostingPlan(String payoutId, PostingPlan storedPostingPlan) {
+        if (storedPostingPlan != null) {
+            return storedPostingPlan;
         }
-        return description;
-    }
-
-    private String toPlanId(String payoutId) {
-        return "payout_" + payoutId;
+        log.debug("Posting plan is not stored, rebuild it from cash flow postings, payoutId='{}'", payoutId);
+        return PostingPlanUtil.toPostingPlan(payoutId, cashFlowPostingService.getCashFlowPostings(payoutId));
     }
 
     private String toRevertPlanId(String payoutId) {
-        return "revert_" + toPlanId(payoutId);
+        return "revert_" + PostingPlanUtil.toPlanId(payoutId);
     }
 }
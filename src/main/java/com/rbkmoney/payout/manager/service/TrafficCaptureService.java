@@ -0,0 +1,153 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.config.properties.TrafficCaptureProperties;
+import com.rbkmoney.payout.manager.util.ThriftAnonymizer;
+import com.rbkmoney.payout.manager.util.TrafficCaptureFile;
+import com.rbkmoney.payout.manager.util.TrafficCaptureFile.CapturedRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.thrift.TException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+public class TrafficCaptureService implements DisposableBean {
+
+    private final TrafficCaptureProperties trafficCaptureProperties;
+    private final ThriftAnonymizer thriftAnonymizer;
+    private final BlockingQueue<CapturedRequest> queue;
+    private final AtomicLong captured = new AtomicLong();
+    private final long startedAt = System.nanoTime();
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter limitedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public TrafficCaptureService(TrafficCaptureProperties trafficCaptureProperties, MeterRegistry meterRegistry) {
+        if (trafficCaptureProperties.isEnabled() && trafficCaptureProperties.isAnonymize()
+                && (trafficCaptureProperties.getAnonymizationSalt() == null
+                || trafficCaptureProperties.getAnonymizationSalt().isBlank())) {
+            throw new IllegalStateException(
+                    "capture.anonymizationSalt must be set when capture.anonymize=true, " +
+                            "otherwise anonymized values can be reversed by hashing known identifiers");
+        }
+        this.trafficCaptureProperties = trafficCaptureProperties;
+        this.thriftAnonymizer = new ThriftAnonymizer(
+                trafficCaptureProperties.getAnonymizationSalt(),
+                trafficCaptureProperties.getPreservedFields());
+        this.queue = new ArrayBlockingQueue<>(Math.max(trafficCaptureProperties.getQueueSize(), 1));
+        this.writtenCounter = meterRegistry.counter("pm.capture.requests", "result", "written");
+        this.droppedCounter = meterRegistry.counter("pm.capture.requests", "result", "dropped");
+        this.limitedCounter = meterRegistry.counter("pm.capture.requests", "result", "limited");
+        this.failedCounter = meterRegistry.counter("pm.capture.requests", "result", "failed");
+        meterRegistry.gaugeCollectionSize("pm.capture.queue", Tags.empty(), queue);
+        if (trafficCaptureProperties.isEnabled()) {
+            start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    public boolean shouldCaptureHeader(String name) {
+        String headerName = name.toLowerCase(Locale.ROOT);
+        if (!headerName.startsWith("woody.") && !headerName.startsWith("x-rbk-")) {
+            return false;
+        }
+        return !headerName.contains("deadline")
+                && !(trafficCaptureProperties.isAnonymize() && headerName.contains("meta"));
+    }
+
+    public void capture(byte[] body, Map<String, String> headers, long requestStartedAt, long durationNanos) {
+        if (!running) {
+            return;
+        }
+        if (captured.incrementAndGet() > trafficCaptureProperties.getMaxRecords()) {
+            limitedCounter.increment();
+            return;
+        }
+        CapturedRequest request = new CapturedRequest(
+                TimeUnit.NANOSECONDS.toMicros(requestStartedAt - startedAt),
+                TimeUnit.NANOSECONDS.toMicros(durationNanos),
+                "",
+                headers,
+                body);
+        if (!queue.offer(request)) {
+            droppedCounter.increment();
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void start() {
+        running = true;
+        writerThread = new Thread(this::writeLoop, "traffic-capture-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Traffic capture has been started, file='{}', anonymize='{}'",
+                trafficCaptureProperties.getFile(), trafficCaptureProperties.isAnonymize());
+    }
+
+    private void writeLoop() {
+        try (TrafficCaptureFile.Writer writer = TrafficCaptureFile.openWriter(
+                Path.of(trafficCaptureProperties.getFile()))) {
+            while (running || !queue.isEmpty()) {
+                CapturedRequest request = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (request == null) {
+                    writer.flush();
+                    continue;
+                }
+                try {
+                    writer.write(prepare(request));
+                    writtenCounter.increment();
+                } catch (TException ex) {
+                    failedCounter.increment();
+                    log.warn("Failed to decode captured request, it will be skipped", ex);
+                }
+            }
+        } catch (IOException ex) {
+            log.error("Failed to write traffic capture, capture has been stopped", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+        }
+        log.info("Traffic capture has been stopped, file='{}'", trafficCaptureProperties.getFile());
+    }
+
+    private CapturedRequest prepare(CapturedRequest request) throws TException {
+        byte[] body = trafficCaptureProperties.isAnonymize()
+                ? thriftAnonymizer.anonymize(request.getBody())
+                : request.getBody();
+        return new CapturedRequest(
+                request.getOffsetMicros(),
+                request.getDurationMicros(),
+                ThriftAnonymizer.readMethod(body),
+                request.getHeaders(),
+                body);
+    }
+}
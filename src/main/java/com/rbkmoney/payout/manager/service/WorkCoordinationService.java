@@ -0,0 +1,172 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.dao.WorkLeaseDao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+@Slf4j
+@Service
+public class WorkCoordinationService implements DisposableBean {
+
+    private final WorkLeaseDao workLeaseDao;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executorService;
+    private final ScheduledExecutorService renewalExecutor;
+    private final String nodeId;
+    private final long nodeTtlMs;
+    private final long leaseMs;
+    private final Set<String> jobs = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<Integer, AtomicBoolean>> runningShards = new ConcurrentHashMap<>();
+    private final Counter lostLeasesCounter;
+    private final Map<String, AtomicInteger> ownedShards = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> liveNodes = new ConcurrentHashMap<>();
+
+    public WorkCoordinationService(
+            WorkLeaseDao workLeaseDao,
+            MeterRegistry meterRegistry,
+            @Value("${work-coordination.parallelism}") int parallelism,
+            @Value("${work-coordination.nodeTtlMs}") long nodeTtlMs,
+            @Value("${work-coordination.leaseMs}") long leaseMs,
+            @Value("${work-coordination.renewIntervalMs}") long renewIntervalMs) {
+        this.workLeaseDao = workLeaseDao;
+        this.meterRegistry = meterRegistry;
+        this.executorService = Executors.newFixedThreadPool(parallelism);
+        this.nodeId = UUID.randomUUID().toString();
+        this.nodeTtlMs = nodeTtlMs;
+        this.leaseMs = leaseMs;
+        this.lostLeasesCounter = meterRegistry.counter("pm.work.leases.lost");
+        this.renewalExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "work-coordination-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewalExecutor.scheduleWithFixedDelay(
+                this::renew, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public static int shardOf(String partyId, int shards) {
+        return Math.floorMod(partyId.hashCode(), shards);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int runOwnedShards(String job, int shards, ShardProcessor shardProcessor) throws InterruptedException {
+        jobs.add(job);
+        workLeaseDao.heartbeat(job, nodeId);
+        List<String> nodes = workLeaseDao.getLiveNodes(job, nodeTtlMs);
+        int nodeIndex = nodes.indexOf(nodeId);
+        if (nodeIndex < 0) {
+            log.warn("Node is not live yet, skip the run, job='{}', nodeId='{}'", job, nodeId);
+            return 0;
+        }
+        List<Integer> assigned = new ArrayList<>();
+        for (int shard = nodeIndex; shard < shards; shard += nodes.size()) {
+            assigned.add(shard);
+        }
+        workLeaseDao.releaseExcept(job, nodeId, assigned);
+        List<Integer> acquired = new ArrayList<>();
+        for (Integer shard : assigned) {
+            if (workLeaseDao.tryAcquire(job, shard, nodeId, leaseMs)) {
+                acquired.add(shard);
+            }
+        }
+        gauge("pm.work.nodes.live", job, liveNodes).set(nodes.size());
+        gauge("pm.work.shards.owned", job, ownedShards).set(acquired.size());
+        log.info("Run owned shards, job='{}', nodeId='{}', nodes='{}', assigned='{}', acquired='{}'",
+                job, nodeId, nodes.size(), assigned.size(), acquired.size());
+
+        Map<Integer, AtomicBoolean> running = runningShards.computeIfAbsent(job, key -> new ConcurrentHashMap<>());
+        List<Future<?>> futures = new ArrayList<>(acquired.size());
+        for (Integer shard : acquired) {
+            AtomicBoolean leaseLost = new AtomicBoolean();
+            running.put(shard, leaseLost);
+            futures.add(executorService.submit(() -> {
+                try {
+                    meterRegistry.timer("pm.work.shard.duration", "job", job)
+                            .record(() -> shardProcessor.process(shard, leaseLost::get));
+                } finally {
+                    running.remove(shard, leaseLost);
+                }
+            }));
+        }
+        int processed = 0;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+                processed++;
+            } catch (ExecutionException ex) {
+                log.error("Failed to process shard, job='{}', nodeId='{}'", job, nodeId, ex.getCause());
+            }
+        }
+        return processed;
+    }
+
+    private void renew() {
+        for (String job : jobs) {
+            try {
+                workLeaseDao.heartbeat(job, nodeId);
+                Map<Integer, AtomicBoolean> shards = runningShards.getOrDefault(job, Map.of());
+                for (Map.Entry<Integer, AtomicBoolean> running : shards.entrySet()) {
+                    Integer shard = running.getKey();
+                    if (!running.getValue().get() && !workLeaseDao.tryAcquire(job, shard, nodeId, leaseMs)) {
+                        // the new owner processes the shard from now on, so this node stops at the next item
+                        running.getValue().set(true);
+                        lostLeasesCounter.increment();
+                        log.warn("Lease of running shard was taken over, job='{}', shard='{}', nodeId='{}'",
+                                job, shard, nodeId);
+                    }
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Failed to renew leases, job='{}', nodeId='{}'", job, nodeId, ex);
+            }
+        }
+    }
+
+    private AtomicInteger gauge(String name, String job, Map<String, AtomicInteger> gauges) {
+        return gauges.computeIfAbsent(job, key -> meterRegistry.gauge(name, Tags.of("job", job), new AtomicInteger()));
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executorService.shutdown();
+        executorService.awaitTermination(nodeTtlMs, TimeUnit.MILLISECONDS);
+        renewalExecutor.shutdownNow();
+        for (String job : jobs) {
+            try {
+                workLeaseDao.removeNode(job, nodeId);
+            } catch (RuntimeException ex) {
+                log.warn("Failed to remove node, leases will expire, job='{}', nodeId='{}'", job, nodeId, ex);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ShardProcessor {
+
+        void process(int shard, BooleanSupplier leaseLost);
+
+    }
+}
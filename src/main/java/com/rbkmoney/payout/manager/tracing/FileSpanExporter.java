@@ -0,0 +1,28 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import lombok.RequiredArgsConstructor;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class FileSpanExporter implements SpanExporter {
+
+    private final Path path;
+    private final ZipkinSpanFormatter zipkinSpanFormatter;
+
+    @Override
+    public void export(List<Span> spans) throws Exception {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Span span : spans) {
+                writer.write(zipkinSpanFormatter.toJson(span));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+public class Span {
+
+    static final Span NOOP = new Span(null, null, null, null, 0L, 0L);
+
+    private final String name;
+    private final String traceId;
+    private final String spanId;
+    private final String parentId;
+    private final long startEpochMicros;
+    private final long startNanos;
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private long durationMicros;
+    private boolean error;
+
+    Span(String name, String traceId, String spanId, String parentId, long startEpochMicros, long startNanos) {
+        this.name = name;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.startEpochMicros = startEpochMicros;
+        this.startNanos = startNanos;
+    }
+
+    public Span tag(String key, String value) {
+        if (this != NOOP) {
+            tags.put(key, value);
+        }
+        return this;
+    }
+
+    public Span error(Throwable throwable) {
+        if (this != NOOP) {
+            error = true;
+            tags.put("error", throwable.getClass().getSimpleName());
+        }
+        return this;
+    }
+
+    public boolean isNoop() {
+        return this == NOOP;
+    }
+
+    void finish(long endNanos) {
+        durationMicros = Math.max(1L, (endNanos - startNanos) / 1000L);
+    }
+}
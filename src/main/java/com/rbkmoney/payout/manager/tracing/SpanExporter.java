@@ -0,0 +1,9 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import java.util.List;
+
+public interface SpanExporter {
+
+    void export(List<Span> spans) throws Exception;
+
+}
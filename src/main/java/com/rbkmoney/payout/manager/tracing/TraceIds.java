@@ -0,0 +1,26 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+final class TraceIds {
+
+    private static final Pattern HEX = Pattern.compile("[0-9a-f]+");
+
+    private TraceIds() {
+    }
+
+    static String toTraceparent(Span span) {
+        return String.format("00-%s-%s-01", toHex(span.getTraceId(), 32), toHex(span.getSpanId(), 16));
+    }
+
+    static String toHex(String id, int length) {
+        if (id.length() == length && HEX.matcher(id).matches()) {
+            return id;
+        }
+        // woody ids are not hex, the mapping is stable so parent links survive in zipkin and traceparent
+        String hex = UUID.nameUUIDFromBytes(id.getBytes(StandardCharsets.UTF_8)).toString().replace("-", "");
+        return hex.substring(0, length);
+    }
+}
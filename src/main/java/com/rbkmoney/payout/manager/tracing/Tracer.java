@@ -0,0 +1,188 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import com.rbkmoney.payout.manager.config.properties.TracingProperties;
+import com.rbkmoney.woody.api.trace.TraceData;
+import com.rbkmoney.woody.api.trace.context.TraceContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class Tracer implements DisposableBean {
+
+    public static final String WOODY_TRACE_ID_TAG = "woody.trace_id";
+    public static final String WOODY_SPAN_ID_TAG = "woody.span_id";
+
+    private static final ThreadLocal<Deque<Span>> SPANS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final TracingProperties tracingProperties;
+    private final SpanExporter spanExporter;
+    private final BlockingQueue<Span> finishedSpans;
+    private final ScheduledExecutorService executorService;
+
+    private final Counter exportedCounter;
+    private final Counter droppedCounter;
+
+    public Tracer(TracingProperties tracingProperties, SpanExporter spanExporter, MeterRegistry meterRegistry) {
+        this.tracingProperties = tracingProperties;
+        this.spanExporter = spanExporter;
+        this.finishedSpans = new ArrayBlockingQueue<>(tracingProperties.getQueueSize());
+        this.exportedCounter = meterRegistry.counter("pm.tracing.spans", "result", "exported");
+        this.droppedCounter = meterRegistry.counter("pm.tracing.spans", "result", "dropped");
+        this.executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "span-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (tracingProperties.isEnabled()) {
+            log.info("Tracing is enabled, exporter={}", tracingProperties.getExporter());
+            executorService.scheduleWithFixedDelay(
+                    this::flush,
+                    tracingProperties.getFlushIntervalMs(),
+                    tracingProperties.getFlushIntervalMs(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static Span currentSpan() {
+        Span span = SPANS.get().peek();
+        return span == null ? Span.NOOP : span;
+    }
+
+    public static Runnable withCurrentSpan(Runnable task) {
+        Span parent = SPANS.get().peek();
+        if (parent == null) {
+            return task;
+        }
+        // spans started by the task on another thread become children of the span open at submission
+        return () -> {
+            Deque<Span> spans = SPANS.get();
+            spans.push(parent);
+            try {
+                task.run();
+            } finally {
+                spans.remove(parent);
+            }
+        };
+    }
+
+    public <T, E extends Exception> T inSpan(String name, SpanCall<T, E> call) throws E {
+        Span span = startSpan(name);
+        try {
+            return call.call();
+        } catch (Exception | Error ex) {
+            span.error(ex);
+            throw ex;
+        } finally {
+            endSpan(span);
+        }
+    }
+
+    public Span startSpan(String name) {
+        if (!tracingProperties.isEnabled()) {
+            return Span.NOOP;
+        }
+        Deque<Span> spans = SPANS.get();
+        Span parent = spans.peek();
+        // woody's trace data is only read: woody keeps its own span ids and our spans are linked to them by tags
+        com.rbkmoney.woody.api.trace.Span woodySpan = getWoodyServiceSpan();
+        String woodyTraceId = woodySpan == null ? null : woodySpan.getTraceId();
+        String woodySpanId = woodySpan == null ? null : woodySpan.getId();
+        Span span;
+        if (parent != null) {
+            span = new Span(name, parent.getTraceId(), randomSpanId(), parent.getSpanId(),
+                    epochMicros(), System.nanoTime());
+        } else {
+            span = new Span(name,
+                    woodyTraceId == null ? UUID.randomUUID().toString().replace("-", "") : woodyTraceId,
+                    randomSpanId(),
+                    null,
+                    epochMicros(), System.nanoTime());
+        }
+        if (woodyTraceId != null) {
+            span.tag(WOODY_TRACE_ID_TAG, woodyTraceId);
+        }
+        if (woodySpanId != null) {
+            span.tag(WOODY_SPAN_ID_TAG, woodySpanId);
+        }
+        spans.push(span);
+        return span;
+    }
+
+    public void endSpan(Span span) {
+        if (span.isNoop()) {
+            return;
+        }
+        span.finish(System.nanoTime());
+        Deque<Span> spans = SPANS.get();
+        if (spans.peek() == span) {
+            spans.pop();
+        } else {
+            spans.remove(span);
+        }
+        if (!finishedSpans.offer(span)) {
+            droppedCounter.increment();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executorService.shutdown();
+        flush();
+    }
+
+    private void flush() {
+        if (spanExporter == null) {
+            finishedSpans.clear();
+            return;
+        }
+        try {
+            List<Span> batch = new ArrayList<>(tracingProperties.getBatchSize());
+            while (finishedSpans.drainTo(batch, tracingProperties.getBatchSize()) > 0) {
+                spanExporter.export(batch);
+                exportedCounter.increment(batch.size());
+                batch.clear();
+            }
+        } catch (Exception ex) {
+            log.warn("Failed to export spans", ex);
+        }
+    }
+
+    private com.rbkmoney.woody.api.trace.Span getWoodyServiceSpan() {
+        TraceData traceData = TraceContext.getCurrentTraceData();
+        if (traceData == null || traceData.getServiceSpan() == null) {
+            return null;
+        }
+        return traceData.getServiceSpan().getSpan();
+    }
+
+    private static String randomSpanId() {
+        return String.format("%016x", ThreadLocalRandom.current().nextLong());
+    }
+
+    private static long epochMicros() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+
+    @FunctionalInterface
+    public interface SpanCall<T, E extends Exception> {
+
+        T call() throws E;
+
+    }
+}
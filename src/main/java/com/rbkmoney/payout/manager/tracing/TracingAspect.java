@@ -0,0 +1,26 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+@Aspect
+@RequiredArgsConstructor
+public class TracingAspect {
+
+    private final Tracer tracer;
+
+    @Around("@annotation(traced)")
+    public Object trace(ProceedingJoinPoint joinPoint, Traced traced) throws Throwable {
+        Span span = tracer.startSpan(traced.value());
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            span.error(ex);
+            throw ex;
+        } finally {
+            tracer.endSpan(span);
+        }
+    }
+}
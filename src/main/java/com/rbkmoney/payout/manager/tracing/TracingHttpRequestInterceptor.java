@@ -0,0 +1,18 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.protocol.HttpContext;
+
+public class TracingHttpRequestInterceptor implements HttpRequestInterceptor {
+
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        Span span = Tracer.currentSpan();
+        if (!span.isNoop()) {
+            request.setHeader(TRACEPARENT_HEADER, TraceIds.toTraceparent(span));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import org.apache.kafka.clients.producer.ProducerInterceptor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class TracingProducerInterceptor implements ProducerInterceptor<Object, Object> {
+
+    public static final String TRACEPARENT_HEADER = "traceparent";
+    public static final String WOODY_TRACE_ID_HEADER = "woody.trace_id";
+
+    @Override
+    public ProducerRecord<Object, Object> onSend(ProducerRecord<Object, Object> record) {
+        Span span = Tracer.currentSpan();
+        if (!span.isNoop()) {
+            record.headers().add(
+                    TRACEPARENT_HEADER, TraceIds.toTraceparent(span).getBytes(StandardCharsets.UTF_8));
+            String woodyTraceId = span.getTags().get(Tracer.WOODY_TRACE_ID_TAG);
+            if (woodyTraceId != null) {
+                record.headers().add(WOODY_TRACE_ID_HEADER, woodyTraceId.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return record;
+    }
+
+    @Override
+    public void onAcknowledgement(RecordMetadata metadata, Exception exception) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+}
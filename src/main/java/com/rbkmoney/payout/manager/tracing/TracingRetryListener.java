@@ -0,0 +1,18 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.listener.RetryListenerSupport;
+
+public class TracingRetryListener extends RetryListenerSupport {
+
+    @Override
+    public <T, E extends Throwable> void onError(
+            RetryContext context,
+            RetryCallback<T, E> callback,
+            Throwable throwable) {
+        Tracer.currentSpan()
+                .tag("retry.count", String.valueOf(context.getRetryCount()))
+                .tag("retry.last_error", throwable.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,34 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import lombok.RequiredArgsConstructor;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ZipkinSpanExporter implements SpanExporter {
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private final URI uri;
+    private final Duration timeout;
+    private final ZipkinSpanFormatter zipkinSpanFormatter;
+
+    @Override
+    public void export(List<Span> spans) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(zipkinSpanFormatter.toJson(spans)))
+                .build();
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(
+                    String.format("Unexpected zipkin response, uri='%s', status='%d'", uri, response.statusCode()));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class ZipkinSpanFormatter {
+
+    private final ObjectMapper objectMapper;
+    private final String serviceName;
+
+    public String toJson(Span span) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(toZipkinSpan(span));
+    }
+
+    public String toJson(List<Span> spans) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(spans.stream()
+                .map(this::toZipkinSpan)
+                .collect(Collectors.toList()));
+    }
+
+    private Map<String, Object> toZipkinSpan(Span span) {
+        Map<String, Object> zipkinSpan = new LinkedHashMap<>();
+        zipkinSpan.put("traceId", TraceIds.toHex(span.getTraceId(), 32));
+        zipkinSpan.put("id", TraceIds.toHex(span.getSpanId(), 16));
+        if (span.getParentId() != null) {
+            zipkinSpan.put("parentId", TraceIds.toHex(span.getParentId(), 16));
+        }
+        zipkinSpan.put("name", span.getName());
+        zipkinSpan.put("timestamp", span.getStartEpochMicros());
+        zipkinSpan.put("duration", span.getDurationMicros());
+        zipkinSpan.put("localEndpoint", Map.of("serviceName", serviceName));
+        if (!span.getTags().isEmpty()) {
+            zipkinSpan.put("tags", span.getTags());
+        }
+        return zipkinSpan;
+    }
+}
@@ -0,0 +1,29 @@
+package com.rbkmoney.payout.manager.util;
+
+import com.rbkmoney.payout.manager.Payout;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+
+public class PayoutSnapshotUtil {
+
+    public static byte[] serialize(Payout payout) {
+        try {
+            return new TSerializer(new TCompactProtocol.Factory()).serialize(payout);
+        } catch (TException ex) {
+            throw new IllegalStateException(
+                    String.format("Failed to serialize payout snapshot, payoutId='%s'", payout.getPayoutId()), ex);
+        }
+    }
+
+    public static Payout deserialize(byte[] snapshot) {
+        try {
+            Payout payout = new Payout();
+            new TDeserializer(new TCompactProtocol.Factory()).deserialize(payout, snapshot);
+            return payout;
+        } catch (TException ex) {
+            throw new IllegalStateException("Failed to deserialize payout snapshot", ex);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.rbkmoney.payout.manager.util;
+
+import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class PayoutValuesUtil {
+
+    public static Map<String, Object> statusValues(Payout payout) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("payout_id", payout.getPayoutId());
+        values.put("sequence_id", payout.getSequenceId());
+        values.put("status", payout.getStatus().getLiteral());
+        values.put("cancel_details", payout.getCancelDetails());
+        return values;
+    }
+
+    public static Map<String, Object> payoutValues(Payout payout) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("payout_id", payout.getPayoutId());
+        values.put("created_at", payout.getCreatedAt().toString());
+        values.put("party_id", payout.getPartyId());
+        values.put("shop_id", payout.getShopId());
+        values.put("status", payout.getStatus().getLiteral());
+        values.put("payout_tool_id", payout.getPayoutToolId());
+        values.put("amount", payout.getAmount());
+        values.put("fee", payout.getFee());
+        values.put("currency_code", payout.getCurrencyCode());
+        values.put("cancel_details", payout.getCancelDetails());
+        return values;
+    }
+
+    public static Map<String, Object> postingValues(CashFlowPosting cashFlowPosting) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("from_account_id", cashFlowPosting.getFromAccountId());
+        values.put("from_account_type", cashFlowPosting.getFromAccountType().getLiteral());
+        values.put("to_account_id", cashFlowPosting.getToAccountId());
+        values.put("to_account_type", cashFlowPosting.getToAccountType().getLiteral());
+        values.put("posting_amount", cashFlowPosting.getAmount());
+        values.put("posting_currency_code", cashFlowPosting.getCurrencyCode());
+        values.put("description", cashFlowPosting.getDescription());
+        return values;
+    }
+}
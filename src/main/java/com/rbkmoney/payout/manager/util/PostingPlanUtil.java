@@ -0,0 +1,83 @@
+package com.rbkmoney.payout.manager.util;
+
+import com.rbkmoney.damsel.shumpune.Clock;
+import com.rbkmoney.damsel.shumpune.Posting;
+import com.rbkmoney.damsel.shumpune.PostingBatch;
+import com.rbkmoney.damsel.shumpune.PostingPlan;
+import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class PostingPlanUtil {
+
+    public static final long POSTING_BATCH_ID = 1L;
+
+    public static String toPlanId(String payoutId) {
+        return "payout_" + payoutId;
+    }
+
+    public static PostingPlan toPostingPlan(String payoutId, List<CashFlowPosting> cashFlowPostings) {
+        return new PostingPlan(toPlanId(payoutId), List.of(toPostingBatch(cashFlowPostings)));
+    }
+
+    public static PostingBatch toPostingBatch(List<CashFlowPosting> cashFlowPostings) {
+        return new PostingBatch(
+                POSTING_BATCH_ID,
+                cashFlowPostings.stream()
+                        .map(PostingPlanUtil::toPosting)
+                        .collect(Collectors.toList()));
+    }
+
+    public static PostingPlan getPostingPlan(Payout payout) {
+        return payout.getPostingPlan() == null ? null : deserialize(new PostingPlan(), payout.getPostingPlan());
+    }
+
+    public static Clock getHoldClock(Payout payout) {
+        return payout.getHoldClock() == null ? null : deserialize(new Clock(), payout.getHoldClock());
+    }
+
+    public static byte[] serialize(TBase<?, ?> value) {
+        try {
+            return new TSerializer(new TCompactProtocol.Factory()).serialize(value);
+        } catch (TException ex) {
+            throw new IllegalStateException(
+                    String.format("Failed to serialize '%s'", value.getClass().getSimpleName()), ex);
+        }
+    }
+
+    private static <T extends TBase<?, ?>> T deserialize(T value, byte[] bytes) {
+        try {
+            new TDeserializer(new TCompactProtocol.Factory()).deserialize(value, bytes);
+            return value;
+        } catch (TException ex) {
+            throw new IllegalStateException(
+                    String.format("Failed to deserialize '%s'", value.getClass().getSimpleName()), ex);
+        }
+    }
+
+    private static Posting toPosting(CashFlowPosting cashFlowPosting) {
+        Posting posting = new Posting();
+        posting.setFromId(cashFlowPosting.getFromAccountId());
+        posting.setToId(cashFlowPosting.getToAccountId());
+        posting.setAmount(cashFlowPosting.getAmount());
+        posting.setCurrencySymCode(cashFlowPosting.getCurrencyCode());
+        posting.setDescription(buildPostingDescription(
+                cashFlowPosting.getPayoutId(),
+                cashFlowPosting.getDescription()));
+        return posting;
+    }
+
+    private static String buildPostingDescription(String payoutId, String description) {
+        if (description == null) {
+            return "PAYOUT-" + payoutId;
+        }
+        return description;
+    }
+}
@@ -0,0 +1,14 @@
+package com.rbkmoney.payout.manager.util;
+
+import javax.servlet.http.HttpServletRequest;
+
+public class ServletUtil {
+
+    public static String getRequiredParameter(HttpServletRequest req, String name) {
+        String value = req.getParameter(name);
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("Parameter is required, name='%s'", name));
+        }
+        return value;
+    }
+}
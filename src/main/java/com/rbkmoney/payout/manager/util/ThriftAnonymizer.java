@@ -0,0 +1,122 @@
+package com.rbkmoney.payout.manager.util;
+
+import com.rbkmoney.payout.manager.PayoutManagementSrv;
+import org.apache.thrift.ProcessFunction;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.TFieldIdEnum;
+import org.apache.thrift.meta_data.FieldMetaData;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.apache.thrift.transport.TMemoryInputTransport;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ThriftAnonymizer {
+
+    private static final Map<String, ProcessFunction> PROCESS_FUNCTIONS =
+            new LinkedHashMap<>(new PayoutManagementSrv.Processor<>(null).getProcessMapView());
+
+    private final byte[] salt;
+    private final Set<String> preservedFields;
+
+    public ThriftAnonymizer(String salt, Collection<String> preservedFields) {
+        this.salt = (salt == null ? "" : salt).getBytes(StandardCharsets.UTF_8);
+        this.preservedFields = Set.copyOf(preservedFields);
+    }
+
+    public static String readMethod(byte[] body) throws TException {
+        return new TBinaryProtocol(new TMemoryInputTransport(body)).readMessageBegin().name;
+    }
+
+    public byte[] anonymize(byte[] body) throws TException {
+        TProtocol input = new TBinaryProtocol(new TMemoryInputTransport(body));
+        TMessage message = input.readMessageBegin();
+        ProcessFunction processFunction = PROCESS_FUNCTIONS.get(message.name);
+        if (processFunction == null) {
+            throw new TException(String.format("Unknown method, method='%s'", message.name));
+        }
+        TBase args = processFunction.getEmptyArgsInstance();
+        args.read(input);
+        input.readMessageEnd();
+        anonymizeStruct(args);
+
+        TMemoryBuffer buffer = new TMemoryBuffer(body.length);
+        TProtocol output = new TBinaryProtocol(buffer);
+        output.writeMessageBegin(message);
+        args.write(output);
+        output.writeMessageEnd();
+        return Arrays.copyOf(buffer.getArray(), buffer.length());
+    }
+
+    private void anonymizeStruct(TBase struct) {
+        Map<? extends TFieldIdEnum, FieldMetaData> metaDataMap = FieldMetaData.getStructMetaDataMap(struct.getClass());
+        for (TFieldIdEnum field : metaDataMap.keySet()) {
+            if (!struct.isSet(field) || preservedFields.contains(field.getFieldName())) {
+                continue;
+            }
+            Object value = struct.getFieldValue(field);
+            Object anonymized = anonymizeValue(value);
+            if (anonymized != value) {
+                struct.setFieldValue(field, anonymized);
+            }
+        }
+    }
+
+    private Object anonymizeValue(Object value) {
+        if (value instanceof String) {
+            return hash((String) value);
+        }
+        if (value instanceof TBase) {
+            anonymizeStruct((TBase) value);
+            return value;
+        }
+        if (value instanceof List) {
+            List<Object> anonymized = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                anonymized.add(anonymizeValue(element));
+            }
+            return anonymized;
+        }
+        if (value instanceof Set) {
+            Set<Object> anonymized = new LinkedHashSet<>();
+            for (Object element : (Set<?>) value) {
+                anonymized.add(anonymizeValue(element));
+            }
+            return anonymized;
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> anonymized = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                anonymized.put(entry.getKey(), anonymizeValue(entry.getValue()));
+            }
+            return anonymized;
+        }
+        return value;
+    }
+
+    private String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+            return "anon-" + String.format("%024x", new BigInteger(1, Arrays.copyOf(hash, 12)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
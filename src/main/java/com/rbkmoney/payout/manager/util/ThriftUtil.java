@@ -24,11 +24,16 @@ public class ThriftUtil {
     public static Event createEvent(
             com.rbkmoney.payout.manager.domain.tables.pojos.Payout payout,
             List<CashFlowPosting> cashFlowPostings) {
+        return createEvent(payout, toThriftPayout(payout, cashFlowPostings));
+    }
+
+    public static Event createEvent(
+            com.rbkmoney.payout.manager.domain.tables.pojos.Payout payout,
+            Payout thriftPayout) {
         Integer sequenceId = payout.getSequenceId();
         PayoutChange payoutChange;
         if (sequenceId == 0) {
-            payoutChange = PayoutChange.created(
-                    new PayoutCreated(toThriftPayout(payout, cashFlowPostings)));
+            payoutChange = PayoutChange.created(new PayoutCreated(thriftPayout));
         } else {
             payoutChange = PayoutChange.status_changed(
                     new PayoutStatusChanged(
@@ -39,7 +44,14 @@ public class ThriftUtil {
                 .setSequenceId(sequenceId)
                 .setCreatedAt(TypeUtil.temporalToString(LocalDateTime.now(ZoneOffset.UTC).toInstant(ZoneOffset.UTC)))
                 .setPayoutChange(payoutChange)
-                .setPayout(toThriftPayout(payout, cashFlowPostings));
+                .setPayout(thriftPayout);
+    }
+
+    public static Event toSlimEvent(Event event) {
+        if (!event.getPayoutChange().isSetStatusChanged()) {
+            return event;
+        }
+        return new Event(event).setPayout(new Payout(event.getPayout()).setCashFlow(List.of()));
     }
 
     public static Payout toThriftPayout(
@@ -81,7 +93,7 @@ public class ThriftUtil {
                 .collect(Collectors.toList());
     }
 
-    private static PayoutStatus toThriftPayoutStatus(
+    public static PayoutStatus toThriftPayoutStatus(
             com.rbkmoney.payout.manager.domain.enums.PayoutStatus payoutStatus,
             String cancelDetails) {
         switch (payoutStatus) {
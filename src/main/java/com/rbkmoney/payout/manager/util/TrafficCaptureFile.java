@@ -0,0 +1,110 @@
+package com.rbkmoney.payout.manager.util;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TrafficCaptureFile {
+
+    private static final int MAGIC = 0x504d4350;
+    private static final int VERSION = 1;
+
+    public static Writer openWriter(Path path) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        return new Writer(output);
+    }
+
+    public static Reader openReader(Path path) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            input.close();
+            throw new IOException(String.format("Unsupported capture file, path='%s'", path));
+        }
+        return new Reader(input);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class CapturedRequest {
+
+        private final long offsetMicros;
+        private final long durationMicros;
+        private final String method;
+        private final Map<String, String> headers;
+        private final byte[] body;
+
+    }
+
+    @RequiredArgsConstructor
+    public static class Writer implements Closeable, Flushable {
+
+        private final DataOutputStream output;
+
+        public void write(CapturedRequest request) throws IOException {
+            output.writeLong(request.getOffsetMicros());
+            output.writeLong(request.getDurationMicros());
+            output.writeUTF(request.getMethod());
+            output.writeShort(request.getHeaders().size());
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                output.writeUTF(header.getKey());
+                output.writeUTF(header.getValue());
+            }
+            output.writeInt(request.getBody().length);
+            output.write(request.getBody());
+        }
+
+        @Override
+        public void flush() throws IOException {
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+
+    @RequiredArgsConstructor
+    public static class Reader implements Closeable {
+
+        private final DataInputStream input;
+
+        public CapturedRequest read() throws IOException {
+            long offsetMicros;
+            try {
+                offsetMicros = input.readLong();
+            } catch (EOFException ex) {
+                return null;
+            }
+            long durationMicros = input.readLong();
+            String method = input.readUTF();
+            int headerCount = input.readUnsignedShort();
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (int i = 0; i < headerCount; i++) {
+                headers.put(input.readUTF(), input.readUTF());
+            }
+            byte[] body = new byte[input.readInt()];
+            input.readFully(body);
+            return new CapturedRequest(offsetMicros, durationMicros, method, headers, body);
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
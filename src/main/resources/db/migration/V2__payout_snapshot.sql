@@ -0,0 +1,2 @@
+alter table pm.payout
+    add column if not exists snapshot bytea;
@@ -0,0 +1,12 @@
+create table if not exists pm.payout_aggregate
+(
+    party_id      varchar          not null,
+    shop_id       varchar          not null,
+    currency_code varchar          not null,
+    status        pm.payout_status not null,
+    day           date             not null,
+    payout_count  bigint           not null,
+    amount        bigint           not null,
+    fee           bigint           not null,
+    constraint payout_aggregate_pkey primary key (party_id, shop_id, currency_code, status, day)
+);
@@ -0,0 +1,19 @@
+create table if not exists pm.payout_schedule
+(
+    id             bigserial                   not null,
+    party_id       varchar                     not null,
+    shop_id        varchar                     not null,
+    cron           varchar                     not null,
+    currency_code  varchar                     not null,
+    amount         bigint,
+    enabled        boolean                     not null default true,
+    next_run_at    timestamp without time zone not null,
+    locked_until   timestamp without time zone,
+    last_run_at    timestamp without time zone,
+    last_payout_id varchar,
+    last_error     varchar,
+    constraint payout_schedule_pkey primary key (id),
+    constraint payout_schedule_shop_ukey unique (party_id, shop_id)
+);
+
+create index if not exists payout_schedule_next_run_at_idx on pm.payout_schedule (next_run_at) where enabled;
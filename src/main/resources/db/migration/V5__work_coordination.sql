@@ -0,0 +1,16 @@
+create table if not exists pm.work_node
+(
+    job          varchar                     not null,
+    node_id      varchar                     not null,
+    heartbeat_at timestamp without time zone not null,
+    constraint work_node_pkey primary key (job, node_id)
+);
+
+create table if not exists pm.work_lease
+(
+    job         varchar                     not null,
+    shard       integer                     not null,
+    owner       varchar                     not null,
+    lease_until timestamp without time zone not null,
+    constraint work_lease_pkey primary key (job, shard)
+);
@@ -0,0 +1,22 @@
+create type pm.compensation_type as enum ('ROLLBACK', 'REVERT');
+
+create type pm.compensation_status as enum ('PENDING', 'SUCCEEDED', 'FAILED');
+
+create table if not exists pm.payout_compensation
+(
+    id              bigserial                   not null,
+    payout_id       varchar                     not null,
+    type            pm.compensation_type        not null,
+    status          pm.compensation_status      not null default 'PENDING',
+    attempts        integer                     not null default 0,
+    created_at      timestamp without time zone not null,
+    next_attempt_at timestamp without time zone not null,
+    locked_until    timestamp without time zone,
+    completed_at    timestamp without time zone,
+    last_error      varchar,
+    constraint payout_compensation_pkey primary key (id),
+    constraint payout_compensation_payout_id_ukey unique (payout_id)
+);
+
+create index if not exists payout_compensation_next_attempt_at_idx
+    on pm.payout_compensation (next_attempt_at) where status = 'PENDING';
@@ -0,0 +1,3 @@
+alter table pm.payout
+    add column if not exists posting_plan bytea,
+    add column if not exists hold_clock bytea;
@@ -0,0 +1,2 @@
+alter table pm.payout_schedule
+    add column if not exists failed_attempts int not null default 0;
@@ -0,0 +1,62 @@
+package com.rbkmoney.payout.manager.dao;
+
+import com.rbkmoney.payout.manager.dao.impl.ConnectionProfiler;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConnectionProfilerTest {
+
+    private static final long PAUSE_MS = 20L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConnectionProfiler connectionProfiler;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        connectionProfiler = new ConnectionProfiler(meterRegistry, true, 1000L);
+    }
+
+    @Test
+    public void shouldAttributeSqlTimeWhenConnectionIsReleasedInsideStatement() throws Exception {
+        connectionProfiler.enter("db.payout.get", false);
+        connectionProfiler.startSql();
+        connectionProfiler.onAcquired(0L);
+        Thread.sleep(PAUSE_MS);
+        connectionProfiler.onReleased();
+        connectionProfiler.endSql();
+        connectionProfiler.exit();
+
+        assertEquals(1L, timer("pm.db.connection.hold.sql", "false").count());
+        assertTrue(timer("pm.db.connection.hold.sql", "false").totalTime(TimeUnit.MILLISECONDS) >= PAUSE_MS);
+    }
+
+    @Test
+    public void shouldSeparateSqlAndOutsideTimeOfTransaction() throws Exception {
+        connectionProfiler.enter("payout.create", true);
+        connectionProfiler.onAcquired(0L);
+        connectionProfiler.startSql();
+        Thread.sleep(PAUSE_MS);
+        connectionProfiler.endSql();
+        Thread.sleep(PAUSE_MS);
+        connectionProfiler.startSql();
+        Thread.sleep(PAUSE_MS);
+        connectionProfiler.endSql();
+        connectionProfiler.onReleased();
+        connectionProfiler.exit();
+
+        assertTrue(timer("pm.db.connection.hold.sql", "true").totalTime(TimeUnit.MILLISECONDS) >= 2 * PAUSE_MS);
+        assertTrue(timer("pm.db.connection.hold.outside_sql", "true").totalTime(TimeUnit.MILLISECONDS) >= PAUSE_MS);
+    }
+
+    private Timer timer(String name, String transactional) {
+        return meterRegistry.get(name).tag("transactional", transactional).timer();
+    }
+}
@@ -0,0 +1,98 @@
+package com.rbkmoney.payout.manager.dao;
+
+import com.rbkmoney.payout.manager.config.PostgresqlSpringBootITest;
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutAggregate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static com.rbkmoney.payout.manager.util.ValuesGenerator.generatePayoutId;
+import static com.rbkmoney.testcontainers.annotations.util.RandomBeans.random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@PostgresqlSpringBootITest
+public class PayoutAggregateDaoTest {
+
+    private static final LocalDate DAY = LocalDate.of(2021, 1, 1);
+
+    @Autowired
+    private PayoutAggregateDao payoutAggregateDao;
+    @Autowired
+    private PayoutDao payoutDao;
+
+    @Test
+    public void shouldAccumulateDeltas() {
+        String partyId = UUID.randomUUID().toString();
+        payoutAggregateDao.add(List.of(delta(partyId, PayoutStatus.UNPAID, 1, 100L, 10L)));
+        payoutAggregateDao.add(List.of(delta(partyId, PayoutStatus.UNPAID, 1, 50L, 5L)));
+        payoutAggregateDao.add(List.of(
+                delta(partyId, PayoutStatus.UNPAID, -1, -100L, -10L),
+                delta(partyId, PayoutStatus.CONFIRMED, 1, 100L, 10L)));
+
+        List<PayoutAggregate> stats = payoutAggregateDao.getStats(partyId, null, DAY, DAY);
+        assertEquals(2, stats.size());
+        assertEquals(PayoutStatus.UNPAID, stats.get(0).getStatus());
+        assertEquals(1L, stats.get(0).getPayoutCount());
+        assertEquals(50L, stats.get(0).getAmount());
+        assertEquals(5L, stats.get(0).getFee());
+        assertEquals(PayoutStatus.CONFIRMED, stats.get(1).getStatus());
+        assertEquals(100L, stats.get(1).getAmount());
+        assertEquals(0, payoutAggregateDao.getStats(partyId, "anotherShopId", DAY, DAY).size());
+        assertEquals(0, payoutAggregateDao.getStats(partyId, null, DAY.plusDays(1), DAY.plusDays(2)).size());
+    }
+
+    @Test
+    public void shouldRebuildShopAggregatesFromPayouts() {
+        String partyId = UUID.randomUUID().toString();
+        savePayout(partyId, PayoutStatus.UNPAID, 100L, 10L);
+        savePayout(partyId, PayoutStatus.UNPAID, 50L, 5L);
+        savePayout(partyId, PayoutStatus.CONFIRMED, 30L, 3L);
+        payoutAggregateDao.add(List.of(delta(partyId, PayoutStatus.CANCELLED, 7, 700L, 70L)));
+
+        assertEquals(2, payoutAggregateDao.rebuild(partyId, "shopId", DAY));
+        assertEquals(1, payoutAggregateDao.getShops(DAY).stream()
+                .filter(shop -> shop.getPartyId().equals(partyId))
+                .count());
+
+        List<PayoutAggregate> stats = payoutAggregateDao.getStats(partyId, null, DAY, DAY);
+        assertEquals(2, stats.size());
+        assertEquals(PayoutStatus.UNPAID, stats.get(0).getStatus());
+        assertEquals(2L, stats.get(0).getPayoutCount());
+        assertEquals(150L, stats.get(0).getAmount());
+        assertEquals(15L, stats.get(0).getFee());
+        assertEquals(PayoutStatus.CONFIRMED, stats.get(1).getStatus());
+        assertEquals(1L, stats.get(1).getPayoutCount());
+        assertEquals(30L, stats.get(1).getAmount());
+    }
+
+    private void savePayout(String partyId, PayoutStatus status, long amount, long fee) {
+        Payout payout = random(Payout.class, "id");
+        payout.setPayoutId(generatePayoutId());
+        payout.setPartyId(partyId);
+        payout.setShopId("shopId");
+        payout.setCurrencyCode("RUB");
+        payout.setStatus(status);
+        payout.setCreatedAt(DAY.atTime(12, 0));
+        payout.setAmount(amount);
+        payout.setFee(fee);
+        payoutDao.save(payout);
+    }
+
+    private PayoutAggregate delta(String partyId, PayoutStatus status, long count, long amount, long fee) {
+        var delta = new PayoutAggregate();
+        delta.setPartyId(partyId);
+        delta.setShopId("shopId");
+        delta.setCurrencyCode("RUB");
+        delta.setStatus(status);
+        delta.setDay(DAY);
+        delta.setPayoutCount(count);
+        delta.setAmount(amount);
+        delta.setFee(fee);
+        return delta;
+    }
+}
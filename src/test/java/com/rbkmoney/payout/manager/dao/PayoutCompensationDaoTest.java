@@ -0,0 +1,69 @@
+package com.rbkmoney.payout.manager.dao;
+
+import com.rbkmoney.payout.manager.config.PostgresqlSpringBootITest;
+import com.rbkmoney.payout.manager.domain.enums.CompensationType;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutCompensation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.rbkmoney.payout.manager.util.ValuesGenerator.generatePayoutId;
+import static org.junit.jupiter.api.Assertions.*;
+
+@PostgresqlSpringBootITest
+public class PayoutCompensationDaoTest {
+
+    @Autowired
+    private PayoutCompensationDao payoutCompensationDao;
+
+    @Test
+    public void shouldEnqueueCompensationOnlyOnce() {
+        String payoutId = generatePayoutId();
+        LocalDateTime now = LocalDateTime.of(2000, 1, 1, 0, 0);
+        assertTrue(payoutCompensationDao.save(payoutId, CompensationType.ROLLBACK, now));
+        assertFalse(payoutCompensationDao.save(payoutId, CompensationType.REVERT, now));
+    }
+
+    @Test
+    public void shouldClaimDueCompensationOnlyOnceAndRetryLater() {
+        String payoutId = generatePayoutId();
+        LocalDateTime now = LocalDateTime.of(2000, 1, 1, 0, 0);
+        payoutCompensationDao.save(payoutId, CompensationType.REVERT, now.minusMinutes(1));
+
+        PayoutCompensation claimed = find(payoutCompensationDao.claimDue(now, now.plusMinutes(10), 100), payoutId);
+        assertNotNull(claimed);
+        assertEquals(1, claimed.getAttempts());
+        assertEquals(CompensationType.REVERT, claimed.getType());
+        assertNull(find(payoutCompensationDao.claimDue(now, now.plusMinutes(10), 100), payoutId));
+
+        payoutCompensationDao.retry(claimed.getId(), now.plusMinutes(5), "error");
+        assertNull(find(payoutCompensationDao.claimDue(now, now.plusMinutes(10), 100), payoutId));
+        claimed = find(payoutCompensationDao.claimDue(now.plusMinutes(5), now.plusMinutes(15), 100), payoutId);
+        assertNotNull(claimed);
+        assertEquals(2, claimed.getAttempts());
+        assertEquals("error", claimed.getLastError());
+
+        payoutCompensationDao.succeed(claimed.getId(), now.plusMinutes(5));
+        assertNull(find(payoutCompensationDao.claimDue(now.plusDays(1), now.plusDays(2), 100), payoutId));
+    }
+
+    @Test
+    public void shouldNotClaimFailedCompensation() {
+        String payoutId = generatePayoutId();
+        LocalDateTime now = LocalDateTime.of(2000, 1, 1, 0, 0);
+        payoutCompensationDao.save(payoutId, CompensationType.ROLLBACK, now);
+        PayoutCompensation claimed = find(payoutCompensationDao.claimDue(now, now.plusMinutes(10), 100), payoutId);
+        assertNotNull(claimed);
+        payoutCompensationDao.fail(claimed.getId(), now, "error");
+        assertNull(find(payoutCompensationDao.claimDue(now.plusDays(1), now.plusDays(2), 100), payoutId));
+    }
+
+    private PayoutCompensation find(List<PayoutCompensation> payoutCompensations, String payoutId) {
+        return payoutCompensations.stream()
+                .filter(payoutCompensation -> payoutId.equals(payoutCompensation.getPayoutId()))
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -1,11 +1,16 @@
 package com.rbkmoney.payout.manager.dao;
 
+import com.rbkmoney.dao.DaoException;
 import com.rbkmoney.payout.manager.config.PostgresqlSpringBootITest;
 import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
 import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.List;
+
 import static com.rbkmoney.payout.manager.util.ValuesGenerator.generatePayoutId;
 import static com.rbkmoney.testcontainers.annotations.util.RandomBeans.random;
 import static org.junit.jupiter.api.Assertions.*;
@@ -15,6 +20,8 @@ public class PayoutDaoTest {
 
     @Autowired
     private PayoutDao payoutDao;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Test
     public void testSaveAndGet() {
@@ -29,6 +36,42 @@ public class PayoutDaoTest {
         assertEquals(second, payoutDao.get(second.getPayoutId()));
     }
 
+    @Test
+    public void shouldGetSummariesAndStatuses() {
+        Payout payout = random(Payout.class, "id");
+        payout.setPayoutId(generatePayoutId());
+        payout.setId(payoutDao.save(payout));
+        List<String> payoutIds = List.of(payout.getPayoutId(), generatePayoutId());
+
+        List<Payout> summaries = payoutDao.getSummaries(payoutIds);
+        assertEquals(1, summaries.size());
+        Payout expected = new Payout(payout);
+        expected.setSnapshot(null);
+        expected.setPostingPlan(null);
+        expected.setHoldClock(null);
+        assertEquals(expected, summaries.get(0));
+
+        List<Payout> statuses = payoutDao.getStatuses(payoutIds);
+        assertEquals(1, statuses.size());
+        assertEquals(payout.getStatus(), statuses.get(0).getStatus());
+        assertEquals(payout.getSequenceId(), statuses.get(0).getSequenceId());
+        assertNull(statuses.get(0).getAmount());
+    }
+
+    @Test
+    public void shouldRecordAffectedRowsOfSingleRowUpdate() {
+        Payout payout = random(Payout.class, "id");
+        payout.setPayoutId(generatePayoutId());
+        payout.setId(payoutDao.save(payout));
+        double rowsBefore = recordedRows("payout.saveHoldClock");
+
+        assertThrows(DaoException.class, () -> payoutDao.saveHoldClock(generatePayoutId(), new byte[]{1}));
+        assertEquals(rowsBefore, recordedRows("payout.saveHoldClock"));
+
+        payoutDao.saveHoldClock(payout.getPayoutId(), new byte[]{1});
+        assertEquals(rowsBefore + 1, recordedRows("payout.saveHoldClock"));
+    }
+
     @Test
     public void shouldSetCancelDetails() {
         Payout payout = random(Payout.class, "id", "cancelDetails");
@@ -58,4 +101,14 @@ public class PayoutDaoTest {
                 payoutDao.get(payout.getPayoutId()).getSequenceId());
 
     }
+
+    @Test
+    public void shouldLockShop() {
+        assertDoesNotThrow(() -> payoutDao.lockShop("partyId", "shopId"));
+    }
+
+    private double recordedRows(String queryName) {
+        DistributionSummary rows = meterRegistry.find("pm.db.query.rows").tag("query", queryName).summary();
+        return rows == null ? 0 : rows.totalAmount();
+    }
 }
@@ -0,0 +1,78 @@
+package com.rbkmoney.payout.manager.dao;
+
+import com.rbkmoney.payout.manager.config.PostgresqlSpringBootITest;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutSchedule;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@PostgresqlSpringBootITest
+public class PayoutScheduleDaoTest {
+
+    @Autowired
+    private PayoutScheduleDao payoutScheduleDao;
+
+    @Test
+    public void shouldClaimDueScheduleOnlyOnce() {
+        LocalDateTime now = LocalDateTime.of(2000, 1, 1, 0, 0);
+        var payoutSchedule = new PayoutSchedule();
+        payoutSchedule.setPartyId(UUID.randomUUID().toString());
+        payoutSchedule.setShopId("shopId");
+        payoutSchedule.setCron("0 0 0 * * ?");
+        payoutSchedule.setCurrencyCode("RUB");
+        payoutSchedule.setEnabled(true);
+        payoutSchedule.setNextRunAt(now.minusMinutes(1));
+        long id = payoutScheduleDao.save(payoutSchedule);
+
+        List<PayoutSchedule> claimed = payoutScheduleDao.claimDue(now, now.plusMinutes(10), 100);
+        assertTrue(claimed.stream().anyMatch(schedule -> schedule.getId() == id));
+        assertTrue(payoutScheduleDao.claimDue(now, now.plusMinutes(10), 100).stream()
+                .noneMatch(schedule -> schedule.getId() == id));
+
+        payoutScheduleDao.complete(id, now, now.plusDays(1), "payoutId");
+        assertTrue(payoutScheduleDao.claimDue(now, now.plusMinutes(10), 100).stream()
+                .noneMatch(schedule -> schedule.getId() == id));
+        assertTrue(payoutScheduleDao.claimDue(now.plusDays(1), now.plusDays(2), 100).stream()
+                .anyMatch(schedule -> schedule.getId() == id));
+    }
+
+    @Test
+    public void shouldRetryFailedScheduleWithSameNextRunAt() {
+        LocalDateTime now = LocalDateTime.of(2000, 1, 1, 0, 0);
+        var payoutSchedule = new PayoutSchedule();
+        payoutSchedule.setPartyId(UUID.randomUUID().toString());
+        payoutSchedule.setShopId("shopId");
+        payoutSchedule.setCron("0 0 0 * * ?");
+        payoutSchedule.setCurrencyCode("RUB");
+        payoutSchedule.setEnabled(true);
+        payoutSchedule.setNextRunAt(now.minusMinutes(1));
+        long id = payoutScheduleDao.save(payoutSchedule);
+
+        payoutScheduleDao.claimDue(now, now.plusMinutes(10), 100);
+        payoutScheduleDao.fail(id, now, now.plusMinutes(1), "error");
+        assertTrue(payoutScheduleDao.claimDue(now.plusSeconds(30), now.plusMinutes(10), 100).stream()
+                .noneMatch(schedule -> schedule.getId() == id));
+
+        PayoutSchedule retried = payoutScheduleDao.claimDue(now.plusMinutes(2), now.plusMinutes(10), 100).stream()
+                .filter(schedule -> schedule.getId() == id)
+                .findFirst()
+                .orElseThrow();
+        assertEquals(now.minusMinutes(1), retried.getNextRunAt());
+        assertEquals(1, retried.getFailedAttempts());
+        assertEquals("error", retried.getLastError());
+
+        payoutScheduleDao.skip(id, now.plusMinutes(2), now.plusDays(1), "error");
+        PayoutSchedule skipped = payoutScheduleDao.claimDue(now.plusDays(1), now.plusDays(2), 100).stream()
+                .filter(schedule -> schedule.getId() == id)
+                .findFirst()
+                .orElseThrow();
+        assertEquals(now.plusDays(1), skipped.getNextRunAt());
+        assertEquals(0, skipped.getFailedAttempts());
+        assertEquals("error", skipped.getLastError());
+    }
+}
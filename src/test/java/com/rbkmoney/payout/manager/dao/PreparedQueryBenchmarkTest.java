@@ -0,0 +1,71 @@
+package com.rbkmoney.payout.manager.dao;
+
+import com.rbkmoney.payout.manager.dao.impl.PreparedQuery;
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.function.Supplier;
+
+import static com.rbkmoney.payout.manager.domain.tables.Payout.PAYOUT;
+import static com.rbkmoney.payout.manager.util.ValuesGenerator.generatePayoutId;
+@Slf4j
+@Tag("benchmark")
+public class PreparedQueryBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    private final DSLContext dslContext = DSL.using(SQLDialect.POSTGRES);
+
+    @Test
+    public void compareCpuOfPreparedQueryAndBuiltDsl() {
+        String payoutId = generatePayoutId();
+        PreparedQuery preparedQuery = PreparedQuery.of("payout.changeStatus", dslContext, dslContext.update(PAYOUT)
+                .set(PAYOUT.STATUS, DSL.param("status", PAYOUT.STATUS))
+                .set(PAYOUT.SEQUENCE_ID, PAYOUT.SEQUENCE_ID.plus(DSL.inline(1)))
+                .set(PAYOUT.CANCEL_DETAILS, DSL.param("cancelDetails", PAYOUT.CANCEL_DETAILS))
+                .where(PAYOUT.PAYOUT_ID.eq(DSL.param("payoutId", PAYOUT.PAYOUT_ID))));
+
+        Supplier<Object> built = () -> {
+            Query query = dslContext.update(PAYOUT)
+                    .set(PAYOUT.STATUS, PayoutStatus.CANCELLED)
+                    .set(PAYOUT.SEQUENCE_ID, PAYOUT.SEQUENCE_ID.plus(1))
+                    .set(PAYOUT.CANCEL_DETAILS, "details")
+                    .where(PAYOUT.PAYOUT_ID.eq(payoutId));
+            return dslContext.renderNamedParams(query) + query.getParams().size();
+        };
+        Supplier<Object> prepared = () -> preparedQuery.getNamedSql() + new MapSqlParameterSource("payoutId", payoutId)
+                .addValue("status", PayoutStatus.CANCELLED.getLiteral())
+                .addValue("cancelDetails", "details")
+                .getParameterNames().length;
+
+        long builtNanos = measureCpuNanos(built);
+        long preparedNanos = measureCpuNanos(prepared);
+        log.info("CPU per request: built DSL {} ns, prepared query {} ns",
+                builtNanos / ITERATIONS, preparedNanos / ITERATIONS);
+    }
+
+    private long measureCpuNanos(Supplier<Object> request) {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        int sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += request.get().hashCode();
+        }
+        long start = threadMXBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += request.get().hashCode();
+        }
+        long cpuNanos = threadMXBean.getCurrentThreadCpuTime() - start;
+        log.debug("Benchmark sink {}", sink);
+        return cpuNanos;
+    }
+}
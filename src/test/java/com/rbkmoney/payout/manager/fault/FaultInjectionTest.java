@@ -0,0 +1,156 @@
+package com.rbkmoney.payout.manager.fault;
+
+import com.rbkmoney.damsel.payment_processing.PartyManagementSrv;
+import com.rbkmoney.damsel.shumpune.AccounterSrv;
+import com.rbkmoney.payout.manager.PayoutManagementSrv;
+import com.rbkmoney.payout.manager.config.PostgresqlSpringBootITest;
+import com.rbkmoney.payout.manager.dao.PayoutDao;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Tag("fault")
+@PostgresqlSpringBootITest
+@TestPropertySource(properties = {
+        "service.shumway.networkTimeout=500",
+        "service.partyManagement.networkTimeout=500",
+        "retry-policy.maxAttempts=5"})
+public class FaultInjectionTest {
+
+    private static final String SHOP_ID = "shopId";
+    private static final long SETTLEMENT_ACCOUNT_ID = 1L;
+    private static final long PAYOUT_ACCOUNT_ID = 2L;
+    private static final long TIMEOUT_MS = 800L;
+
+    private static final StandInLedger LEDGER = new StandInLedger();
+    private static final FaultInjector SHUMWAY_FAULTS = new FaultInjector(42L);
+    private static final FaultInjector PARTY_MANAGEMENT_FAULTS = new FaultInjector(43L);
+    private static final StandInWoodyServer SERVER = startServer();
+
+    @Autowired
+    private PayoutManagementSrv.Iface payoutManagementHandler;
+    @Autowired
+    private PayoutDao payoutDao;
+    @Autowired
+    private HikariDataSource dataSource;
+
+    private FaultScenarioRunner runner;
+
+    @DynamicPropertySource
+    static void standInServices(DynamicPropertyRegistry registry) {
+        registry.add("service.shumway.url", () -> SERVER.getUrl("/shumway"));
+        registry.add("service.partyManagement.url", () -> SERVER.getUrl("/party-management"));
+    }
+
+    @SneakyThrows
+    private static StandInWoodyServer startServer() {
+        LEDGER.deposit(SETTLEMENT_ACCOUNT_ID, Long.MAX_VALUE / 2);
+        return new StandInWoodyServer()
+                .addService(
+                        "/shumway",
+                        AccounterSrv.Iface.class,
+                        SHUMWAY_FAULTS.wrap(AccounterSrv.Iface.class, LEDGER))
+                .addService(
+                        "/party-management",
+                        PartyManagementSrv.Iface.class,
+                        PARTY_MANAGEMENT_FAULTS.wrap(
+                                PartyManagementSrv.Iface.class,
+                                new StandInPartyManagement(SHOP_ID, SETTLEMENT_ACCOUNT_ID, PAYOUT_ACCOUNT_ID)))
+                .start();
+    }
+
+    @AfterAll
+    public static void stopServer() throws Exception {
+        SERVER.close();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        SHUMWAY_FAULTS.reset();
+        PARTY_MANAGEMENT_FAULTS.reset();
+        runner = new FaultScenarioRunner(payoutManagementHandler, payoutDao, dataSource, LEDGER);
+    }
+
+    @Test
+    public void shouldStayConsistentUnderSlowDependencies() throws Exception {
+        FaultProfile slowShumway = FaultProfile.builder()
+                .latencyMs(FaultProfile.uniform(20L, 150L))
+                .build();
+        SHUMWAY_FAULTS.set("hold", slowShumway)
+                .set("commitPlan", slowShumway)
+                .set("rollbackPlan", slowShumway)
+                .set("getBalanceByID", slowShumway);
+        FaultProfile slowHellgate = FaultProfile.builder()
+                .latencyMs(FaultProfile.withTail(10L, 400L, 0.1))
+                .build();
+        PARTY_MANAGEMENT_FAULTS.set("get", slowHellgate)
+                .set("computePayoutCashFlow", slowHellgate);
+
+        ScenarioReport report = runner.run("slow", randomPartyId(), SHOP_ID, 40, 8, 0.3);
+
+        assertEquals(0, report.getFailedCalls(), report.toString());
+        assertTrue(report.getInconsistencies().isEmpty(), report.toString());
+    }
+
+    @Test
+    public void shouldStayConsistentUnderFlappingShumway() throws Exception {
+        FaultProfile flapping = FaultProfile.builder()
+                .unavailableRate(0.3)
+                .latencyMs(FaultProfile.fixed(5L))
+                .build();
+        SHUMWAY_FAULTS.set("hold", flapping)
+                .set("commitPlan", flapping)
+                .set("rollbackPlan", flapping)
+                .set("getBalanceByID", flapping);
+
+        ScenarioReport report = runner.run("flapping", randomPartyId(), SHOP_ID, 40, 8, 0.5);
+
+        assertTrue(SHUMWAY_FAULTS.count("hold", FaultInjector.UNAVAILABLE) > 0);
+        assertTrue(report.getInconsistencies().isEmpty(), report.toString());
+    }
+
+    @Test
+    public void shouldStayConsistentWhenShumwayTimesOutBeforeApplying() throws Exception {
+        SHUMWAY_FAULTS.set("commitPlan", FaultProfile.builder()
+                .timeoutRate(0.5)
+                .timeoutMs(TIMEOUT_MS)
+                .build());
+
+        ScenarioReport report = runner.run("timeout", randomPartyId(), SHOP_ID, 20, 4, 0.0);
+
+        assertTrue(report.getFailedCalls() > 0, report.toString());
+        assertTrue(report.getInconsistencies().isEmpty(), report.toString());
+    }
+
+    // characterizes the current behavior, not a guarantee: a confirm whose commit response is lost
+    // leaves the ledger ahead of the database until it is retried, and the assertions change once it is fixed
+    @Test
+    public void characterizeLedgerAheadOfDatabaseWhenCommitResponseIsLost() throws Exception {
+        SHUMWAY_FAULTS.set("commitPlan", FaultProfile.builder()
+                .partialFailureRate(1.0)
+                .timeoutMs(TIMEOUT_MS)
+                .build());
+
+        ScenarioReport report = runner.run("partial", randomPartyId(), SHOP_ID, 10, 2, 0.0);
+
+        assertEquals(10, report.getCreated(), report.toString());
+        assertEquals(0, report.getConfirmed(), report.toString());
+        assertEquals(10, report.getInconsistencies().size(), report.toString());
+    }
+
+    private String randomPartyId() {
+        return UUID.randomUUID().toString();
+    }
+}
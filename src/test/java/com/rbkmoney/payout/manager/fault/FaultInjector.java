@@ -0,0 +1,104 @@
+package com.rbkmoney.payout.manager.fault;
+
+import com.rbkmoney.woody.api.flow.error.WErrorDefinition;
+import com.rbkmoney.woody.api.flow.error.WErrorSource;
+import com.rbkmoney.woody.api.flow.error.WErrorType;
+import com.rbkmoney.woody.api.flow.error.WUnavailableResultException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class FaultInjector {
+
+    public static final String PASSED = "passed";
+    public static final String UNAVAILABLE = "unavailable";
+    public static final String TIMEOUT = "timeout";
+    public static final String PARTIAL_FAILURE = "partial_failure";
+
+    private final Map<String, FaultProfile> profiles = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final Random random;
+
+    public FaultInjector(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public FaultInjector set(String method, FaultProfile faultProfile) {
+        profiles.put(method, faultProfile);
+        return this;
+    }
+
+    public void reset() {
+        profiles.clear();
+        outcomes.clear();
+    }
+
+    public long count(String method, String outcome) {
+        LongAdder adder = outcomes.get(method + "/" + outcome);
+        return adder == null ? 0L : adder.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T wrap(Class<T> iface, InvocationHandler target) {
+        return (T) Proxy.newProxyInstance(
+                iface.getClassLoader(),
+                new Class<?>[]{iface},
+                (proxy, method, args) -> {
+                    FaultProfile faultProfile = profiles.get(method.getName());
+                    if (faultProfile == null) {
+                        return invoke(target, proxy, method, args);
+                    }
+                    double roll = random.nextDouble();
+                    if (roll < faultProfile.getUnavailableRate()) {
+                        record(method.getName(), UNAVAILABLE);
+                        throw unavailable(method.getName());
+                    }
+                    Thread.sleep(faultProfile.getLatencyMs().applyAsLong(random));
+                    roll -= faultProfile.getUnavailableRate();
+                    if (roll < faultProfile.getTimeoutRate()) {
+                        record(method.getName(), TIMEOUT);
+                        Thread.sleep(faultProfile.getTimeoutMs());
+                        throw unavailable(method.getName());
+                    }
+                    roll -= faultProfile.getTimeoutRate();
+                    Object result = invoke(target, proxy, method, args);
+                    if (roll < faultProfile.getPartialFailureRate()) {
+                        record(method.getName(), PARTIAL_FAILURE);
+                        Thread.sleep(faultProfile.getTimeoutMs());
+                        return result;
+                    }
+                    record(method.getName(), PASSED);
+                    return result;
+                });
+    }
+
+    private Object invoke(
+            InvocationHandler target,
+            Object proxy,
+            Method method,
+            Object[] args) throws Throwable {
+        try {
+            return target.invoke(proxy, method, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private void record(String method, String outcome) {
+        outcomes.computeIfAbsent(method + "/" + outcome, key -> new LongAdder()).increment();
+    }
+
+    private WUnavailableResultException unavailable(String method) {
+        WErrorDefinition errorDefinition = new WErrorDefinition(WErrorSource.INTERNAL);
+        errorDefinition.setErrorType(WErrorType.UNAVAILABLE_RESULT);
+        errorDefinition.setErrorSource(WErrorSource.INTERNAL);
+        errorDefinition.setErrorReason(String.format("Injected fault, method='%s'", method));
+        return new WUnavailableResultException(errorDefinition);
+    }
+}
@@ -0,0 +1,32 @@
+package com.rbkmoney.payout.manager.fault;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Random;
+import java.util.function.ToLongFunction;
+
+@Getter
+@Builder
+public class FaultProfile {
+
+    @Builder.Default
+    private final ToLongFunction<Random> latencyMs = random -> 0L;
+    private final double unavailableRate;
+    private final double timeoutRate;
+    private final double partialFailureRate;
+    @Builder.Default
+    private final long timeoutMs = 1_000L;
+
+    public static ToLongFunction<Random> fixed(long latencyMs) {
+        return random -> latencyMs;
+    }
+
+    public static ToLongFunction<Random> uniform(long minMs, long maxMs) {
+        return random -> minMs + (long) (random.nextDouble() * (maxMs - minMs));
+    }
+
+    public static ToLongFunction<Random> withTail(long baseMs, long tailMs, double tailRate) {
+        return random -> random.nextDouble() < tailRate ? tailMs : baseMs;
+    }
+}
@@ -0,0 +1,165 @@
+package com.rbkmoney.payout.manager.fault;
+
+import com.rbkmoney.damsel.domain.Cash;
+import com.rbkmoney.damsel.domain.CurrencyRef;
+import com.rbkmoney.payout.manager.PayoutManagementSrv;
+import com.rbkmoney.payout.manager.PayoutParams;
+import com.rbkmoney.payout.manager.ShopParams;
+import com.rbkmoney.payout.manager.dao.PayoutDao;
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.util.PostingPlanUtil;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.rbkmoney.payout.manager.fault.StandInLedger.PlanState.COMMITTED;
+import static com.rbkmoney.payout.manager.fault.StandInLedger.PlanState.HELD;
+import static com.rbkmoney.payout.manager.fault.StandInLedger.PlanState.ROLLED_BACK;
+
+@Slf4j
+@RequiredArgsConstructor
+public class FaultScenarioRunner {
+
+    private static final long AMOUNT = 100L;
+    private static final String CURRENCY = "RUB";
+
+    private final PayoutManagementSrv.Iface payoutManagementHandler;
+    private final PayoutDao payoutDao;
+    private final HikariDataSource dataSource;
+    private final StandInLedger ledger;
+
+    public ScenarioReport run(
+            String name,
+            String partyId,
+            String shopId,
+            int payouts,
+            int concurrency,
+            double cancelRate) throws Exception {
+        Random random = new Random(name.hashCode());
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        AtomicInteger failedCalls = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger maxActiveConnections = new AtomicInteger();
+        AtomicInteger maxThreadsAwaitingConnection = new AtomicInteger();
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            maxActiveConnections.accumulateAndGet(pool.getActiveConnections(), Math::max);
+            maxThreadsAwaitingConnection.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max);
+        }, 0, 5, TimeUnit.MILLISECONDS);
+        ExecutorService executorService = Executors.newFixedThreadPool(concurrency);
+        List<String> payoutIds = new ArrayList<>(payouts);
+        long start = System.currentTimeMillis();
+        try {
+            List<Future<?>> futures = new ArrayList<>(payouts);
+            for (int i = 0; i < payouts; i++) {
+                String payoutId = name + "-" + i + "-" + random.nextInt(Integer.MAX_VALUE);
+                boolean cancel = random.nextDouble() < cancelRate;
+                int index = i;
+                payoutIds.add(payoutId);
+                futures.add(executorService.submit(() -> {
+                    PayoutParams payoutParams = new PayoutParams(
+                            new ShopParams(partyId + "-" + index, shopId),
+                            new Cash(AMOUNT, new CurrencyRef(CURRENCY)))
+                            .setPayoutId(payoutId);
+                    calls.incrementAndGet();
+                    try {
+                        payoutManagementHandler.createPayout(payoutParams);
+                        created.incrementAndGet();
+                    } catch (Exception ex) {
+                        log.debug("Create failed under faults, payoutId='{}'", payoutId, ex);
+                        failedCalls.incrementAndGet();
+                        return;
+                    }
+                    calls.incrementAndGet();
+                    try {
+                        if (cancel) {
+                            payoutManagementHandler.cancelPayout(payoutId, "fault injection");
+                            cancelled.incrementAndGet();
+                        } else {
+                            payoutManagementHandler.confirmPayout(payoutId);
+                            confirmed.incrementAndGet();
+                        }
+                    } catch (Exception ex) {
+                        log.debug("Transition failed under faults, payoutId='{}'", payoutId, ex);
+                        failedCalls.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+            sampler.shutdownNow();
+        }
+        long durationMs = Math.max(1L, System.currentTimeMillis() - start);
+
+        ScenarioReport report = ScenarioReport.builder()
+                .name(name)
+                .payouts(payouts)
+                .created(created.get())
+                .confirmed(confirmed.get())
+                .cancelled(cancelled.get())
+                .failedCalls(failedCalls.get())
+                .durationMs(durationMs)
+                .callsPerSecond(calls.get() * 1000.0 / durationMs)
+                .maxActiveConnections(maxActiveConnections.get())
+                .maxThreadsAwaitingConnection(maxThreadsAwaitingConnection.get())
+                .inconsistencies(checkConsistency(payoutIds))
+                .build();
+        log.info("Fault injection scenario finished: {}", report);
+        return report;
+    }
+
+    private List<String> checkConsistency(List<String> payoutIds) {
+        List<String> inconsistencies = new ArrayList<>();
+        for (String payoutId : payoutIds) {
+            Payout payout = payoutDao.get(payoutId);
+            PayoutStatus status = payout == null ? null : payout.getStatus();
+            String planId = PostingPlanUtil.toPlanId(payoutId);
+            StandInLedger.PlanState plan = ledger.getPlanState(planId);
+            StandInLedger.PlanState revert = ledger.getPlanState("revert_" + planId);
+            if (!isConsistent(status, plan, revert)) {
+                inconsistencies.add(String.format("payoutId='%s', status='%s', plan='%s', revert='%s'",
+                        payoutId, status, plan, revert));
+            }
+        }
+        return inconsistencies;
+    }
+
+    private boolean isConsistent(
+            PayoutStatus status,
+            StandInLedger.PlanState plan,
+            StandInLedger.PlanState revert) {
+        if (status == null) {
+            return plan == null || plan == ROLLED_BACK;
+        }
+        switch (status) {
+            case UNPAID:
+            case PAID:
+                return plan == HELD;
+            case CONFIRMED:
+                return plan == COMMITTED && (revert == null || revert == ROLLED_BACK);
+            case CANCELLED:
+                return plan == ROLLED_BACK || (plan == COMMITTED && revert == COMMITTED);
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.rbkmoney.payout.manager.fault;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@Builder
+@ToString
+public class ScenarioReport {
+
+    private final String name;
+    private final int payouts;
+    private final int created;
+    private final int confirmed;
+    private final int cancelled;
+    private final int failedCalls;
+    private final long durationMs;
+    private final double callsPerSecond;
+    private final int maxActiveConnections;
+    private final int maxThreadsAwaitingConnection;
+    private final List<String> inconsistencies;
+
+}
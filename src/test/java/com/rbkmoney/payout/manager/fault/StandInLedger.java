@@ -0,0 +1,129 @@
+package com.rbkmoney.payout.manager.fault;
+
+import com.rbkmoney.damsel.base.InvalidRequest;
+import com.rbkmoney.damsel.shumpune.Balance;
+import com.rbkmoney.damsel.shumpune.Clock;
+import com.rbkmoney.damsel.shumpune.LatestClock;
+import com.rbkmoney.damsel.shumpune.Posting;
+import com.rbkmoney.damsel.shumpune.PostingBatch;
+import com.rbkmoney.damsel.shumpune.PostingPlan;
+import com.rbkmoney.damsel.shumpune.PostingPlanChange;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StandInLedger implements InvocationHandler {
+
+    public enum PlanState {
+        HELD, COMMITTED, ROLLED_BACK
+    }
+
+    private final Map<Long, Long> ownAmounts = new HashMap<>();
+    private final Map<String, PlanState> planStates = new HashMap<>();
+    private final Map<String, List<Posting>> planPostings = new HashMap<>();
+
+    public synchronized void deposit(long accountId, long amount) {
+        ownAmounts.merge(accountId, amount, Long::sum);
+    }
+
+    public synchronized PlanState getPlanState(String planId) {
+        return planStates.get(planId);
+    }
+
+    public synchronized long getOwnAmount(long accountId) {
+        return ownAmounts.getOrDefault(accountId, 0L);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "hold":
+                return hold((PostingPlanChange) args[0]);
+            case "commitPlan":
+                return commitPlan((PostingPlan) args[0]);
+            case "rollbackPlan":
+                return rollbackPlan((PostingPlan) args[0]);
+            case "getBalanceByID":
+                return getBalance((Long) args[0]);
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private synchronized Clock hold(PostingPlanChange postingPlanChange) throws InvalidRequest {
+        PlanState planState = planStates.get(postingPlanChange.getId());
+        if (planState == PlanState.HELD) {
+            return latestClock();
+        }
+        if (planState != null) {
+            throw new InvalidRequest();
+        }
+        planStates.put(postingPlanChange.getId(), PlanState.HELD);
+        planPostings.put(postingPlanChange.getId(), postingPlanChange.getBatch().getPostings());
+        return latestClock();
+    }
+
+    private synchronized Clock commitPlan(PostingPlan postingPlan) throws InvalidRequest {
+        PlanState planState = planStates.get(postingPlan.getId());
+        if (planState == PlanState.COMMITTED && isSameBatch(postingPlan)) {
+            return latestClock();
+        }
+        if (planState != PlanState.HELD) {
+            throw new InvalidRequest();
+        }
+        for (PostingBatch postingBatch : postingPlan.getBatchList()) {
+            for (Posting posting : postingBatch.getPostings()) {
+                ownAmounts.merge(posting.getFromId(), -posting.getAmount(), Long::sum);
+                ownAmounts.merge(posting.getToId(), posting.getAmount(), Long::sum);
+            }
+        }
+        planStates.put(postingPlan.getId(), PlanState.COMMITTED);
+        return latestClock();
+    }
+
+    private boolean isSameBatch(PostingPlan postingPlan) {
+        return postingPlan.getBatchList().size() == 1
+                && postingPlan.getBatchList().get(0).getPostings().equals(planPostings.get(postingPlan.getId()));
+    }
+
+    private synchronized Clock rollbackPlan(PostingPlan postingPlan) throws InvalidRequest {
+        PlanState planState = planStates.get(postingPlan.getId());
+        if (planState == PlanState.ROLLED_BACK) {
+            return latestClock();
+        }
+        if (planState != PlanState.HELD) {
+            throw new InvalidRequest();
+        }
+        planStates.put(postingPlan.getId(), PlanState.ROLLED_BACK);
+        return latestClock();
+    }
+
+    private synchronized Balance getBalance(long accountId) {
+        long ownAmount = ownAmounts.getOrDefault(accountId, 0L);
+        long held = 0L;
+        for (Map.Entry<String, PlanState> entry : planStates.entrySet()) {
+            if (entry.getValue() != PlanState.HELD) {
+                continue;
+            }
+            for (Posting posting : planPostings.get(entry.getKey())) {
+                if (posting.getFromId() == accountId) {
+                    held += posting.getAmount();
+                }
+            }
+        }
+        Balance balance = new Balance();
+        balance.setId(accountId);
+        balance.setOwnAmount(ownAmount);
+        balance.setMinAvailableAmount(ownAmount - held);
+        balance.setMaxAvailableAmount(ownAmount);
+        balance.setClock(latestClock());
+        return balance;
+    }
+
+    private Clock latestClock() {
+        return Clock.latest(new LatestClock());
+    }
+}
@@ -0,0 +1,70 @@
+package com.rbkmoney.payout.manager.fault;
+
+import com.rbkmoney.damsel.domain.*;
+import com.rbkmoney.damsel.payment_processing.PayoutParams;
+import com.rbkmoney.geck.serializer.kit.mock.MockMode;
+import com.rbkmoney.geck.serializer.kit.mock.MockTBaseProcessor;
+import com.rbkmoney.geck.serializer.kit.tbase.TBaseHandler;
+import lombok.SneakyThrows;
+import org.apache.thrift.TBase;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public class StandInPartyManagement implements InvocationHandler {
+
+    private final MockTBaseProcessor mockTBaseProcessor;
+    private final String shopId;
+    private final long settlementAccountId;
+    private final long payoutAccountId;
+
+    public StandInPartyManagement(String shopId, long settlementAccountId, long payoutAccountId) {
+        this.shopId = shopId;
+        this.settlementAccountId = settlementAccountId;
+        this.payoutAccountId = payoutAccountId;
+        this.mockTBaseProcessor = new MockTBaseProcessor(MockMode.ALL, 15, 1);
+        this.mockTBaseProcessor.addFieldHandler(
+                structHandler -> structHandler.value(Instant.now().toString()),
+                "created_at", "at", "due");
+    }
+
+    @Override
+    public synchronized Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "get":
+                return getParty((String) args[1]);
+            case "computePayoutCashFlow":
+                return computePayoutCashFlow((PayoutParams) args[2]);
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private Party getParty(String partyId) {
+        Party party = fillTBaseObject(new Party(), Party.class);
+        party.setId(partyId);
+        Shop shop = fillTBaseObject(new Shop(), Shop.class);
+        shop.setId(shopId);
+        shop.getAccount().setSettlement(settlementAccountId);
+        party.setShops(Map.of(shopId, shop));
+        return party;
+    }
+
+    private List<FinalCashFlowPosting> computePayoutCashFlow(PayoutParams payoutParams) {
+        FinalCashFlowPosting payoutAmount = fillTBaseObject(new FinalCashFlowPosting(), FinalCashFlowPosting.class);
+        payoutAmount.getSource().setAccountType(CashFlowAccount.merchant(MerchantCashFlowAccount.settlement));
+        payoutAmount.getSource().setAccountId(settlementAccountId);
+        payoutAmount.getDestination().setAccountType(CashFlowAccount.merchant(MerchantCashFlowAccount.payout));
+        payoutAmount.getDestination().setAccountId(payoutAccountId);
+        payoutAmount.setVolume(new Cash(payoutParams.getAmount()));
+        return List.of(payoutAmount);
+    }
+
+    @SneakyThrows
+    private <T extends TBase> T fillTBaseObject(T value, Class<T> type) {
+        return mockTBaseProcessor.process(value, new TBaseHandler<>(type));
+    }
+}
@@ -0,0 +1,45 @@
+package com.rbkmoney.payout.manager.fault;
+
+import com.rbkmoney.woody.thrift.impl.http.THServiceBuilder;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class StandInWoodyServer implements AutoCloseable {
+
+    private final Tomcat tomcat = new Tomcat();
+    private final Context context;
+
+    public StandInWoodyServer() throws Exception {
+        Path baseDir = Files.createTempDirectory("stand-in-woody");
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        context = tomcat.addContext("", baseDir.toString());
+    }
+
+    public <T> StandInWoodyServer addService(String path, Class<T> iface, T handler) {
+        String name = iface.getName() + path;
+        Tomcat.addServlet(context, name, new THServiceBuilder().build(iface, handler));
+        context.addServletMappingDecoded(path, name);
+        return this;
+    }
+
+    public StandInWoodyServer start() throws LifecycleException {
+        tomcat.start();
+        return this;
+    }
+
+    public String getUrl(String path) {
+        return "http://localhost:" + tomcat.getConnector().getLocalPort() + path;
+    }
+
+    @Override
+    public void close() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+}
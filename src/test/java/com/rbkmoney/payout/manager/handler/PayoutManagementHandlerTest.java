@@ -7,13 +7,21 @@ import com.rbkmoney.kafka.common.exception.KafkaProduceException;
 import com.rbkmoney.payout.manager.InsufficientFunds;
 import com.rbkmoney.payout.manager.PayoutParams;
 import com.rbkmoney.payout.manager.ShopParams;
+import com.rbkmoney.payout.manager.dao.CashFlowPostingDao;
+import com.rbkmoney.payout.manager.dao.PayoutDao;
 import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
 import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
 import com.rbkmoney.payout.manager.exception.InsufficientFundsException;
 import com.rbkmoney.payout.manager.exception.InvalidRequestException;
+import com.rbkmoney.payout.manager.exception.LockAcquisitionException;
 import com.rbkmoney.payout.manager.service.CashFlowPostingService;
 import com.rbkmoney.payout.manager.service.PayoutKafkaProducerService;
+import com.rbkmoney.payout.manager.service.PayoutManagementService;
+import com.rbkmoney.payout.manager.service.PayoutReadService;
 import com.rbkmoney.payout.manager.service.PayoutService;
+import com.rbkmoney.payout.manager.service.ShopLockService;
+import com.rbkmoney.woody.api.flow.error.WUnavailableResultException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.thrift.TException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,6 +35,10 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.rbkmoney.payout.manager.util.ValuesGenerator.generatePayoutId;
@@ -40,11 +52,15 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
 @ContextConfiguration(
-        classes =
+        classes = {
                 PayoutManagementHandler.class,
+                PayoutManagementService.class,
+                PayoutReadService.class,
+                ShopLockService.class,
+                SimpleMeterRegistry.class},
         initializers = PayoutManagementHandlerTest.Initializer.class
 )
-@TestPropertySource("classpath:application.yml")
+@TestPropertySource(locations = "classpath:application.yml", properties = "shop-lock.timeoutMs=100")
 @DirtiesContext
 public class PayoutManagementHandlerTest {
 
@@ -54,9 +70,15 @@ public class PayoutManagementHandlerTest {
     private CashFlowPostingService cashFlowPostingService;
     @MockBean
     private PayoutKafkaProducerService payoutKafkaProducerService;
+    @MockBean
+    private PayoutDao payoutDao;
+    @MockBean
+    private CashFlowPostingDao cashFlowPostingDao;
 
     @Autowired
     private PayoutManagementHandler payoutManagementHandler;
+    @Autowired
+    private ShopLockService shopLockService;
 
     @Test
     public void shouldCreate() throws TException {
@@ -102,6 +124,46 @@ public class PayoutManagementHandlerTest {
                 () -> payoutManagementHandler.createPayout(payoutParams));
     }
 
+    @Test
+    public void shouldThrowUnavailableAtCreateWhenShopLockIsNotAcquired() {
+        when(payoutService.create(anyString(), anyString(), any(), isNull(), isNull()))
+                .thenThrow(LockAcquisitionException.class);
+        PayoutParams payoutParams = new PayoutParams(
+                new ShopParams("partyId", "shopId"),
+                new Cash(100L,
+                        new CurrencyRef("RUB")));
+        assertThrows(
+                WUnavailableResultException.class,
+                () -> payoutManagementHandler.createPayout(payoutParams));
+    }
+
+    @Test
+    public void shouldThrowUnavailableAtCreateWhenShopLockTimesOut() throws Exception {
+        CountDownLatch lockAcquired = new CountDownLatch(1);
+        CountDownLatch releaseLock = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(() -> shopLockService.executeInLock("partyId", "shopId", () -> {
+                lockAcquired.countDown();
+                await(releaseLock);
+                return null;
+            }));
+            lockAcquired.await(5, TimeUnit.SECONDS);
+            PayoutParams payoutParams = new PayoutParams(
+                    new ShopParams("partyId", "shopId"),
+                    new Cash(100L,
+                            new CurrencyRef("RUB")));
+            assertThrows(
+                    WUnavailableResultException.class,
+                    () -> payoutManagementHandler.createPayout(payoutParams));
+            verify(payoutService, never()).create(anyString(), anyString(), any(), any(), any());
+        } finally {
+            releaseLock.countDown();
+            executorService.shutdown();
+            executorService.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
     @Test
     public void shouldThrowExceptionAtCreateWhenKafkaIssue() {
         String payoutId = generatePayoutId();
@@ -122,6 +184,14 @@ public class PayoutManagementHandlerTest {
                 () -> payoutManagementHandler.createPayout(payoutParams));
     }
 
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public static class Initializer extends ConfigDataApplicationContextInitializer {
 
         @Override
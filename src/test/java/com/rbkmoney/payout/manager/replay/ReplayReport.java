@@ -0,0 +1,78 @@
+package com.rbkmoney.payout.manager.replay;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+public class ReplayReport {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<String, MethodStats> methods = new TreeMap<>();
+
+    public synchronized void record(String method, long latencyNanos, long originalDurationMicros, boolean success) {
+        MethodStats stats = methods.computeIfAbsent(method, key -> new MethodStats());
+        stats.latenciesNanos.add(latencyNanos);
+        stats.originalDurationsNanos.add(TimeUnit.MICROSECONDS.toNanos(originalDurationMicros));
+        if (!success) {
+            stats.errors++;
+        }
+    }
+
+    public synchronized MethodStats get(String method) {
+        return methods.get(method);
+    }
+
+    public synchronized String format() {
+        StringBuilder builder = new StringBuilder(String.format(
+                "%-16s %8s %8s %10s %10s %10s %10s %10s %14s %14s%n",
+                "method", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms",
+                "orig p50 ms", "orig p99 ms"));
+        for (Map.Entry<String, MethodStats> entry : methods.entrySet()) {
+            MethodStats stats = entry.getValue();
+            long[] latencies = stats.sorted(stats.latenciesNanos);
+            long[] original = stats.sorted(stats.originalDurationsNanos);
+            builder.append(String.format("%-16s %8d %8d", entry.getKey(), latencies.length, stats.errors));
+            for (double percentile : PERCENTILES) {
+                builder.append(String.format(" %10.2f", toMillis(percentile(latencies, percentile))));
+            }
+            builder.append(String.format(" %10.2f %14.2f %14.2f%n",
+                    toMillis(latencies[latencies.length - 1]),
+                    toMillis(percentile(original, 0.5)),
+                    toMillis(percentile(original, 0.99))));
+        }
+        return builder.toString();
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.min(Math.max(index, 0), sorted.length - 1)];
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    @Getter
+    public static class MethodStats {
+
+        private final List<Long> latenciesNanos = new ArrayList<>();
+        private final List<Long> originalDurationsNanos = new ArrayList<>();
+        private int errors;
+
+        public int getCount() {
+            return latenciesNanos.size();
+        }
+
+        private long[] sorted(List<Long> values) {
+            long[] sorted = values.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.rbkmoney.payout.manager.replay;
+
+import com.rbkmoney.payout.manager.PayoutManagementSrv;
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.fault.StandInWoodyServer;
+import com.rbkmoney.payout.manager.util.ThriftAnonymizer;
+import com.rbkmoney.payout.manager.util.ThriftUtil;
+import com.rbkmoney.payout.manager.util.TrafficCaptureFile;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.rbkmoney.payout.manager.util.ValuesGenerator.generatePayoutId;
+import static com.rbkmoney.testcontainers.annotations.util.RandomBeans.random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TrafficReplayTest {
+
+    private static final int REQUESTS = 20;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldReplayAnonymizedCapture() throws Exception {
+        String payoutId = generatePayoutId();
+        ThriftAnonymizer thriftAnonymizer = new ThriftAnonymizer("salt", List.of());
+        byte[] anonymized = thriftAnonymizer.anonymize(getPayoutRequest(payoutId));
+        assertArrayEquals(anonymized, thriftAnonymizer.anonymize(getPayoutRequest(payoutId)));
+        assertFalse(new String(anonymized).contains(payoutId));
+        assertEquals("getPayout", ThriftAnonymizer.readMethod(anonymized));
+
+        Path captureFile = tempDir.resolve("capture.bin");
+        try (TrafficCaptureFile.Writer writer = TrafficCaptureFile.openWriter(captureFile)) {
+            for (int i = 0; i < REQUESTS; i++) {
+                writer.write(new TrafficCaptureFile.CapturedRequest(
+                        i * 1_000L, 500L, "getPayout", Map.of(), anonymized));
+            }
+        }
+
+        Payout payout = random(Payout.class);
+        payout.setStatus(PayoutStatus.UNPAID);
+        PayoutManagementSrv.Iface handler = mock(PayoutManagementSrv.Iface.class);
+        when(handler.getPayout(anyString())).thenReturn(ThriftUtil.toThriftPayout(payout, List.of()));
+        try (StandInWoodyServer server = new StandInWoodyServer()
+                .addService("/payout/management", PayoutManagementSrv.Iface.class, handler)
+                .start()) {
+            ReplayReport report = new TrafficReplayer(URI.create(server.getUrl("/payout/management")), 2.0, 4)
+                    .replay(captureFile);
+
+            assertEquals(REQUESTS, report.get("getPayout").getCount(), report.format());
+            assertEquals(0, report.get("getPayout").getErrors(), report.format());
+        }
+        verify(handler, never()).getPayout(eq(payoutId));
+        verify(handler, times(REQUESTS)).getPayout(anyString());
+    }
+
+    private byte[] getPayoutRequest(String payoutId) throws TException {
+        TMemoryBuffer buffer = new TMemoryBuffer(64);
+        TProtocol protocol = new TBinaryProtocol(buffer);
+        protocol.writeMessageBegin(new TMessage("getPayout", TMessageType.CALL, 1));
+        new PayoutManagementSrv.getPayout_args(payoutId).write(protocol);
+        protocol.writeMessageEnd();
+        return Arrays.copyOf(buffer.getArray(), buffer.length());
+    }
+}
@@ -0,0 +1,120 @@
+package com.rbkmoney.payout.manager.replay;
+
+import com.rbkmoney.payout.manager.util.TrafficCaptureFile;
+import com.rbkmoney.payout.manager.util.TrafficCaptureFile.CapturedRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@RequiredArgsConstructor
+public class TrafficReplayer {
+
+    private final URI targetUri;
+    private final double speed;
+    private final int threads;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: TrafficReplayer <capture-file> <target-url> [speed=1.0] [threads=64]");
+            System.exit(1);
+        }
+        TrafficReplayer replayer = new TrafficReplayer(
+                URI.create(args[1]),
+                args.length > 2 ? Double.parseDouble(args[2]) : 1.0,
+                args.length > 3 ? Integer.parseInt(args[3]) : 64);
+        System.out.print(replayer.replay(Path.of(args[0])).format());
+    }
+
+    public ReplayReport replay(Path captureFile) throws IOException, InterruptedException {
+        List<CapturedRequest> requests = read(captureFile);
+        ReplayReport report = new ReplayReport();
+        if (requests.isEmpty()) {
+            return report;
+        }
+        long firstOffsetMicros = requests.get(0).getOffsetMicros();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (CloseableHttpClient httpClient = HttpClients.custom()
+                .setMaxConnTotal(threads)
+                .setMaxConnPerRoute(threads)
+                .build()) {
+            long startedAt = System.nanoTime();
+            for (CapturedRequest request : requests) {
+                long dueAt = startedAt + (long) (TimeUnit.MICROSECONDS.toNanos(
+                        request.getOffsetMicros() - firstOffsetMicros) / speed);
+                long delayNanos = dueAt - System.nanoTime();
+                if (delayNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delayNanos);
+                }
+                executor.execute(() -> {
+                    boolean success = send(httpClient, request);
+                    // measured from the scheduled time, so replayer backlog is not hidden from the latency
+                    report.record(request.getMethod(), System.nanoTime() - dueAt, request.getDurationMicros(), success);
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+        } finally {
+            executor.shutdownNow();
+        }
+        return report;
+    }
+
+    private boolean send(CloseableHttpClient httpClient, CapturedRequest request) {
+        HttpPost post = new HttpPost(targetUri);
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (!isTraceHeader(header.getKey())) {
+                post.setHeader(header.getKey(), header.getValue());
+            }
+        }
+        String traceId = UUID.randomUUID().toString();
+        post.setHeader("woody.trace-id", traceId);
+        post.setHeader("woody.span-id", traceId);
+        post.setHeader("woody.parent-id", "undefined");
+        post.setEntity(new ByteArrayEntity(request.getBody(), ContentType.create("application/x-thrift")));
+        try {
+            HttpResponse response = httpClient.execute(post);
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode() == 200;
+        } catch (IOException ex) {
+            log.warn("Failed to replay request, method='{}'", request.getMethod(), ex);
+            return false;
+        }
+    }
+
+    private boolean isTraceHeader(String name) {
+        String headerName = name.toLowerCase(Locale.ROOT);
+        return headerName.endsWith("trace-id") || headerName.endsWith("span-id") || headerName.endsWith("parent-id");
+    }
+
+    private List<CapturedRequest> read(Path captureFile) throws IOException {
+        List<CapturedRequest> requests = new ArrayList<>();
+        try (TrafficCaptureFile.Reader reader = TrafficCaptureFile.openReader(captureFile)) {
+            CapturedRequest request;
+            while ((request = reader.read()) != null) {
+                requests.add(request);
+            }
+        }
+        requests.sort(Comparator.comparingLong(CapturedRequest::getOffsetMicros));
+        return requests;
+    }
+}
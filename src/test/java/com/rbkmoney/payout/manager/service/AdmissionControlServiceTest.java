@@ -0,0 +1,101 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.config.properties.AdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionControlServiceTest {
+
+    private static final String METHOD = "createPayout";
+
+    private AdmissionProperties admissionProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private AdmissionControlService admissionControlService;
+
+    @BeforeEach
+    public void setUp() {
+        admissionProperties = new AdmissionProperties();
+        admissionProperties.setEnabled(true);
+        admissionProperties.setMaxPartyBuckets(2);
+        admissionProperties.setDefaultPartyLimit(limit(1));
+        admissionProperties.setMethodLimits(Map.of(METHOD, limit(2)));
+        meterRegistry = new SimpleMeterRegistry();
+        admissionControlService = new AdmissionControlService(admissionProperties, meterRegistry);
+    }
+
+    @Test
+    public void shouldAdmitEverythingWhenDisabled() {
+        admissionProperties.setEnabled(false);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(admissionControlService.admit(METHOD, "party"));
+        }
+    }
+
+    @Test
+    public void shouldThrottlePartyOverItsLimit() {
+        assertTrue(admissionControlService.admit(METHOD, "party"));
+        assertFalse(admissionControlService.admit(METHOD, "party"));
+        assertTrue(admissionControlService.admit(METHOD, "other-party"));
+        assertEquals(1.0, meterRegistry.get("pm.admission.requests")
+                .tags("method", METHOD, "result", "throttled").counter().count());
+    }
+
+    @Test
+    public void shouldNotSpendMethodBudgetOnThrottledParty() {
+        assertTrue(admissionControlService.admit(METHOD, "noisy"));
+        for (int i = 0; i < 10; i++) {
+            assertFalse(admissionControlService.admit(METHOD, "noisy"));
+        }
+        assertTrue(admissionControlService.admit(METHOD, "quiet"));
+        assertFalse(admissionControlService.admit(METHOD, "third"));
+    }
+
+    @Test
+    public void shouldRefundPartyTokenWhenMethodLimitIsExhausted() {
+        admissionProperties.setDefaultPartyLimit(limit(2));
+        assertTrue(admissionControlService.admit(METHOD, "first"));
+        assertTrue(admissionControlService.admit(METHOD, "second"));
+        assertFalse(admissionControlService.admit(METHOD, "third"));
+        admissionProperties.setMethodLimits(Map.of());
+        assertTrue(admissionControlService.admit(METHOD, "third"));
+        assertTrue(admissionControlService.admit(METHOD, "third"));
+    }
+
+    @Test
+    public void shouldUsePartySpecificLimit() {
+        admissionProperties.setMethodLimits(Map.of());
+        admissionProperties.setPartyLimits(Map.of("vip", Map.of(METHOD, limit(3))));
+        assertTrue(admissionControlService.admit(METHOD, "vip"));
+        assertTrue(admissionControlService.admit(METHOD, "vip"));
+        assertTrue(admissionControlService.admit(METHOD, "vip"));
+        assertFalse(admissionControlService.admit(METHOD, "vip"));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedPartyBuckets() {
+        admissionProperties.setMethodLimits(Map.of());
+        assertTrue(admissionControlService.admit(METHOD, "first"));
+        assertTrue(admissionControlService.admit(METHOD, "second"));
+        assertFalse(admissionControlService.admit(METHOD, "first"));
+        assertTrue(admissionControlService.admit(METHOD, "third"));
+        assertEquals(2.0, meterRegistry.get("pm.admission.party_buckets").gauge().value());
+        assertEquals(1.0, meterRegistry.get("pm.admission.party_buckets.evicted").counter().count());
+        // "second" was the least recently used bucket and starts again from a full burst
+        assertTrue(admissionControlService.admit(METHOD, "second"));
+        assertFalse(admissionControlService.admit(METHOD, "third"));
+    }
+
+    private static AdmissionProperties.Limit limit(int burst) {
+        AdmissionProperties.Limit limit = new AdmissionProperties.Limit();
+        limit.setRatePerSecond(0.001);
+        limit.setBurst(burst);
+        return limit;
+    }
+}
@@ -0,0 +1,91 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.exception.InsufficientFundsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BalanceLedgerServiceTest {
+
+    private static final String PARTY_ID = "partyId";
+    private static final String SHOP_ID = "shopId";
+
+    private SimpleMeterRegistry meterRegistry;
+    private BalanceLedgerService balanceLedgerService;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        balanceLedgerService = new BalanceLedgerService(meterRegistry);
+        ReflectionTestUtils.setField(balanceLedgerService, "enabled", true);
+        ReflectionTestUtils.setField(balanceLedgerService, "ttlMs", 60_000L);
+    }
+
+    @Test
+    public void shouldPassWhenNothingObserved() {
+        assertDoesNotThrow(() -> balanceLedgerService.reserve(PARTY_ID, SHOP_ID, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldRejectWhenObservedAmountIsNotEnough() {
+        BalanceLedgerService.Reservation reservation = balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 100L);
+        balanceLedgerService.observe(reservation, 50L);
+        balanceLedgerService.complete(reservation);
+        assertThrows(
+                InsufficientFundsException.class,
+                () -> balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 51L));
+        assertDoesNotThrow(() -> balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 50L));
+        assertDoesNotThrow(() -> balanceLedgerService.reserve(PARTY_ID, "anotherShopId", 51L));
+    }
+
+    @Test
+    public void shouldSubtractHoldsStartedAfterObservation() {
+        BalanceLedgerService.Reservation first = balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 10L);
+        balanceLedgerService.observe(first, 100L);
+        balanceLedgerService.complete(first);
+        balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 60L);
+        assertThrows(
+                InsufficientFundsException.class,
+                () -> balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 41L));
+        assertDoesNotThrow(() -> balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 40L));
+    }
+
+    @Test
+    public void shouldNotSubtractHoldsStartedBeforeObservation() {
+        BalanceLedgerService.Reservation first = balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 10L);
+        BalanceLedgerService.Reservation second = balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 60L);
+        balanceLedgerService.observe(first, 100L);
+        balanceLedgerService.complete(first);
+        assertDoesNotThrow(() -> balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 100L));
+        balanceLedgerService.complete(second);
+    }
+
+    @Test
+    public void shouldPassAfterInvalidate() {
+        BalanceLedgerService.Reservation reservation = balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 100L);
+        balanceLedgerService.observe(reservation, 0L);
+        balanceLedgerService.complete(reservation);
+        balanceLedgerService.invalidate(PARTY_ID, SHOP_ID);
+        assertDoesNotThrow(() -> balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 100L));
+    }
+
+    @Test
+    public void shouldEvictExpiredEntriesOnReserve() throws InterruptedException {
+        ReflectionTestUtils.setField(balanceLedgerService, "ttlMs", 50L);
+        BalanceLedgerService.Reservation reservation = balanceLedgerService.reserve(PARTY_ID, SHOP_ID, 100L);
+        balanceLedgerService.observe(reservation, 100L);
+        balanceLedgerService.complete(reservation);
+        assertEquals(1.0, meterRegistry.get("pm.balance_ledger.accounts").gauge().value());
+
+        Thread.sleep(100L);
+        BalanceLedgerService.Reservation another = balanceLedgerService.reserve(PARTY_ID, "anotherShopId", 100L);
+        assertEquals(1.0, meterRegistry.get("pm.balance_ledger.accounts").gauge().value());
+        balanceLedgerService.complete(another);
+        assertEquals(0.0, meterRegistry.get("pm.balance_ledger.accounts").gauge().value());
+    }
+}
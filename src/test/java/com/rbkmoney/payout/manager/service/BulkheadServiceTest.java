@@ -0,0 +1,222 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.config.properties.BulkheadProperties;
+import com.rbkmoney.payout.manager.service.BulkheadService.OperationClass;
+import com.rbkmoney.woody.api.flow.error.WUnavailableResultException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BulkheadServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BulkheadProperties bulkheadProperties;
+    private BulkheadService bulkheadService;
+
+    @BeforeEach
+    public void setUp() {
+        bulkheadProperties = new BulkheadProperties();
+        bulkheadProperties.setEnabled(true);
+        bulkheadProperties.setReads(limit(2, 1));
+        bulkheadProperties.setCreates(limit(1, 1));
+        bulkheadProperties.setTransitions(limit(1, 1));
+        bulkheadProperties.setSchedules(limit(1, 1));
+        bulkheadProperties.setCompensations(limit(1, 1));
+        bulkheadProperties.setBackground(limit(1, 1));
+        meterRegistry = new SimpleMeterRegistry();
+        bulkheadService = new BulkheadService(bulkheadProperties, meterRegistry, 6);
+    }
+
+    @Test
+    public void shouldKeepReadsAvailableWhenCreatesAreSaturated() throws Exception {
+        CountDownLatch createStarted = new CountDownLatch(1);
+        CountDownLatch releaseCreate = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(() -> bulkheadService.execute(OperationClass.CREATES, () -> {
+                createStarted.countDown();
+                await(releaseCreate);
+                return null;
+            }));
+            createStarted.await(5, TimeUnit.SECONDS);
+
+            assertThrows(
+                    WUnavailableResultException.class,
+                    () -> bulkheadService.execute(OperationClass.CREATES, () -> "create"));
+            assertEquals("read", bulkheadService.execute(OperationClass.READS, () -> "read"));
+            assertEquals(1.0, meterRegistry.get("pm.bulkhead.saturation").tag("class", "creates").gauge().value());
+        } finally {
+            releaseCreate.countDown();
+            executorService.shutdown();
+            executorService.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        assertEquals("create", bulkheadService.execute(OperationClass.CREATES, () -> "create"));
+        assertEquals(1.0, meterRegistry.get("pm.bulkhead.calls")
+                .tags("class", "creates", "result", "rejected").counter().count());
+    }
+
+    @Test
+    public void shouldLimitConnectionsPerClass() throws Exception {
+        CountDownLatch connectionAcquired = new CountDownLatch(1);
+        CountDownLatch releaseConnection = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(() -> bulkheadService.execute(OperationClass.READS, () -> {
+                bulkheadService.acquireConnection();
+                try {
+                    connectionAcquired.countDown();
+                    await(releaseConnection);
+                } finally {
+                    bulkheadService.releaseConnection();
+                }
+                return null;
+            }));
+            connectionAcquired.await(5, TimeUnit.SECONDS);
+
+            assertThrows(WUnavailableResultException.class, () -> bulkheadService.execute(OperationClass.READS, () -> {
+                bulkheadService.acquireConnection();
+                return null;
+            }));
+            assertEquals("confirm", bulkheadService.execute(OperationClass.TRANSITIONS, () -> {
+                bulkheadService.acquireConnection();
+                try {
+                    return "confirm";
+                } finally {
+                    bulkheadService.releaseConnection();
+                }
+            }));
+        } finally {
+            releaseConnection.countDown();
+            executorService.shutdown();
+            executorService.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void shouldReuseConnectionPermitForNestedCalls() throws Exception {
+        assertEquals("nested", bulkheadService.execute(OperationClass.TRANSITIONS, () -> {
+            bulkheadService.acquireConnection();
+            try {
+                bulkheadService.acquireConnection();
+                try {
+                    return "nested";
+                } finally {
+                    bulkheadService.releaseConnection();
+                }
+            } finally {
+                bulkheadService.releaseConnection();
+            }
+        }));
+        assertEquals(0.0, meterRegistry.get("pm.bulkhead.connections.active")
+                .tag("class", "transitions").gauge().value());
+    }
+
+    @Test
+    public void shouldLimitConnectionsOutsideHandlerCallsWithBackgroundQuota() throws Exception {
+        CountDownLatch connectionAcquired = new CountDownLatch(1);
+        CountDownLatch releaseConnection = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(() -> {
+                bulkheadService.acquireConnection();
+                try {
+                    connectionAcquired.countDown();
+                    await(releaseConnection);
+                } finally {
+                    bulkheadService.releaseConnection();
+                }
+            });
+            connectionAcquired.await(5, TimeUnit.SECONDS);
+
+            assertThrows(WUnavailableResultException.class, () -> bulkheadService.acquireConnection());
+            assertEquals("read", bulkheadService.execute(OperationClass.READS, () -> {
+                bulkheadService.acquireConnection();
+                try {
+                    return "read";
+                } finally {
+                    bulkheadService.releaseConnection();
+                }
+            }));
+            assertEquals(1.0, meterRegistry.get("pm.bulkhead.connections.active")
+                    .tag("class", "background").gauge().value());
+        } finally {
+            releaseConnection.countDown();
+            executorService.shutdown();
+            executorService.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        bulkheadService.acquireConnection();
+        bulkheadService.releaseConnection();
+        assertEquals(0.0, meterRegistry.get("pm.bulkhead.connections.active")
+                .tag("class", "background").gauge().value());
+    }
+
+    @Test
+    public void shouldKeepWorkerConnectionsOutOfBackgroundQuota() throws Exception {
+        CountDownLatch connectionAcquired = new CountDownLatch(1);
+        CountDownLatch releaseConnection = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(() -> {
+                bulkheadService.acquireConnection();
+                try {
+                    connectionAcquired.countDown();
+                    await(releaseConnection);
+                } finally {
+                    bulkheadService.releaseConnection();
+                }
+            });
+            connectionAcquired.await(5, TimeUnit.SECONDS);
+
+            for (OperationClass operationClass : List.of(OperationClass.SCHEDULES, OperationClass.COMPENSATIONS)) {
+                assertEquals("worker", bulkheadService.execute(operationClass, () -> {
+                    bulkheadService.acquireConnection();
+                    try {
+                        return "worker";
+                    } finally {
+                        bulkheadService.releaseConnection();
+                    }
+                }));
+            }
+            assertEquals(1.0, meterRegistry.get("pm.bulkhead.calls")
+                    .tags("class", "schedules", "result", "admitted").counter().count());
+            assertEquals(1.0, meterRegistry.get("pm.bulkhead.calls")
+                    .tags("class", "compensations", "result", "admitted").counter().count());
+        } finally {
+            releaseConnection.countDown();
+            executorService.shutdown();
+            executorService.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void shouldRejectConnectionQuotasExceedingPool() {
+        assertThrows(
+                IllegalStateException.class,
+                () -> new BulkheadService(bulkheadProperties, new SimpleMeterRegistry(), 5));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BulkheadProperties.Limit limit(int maxConcurrent, int maxConnections) {
+        BulkheadProperties.Limit limit = new BulkheadProperties.Limit();
+        limit.setMaxConcurrent(maxConcurrent);
+        limit.setMaxConnections(maxConnections);
+        limit.setMaxWaitMs(50);
+        return limit;
+    }
+}
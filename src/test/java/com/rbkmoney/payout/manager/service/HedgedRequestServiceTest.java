@@ -0,0 +1,148 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.config.properties.HedgingProperties;
+import com.rbkmoney.payout.manager.config.properties.TracingProperties;
+import com.rbkmoney.payout.manager.tracing.Span;
+import com.rbkmoney.payout.manager.tracing.Tracer;
+import com.rbkmoney.woody.api.trace.TraceData;
+import com.rbkmoney.woody.api.trace.context.TraceContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HedgedRequestServiceTest {
+
+    private static final String OPERATION = "getParty";
+
+    private SimpleMeterRegistry meterRegistry;
+    private HedgingProperties hedgingProperties;
+    private HedgedRequestService hedgedRequestService;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hedgingProperties = new HedgingProperties();
+        hedgingProperties.setEnabled(true);
+        hedgingProperties.setPercentile(0.95);
+        hedgingProperties.setMinDelayMs(10);
+        hedgingProperties.setMaxDelayMs(100);
+        hedgingProperties.setWindowSize(100);
+        hedgingProperties.setMinSamples(10);
+        hedgingProperties.setBudgetRatio(1.0);
+        hedgingProperties.setMaxBudget(10);
+        hedgingProperties.setMaxThreads(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        hedgedRequestService.destroy();
+    }
+
+    @Test
+    public void shouldReturnHedgedAnswerWhenPrimaryIsSlow() throws Exception {
+        hedgedRequestService = new HedgedRequestService(hedgingProperties, meterRegistry);
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        String result = hedgedRequestService.execute(OPERATION, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(2_000L);
+                return "primary";
+            }
+            return "hedge";
+        });
+        assertEquals("hedge", result);
+        assertTrue(System.currentTimeMillis() - start < 1_000L);
+        assertEquals(1.0, count("fired"));
+        assertEquals(1.0, count("won"));
+    }
+
+    @Test
+    public void shouldNotHedgeWhenBudgetIsExhausted() throws Exception {
+        hedgingProperties.setBudgetRatio(0.0);
+        hedgedRequestService = new HedgedRequestService(hedgingProperties, meterRegistry);
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+        String result = hedgedRequestService.execute(OPERATION, () -> {
+            attempts.incrementAndGet();
+            sleep(200L);
+            return "primary";
+        });
+        assertEquals("primary", result);
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, count("fired"));
+        assertEquals(1.0, count("budget_exhausted"));
+    }
+
+    @Test
+    public void shouldCallDirectlyWhenDisabled() throws Exception {
+        hedgingProperties.setEnabled(false);
+        hedgedRequestService = new HedgedRequestService(hedgingProperties, meterRegistry);
+        Thread caller = Thread.currentThread();
+        assertEquals(caller, hedgedRequestService.execute(OPERATION, Thread::currentThread));
+    }
+
+    @Test
+    public void shouldRunAttemptsInCallerContext() throws Exception {
+        hedgedRequestService = new HedgedRequestService(hedgingProperties, meterRegistry);
+        warmUp();
+        TracingProperties tracingProperties = new TracingProperties();
+        tracingProperties.setEnabled(true);
+        tracingProperties.setQueueSize(100);
+        tracingProperties.setBatchSize(10);
+        tracingProperties.setFlushIntervalMs(60_000L);
+        Tracer tracer = new Tracer(tracingProperties, spans -> {
+        }, new SimpleMeterRegistry());
+        TraceData traceData = new TraceData();
+        traceData.getServiceSpan().getSpan().setTraceId("woodyTraceId");
+        traceData.getServiceSpan().getSpan().setId("woodySpanId");
+        TraceContext.setCurrentTraceData(traceData);
+        MDC.put("trace_id", "woodyTraceId");
+        Span span = tracer.startSpan("payout.get");
+        Thread caller = Thread.currentThread();
+        try {
+            List<Object> context = hedgedRequestService.execute(OPERATION, () -> List.<Object>of(
+                    Thread.currentThread() != caller,
+                    TraceContext.getCurrentTraceData().getServiceSpan().getSpan().getTraceId(),
+                    MDC.get("trace_id"),
+                    Tracer.currentSpan().getSpanId()));
+            assertEquals(List.of(true, "woodyTraceId", "woodyTraceId", span.getSpanId()), context);
+            assertEquals(span.getSpanId(), traceData.getServiceSpan().getSpan().getId());
+        } finally {
+            tracer.endSpan(span);
+            tracer.destroy();
+            TraceContext.reset();
+            MDC.clear();
+        }
+    }
+
+    private void warmUp() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            hedgedRequestService.execute(OPERATION, () -> "warm-up");
+        }
+    }
+
+    private double count(String result) {
+        var counter = meterRegistry.find("pm.hedging.hedges")
+                .tag("operation", OPERATION)
+                .tag("result", result)
+                .counter();
+        return counter == null ? 0.0 : counter.count();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
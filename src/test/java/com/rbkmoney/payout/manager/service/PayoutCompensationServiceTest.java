@@ -0,0 +1,173 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.damsel.shumpune.AccounterSrv;
+import com.rbkmoney.damsel.shumpune.Clock;
+import com.rbkmoney.damsel.shumpune.LatestClock;
+import com.rbkmoney.damsel.shumpune.PostingPlan;
+import com.rbkmoney.payout.manager.config.properties.BulkheadProperties;
+import com.rbkmoney.payout.manager.dao.PayoutCompensationDao;
+import com.rbkmoney.payout.manager.dao.PayoutDao;
+import com.rbkmoney.payout.manager.domain.enums.CompensationType;
+import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutCompensation;
+import com.rbkmoney.payout.manager.fault.StandInLedger;
+import com.rbkmoney.payout.manager.util.PostingPlanUtil;
+import com.rbkmoney.woody.api.flow.error.WErrorDefinition;
+import com.rbkmoney.woody.api.flow.error.WErrorSource;
+import com.rbkmoney.woody.api.flow.error.WErrorType;
+import com.rbkmoney.woody.api.flow.error.WUnavailableResultException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.retry.policy.NeverRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.rbkmoney.payout.manager.util.ValuesGenerator.generatePayoutId;
+import static com.rbkmoney.testcontainers.annotations.util.RandomBeans.randomStreamOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class PayoutCompensationServiceTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private PayoutCompensationDao payoutCompensationDao;
+    private PayoutDao payoutDao;
+    private String payoutId;
+    private PostingPlan postingPlan;
+    private PayoutCompensationService payoutCompensationService;
+
+    @BeforeEach
+    public void setUp() {
+        payoutCompensationDao = mock(PayoutCompensationDao.class);
+        payoutDao = mock(PayoutDao.class);
+        payoutId = generatePayoutId();
+        List<CashFlowPosting> cashFlowPostings = randomStreamOf(2, CashFlowPosting.class, "id")
+                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
+                .collect(Collectors.toList());
+        postingPlan = PostingPlanUtil.toPostingPlan(payoutId, cashFlowPostings);
+        Payout payout = new Payout();
+        payout.setPayoutId(payoutId);
+        payout.setPostingPlan(PostingPlanUtil.serialize(postingPlan));
+        when(payoutDao.get(payoutId)).thenReturn(payout);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (payoutCompensationService != null) {
+            payoutCompensationService.destroy();
+        }
+    }
+
+    @Test
+    public void shouldSucceedWhenLedgerAcceptsCompensation() throws Exception {
+        AccounterSrv.Iface shumwayClient = mock(AccounterSrv.Iface.class);
+        when(shumwayClient.rollbackPlan(any())).thenReturn(Clock.latest(new LatestClock()));
+        createService(shumwayClient);
+
+        process(compensation(CompensationType.ROLLBACK, 1));
+
+        verify(shumwayClient).rollbackPlan(eq(postingPlan));
+        verify(payoutCompensationDao).succeed(eq(1L), any());
+        verify(payoutCompensationDao, never()).retry(anyLong(), any(), anyString());
+    }
+
+    @Test
+    public void shouldRetryWhenLedgerIsUnavailable() throws Exception {
+        AccounterSrv.Iface shumwayClient = mock(AccounterSrv.Iface.class);
+        when(shumwayClient.rollbackPlan(any())).thenThrow(unavailable());
+        createService(shumwayClient);
+
+        process(compensation(CompensationType.ROLLBACK, 1));
+
+        verify(payoutCompensationDao).retry(eq(1L), any(), anyString());
+        verify(payoutCompensationDao, never()).succeed(anyLong(), any());
+        verify(payoutCompensationDao, never()).fail(anyLong(), any(), anyString());
+    }
+
+    @Test
+    public void shouldFailWhenAttemptsAreExhausted() throws Exception {
+        AccounterSrv.Iface shumwayClient = mock(AccounterSrv.Iface.class);
+        when(shumwayClient.rollbackPlan(any())).thenThrow(unavailable());
+        createService(shumwayClient);
+
+        process(compensation(CompensationType.ROLLBACK, MAX_ATTEMPTS));
+
+        verify(payoutCompensationDao).fail(eq(1L), any(), anyString());
+        verify(payoutCompensationDao, never()).retry(anyLong(), any(), anyString());
+    }
+
+    @Test
+    public void shouldSucceedWhenRevertIsReExecutedAfterLostCommitResponse() throws Exception {
+        StandInLedger ledger = new StandInLedger();
+        AtomicInteger lostCommitResponses = new AtomicInteger(1);
+        AccounterSrv.Iface shumwayClient = (AccounterSrv.Iface) Proxy.newProxyInstance(
+                AccounterSrv.Iface.class.getClassLoader(),
+                new Class<?>[]{AccounterSrv.Iface.class},
+                (proxy, method, args) -> {
+                    Object result = ledger.invoke(proxy, method, args);
+                    if ("commitPlan".equals(method.getName()) && lostCommitResponses.getAndDecrement() > 0) {
+                        throw unavailable();
+                    }
+                    return result;
+                });
+        createService(shumwayClient);
+        String revertPlanId = "revert_" + PostingPlanUtil.toPlanId(payoutId);
+
+        process(compensation(CompensationType.REVERT, 1));
+        verify(payoutCompensationDao).retry(eq(1L), any(), anyString());
+        assertEquals(StandInLedger.PlanState.COMMITTED, ledger.getPlanState(revertPlanId));
+
+        process(compensation(CompensationType.REVERT, 2));
+        verify(payoutCompensationDao).succeed(eq(1L), any());
+        verify(payoutCompensationDao, never()).fail(anyLong(), any(), anyString());
+        assertEquals(StandInLedger.PlanState.COMMITTED, ledger.getPlanState(revertPlanId));
+    }
+
+    private void createService(AccounterSrv.Iface shumwayClient) {
+        RetryTemplate retryTemplate = new RetryTemplate();
+        retryTemplate.setRetryPolicy(new NeverRetryPolicy());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ShumwayService shumwayService = new ShumwayService(
+                shumwayClient, retryTemplate, mock(CashFlowPostingService.class));
+        payoutCompensationService = new PayoutCompensationService(
+                payoutCompensationDao, payoutDao, shumwayService,
+                new BulkheadService(new BulkheadProperties(), meterRegistry, 10), meterRegistry,
+                true, 1, 10, MAX_ATTEMPTS, 60_000L, 1_000L, 60_000L, 60_000L);
+    }
+
+    private void process(PayoutCompensation payoutCompensation) throws InterruptedException {
+        when(payoutCompensationDao.claimDue(any(), any(), anyInt())).thenReturn(List.of(payoutCompensation), List.of());
+        payoutCompensationService.processDue();
+    }
+
+    private PayoutCompensation compensation(CompensationType type, int attempts) {
+        PayoutCompensation payoutCompensation = new PayoutCompensation();
+        payoutCompensation.setId(1L);
+        payoutCompensation.setPayoutId(payoutId);
+        payoutCompensation.setType(type);
+        payoutCompensation.setAttempts(attempts);
+        payoutCompensation.setCreatedAt(LocalDateTime.now(ZoneOffset.UTC));
+        return payoutCompensation;
+    }
+
+    private WUnavailableResultException unavailable() {
+        WErrorDefinition errorDefinition = new WErrorDefinition(WErrorSource.INTERNAL);
+        errorDefinition.setErrorType(WErrorType.UNAVAILABLE_RESULT);
+        errorDefinition.setErrorReason("Lost response");
+        return new WUnavailableResultException(errorDefinition);
+    }
+}
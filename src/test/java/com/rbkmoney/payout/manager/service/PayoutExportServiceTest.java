@@ -0,0 +1,123 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.dao.DaoException;
+import com.rbkmoney.payout.manager.dao.PayoutExportDao;
+import com.rbkmoney.payout.manager.dao.PayoutExportFilter;
+import com.rbkmoney.payout.manager.domain.enums.AccountType;
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.exception.StorageException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class PayoutExportServiceTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2021, 1, 1, 0, 0);
+
+    private PayoutExportDao payoutExportDao;
+    private PayoutExportService payoutExportService;
+
+    @BeforeEach
+    public void setUp() {
+        payoutExportDao = mock(PayoutExportDao.class);
+        doAnswer(invocation -> {
+            BiConsumer<Payout, CashFlowPosting> rowHandler = invocation.getArgument(1);
+            Payout first = payout("first", "shop, \"main\"");
+            rowHandler.accept(first, posting("first", 10L));
+            rowHandler.accept(first, posting("first", 20L));
+            rowHandler.accept(payout("second", "shop"), null);
+            return null;
+        }).when(payoutExportDao).export(any(), any());
+        payoutExportService = new PayoutExportService(payoutExportDao, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void shouldExportCsvRowPerPosting() throws Exception {
+        StringWriter writer = new StringWriter();
+        payoutExportService.export(filter(), PayoutExportService.Format.CSV, writer);
+        String[] lines = writer.toString().split("\n");
+        assertEquals(5, lines.length);
+        assertEquals("first,2021-01-01T00:00,partyId,\"shop, \"\"main\"\"\",UNPAID,toolId,100,1,RUB,," +
+                "1,MERCHANT_SETTLEMENT,2,MERCHANT_PAYOUT,10,RUB,", lines[1]);
+        assertEquals("second,2021-01-01T00:00,partyId,shop,UNPAID,toolId,100,1,RUB,,,,,,,,", lines[3]);
+        assertEquals("#export_status=complete,rows=3", lines[4]);
+    }
+
+    @Test
+    public void shouldExportJsonLinePerPayout() throws Exception {
+        StringWriter writer = new StringWriter();
+        payoutExportService.export(filter(), PayoutExportService.Format.JSONL, writer);
+        String[] lines = writer.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals(2, lines[0].split("\"posting_amount\"").length - 1);
+        assertEquals(-1, lines[1].indexOf("postings"));
+        assertEquals("{\"export_status\":\"complete\",\"rows\":2}", lines[2]);
+    }
+
+    @Test
+    public void shouldEndWithFailedTrailerWhenExportBreaksMidStream() {
+        doAnswer(invocation -> {
+            BiConsumer<Payout, CashFlowPosting> rowHandler = invocation.getArgument(1);
+            rowHandler.accept(payout("first", "shop"), posting("first", 10L));
+            rowHandler.accept(payout("second", "shop"), posting("second", 20L));
+            throw new DaoException("connection reset", new SQLException("connection reset"));
+        }).when(payoutExportDao).export(any(), any());
+        StringWriter writer = new StringWriter();
+
+        assertThrows(StorageException.class,
+                () -> payoutExportService.export(filter(), PayoutExportService.Format.JSONL, writer));
+        String[] lines = writer.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"payout_id\":\"first\""));
+        assertEquals("{\"export_status\":\"failed\",\"rows\":1}", lines[1]);
+    }
+
+    private PayoutExportFilter filter() {
+        return PayoutExportFilter.builder()
+                .fromTime(CREATED_AT)
+                .toTime(CREATED_AT.plusDays(1))
+                .withPostings(true)
+                .build();
+    }
+
+    private Payout payout(String payoutId, String shopId) {
+        var payout = new Payout();
+        payout.setPayoutId(payoutId);
+        payout.setCreatedAt(CREATED_AT);
+        payout.setPartyId("partyId");
+        payout.setShopId(shopId);
+        payout.setStatus(PayoutStatus.UNPAID);
+        payout.setPayoutToolId("toolId");
+        payout.setAmount(100L);
+        payout.setFee(1L);
+        payout.setCurrencyCode("RUB");
+        return payout;
+    }
+
+    private CashFlowPosting posting(String payoutId, long amount) {
+        var cashFlowPosting = new CashFlowPosting();
+        cashFlowPosting.setPayoutId(payoutId);
+        cashFlowPosting.setFromAccountId(1L);
+        cashFlowPosting.setFromAccountType(AccountType.MERCHANT_SETTLEMENT);
+        cashFlowPosting.setToAccountId(2L);
+        cashFlowPosting.setToAccountType(AccountType.MERCHANT_PAYOUT);
+        cashFlowPosting.setAmount(amount);
+        cashFlowPosting.setCurrencyCode("RUB");
+        return cashFlowPosting;
+    }
+}
@@ -0,0 +1,110 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.Event;
+import com.rbkmoney.payout.manager.config.properties.KafkaProducerProperties;
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.util.ThriftUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.rnorth.ducttape.unreliables.Unreliables;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.rbkmoney.payout.manager.util.ValuesGenerator.generatePayoutId;
+import static com.rbkmoney.testcontainers.annotations.util.RandomBeans.random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class PayoutKafkaProducerServiceRedeliveryTest {
+
+    private KafkaTemplate<String, Event> kafkaTemplate;
+    private PayoutKafkaProducerService payoutKafkaProducerService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        KafkaProducerProperties kafkaProducerProperties = new KafkaProducerProperties();
+        kafkaProducerProperties.getAsync().setEnabled(true);
+        kafkaProducerProperties.getAsync().setMaxInFlightEvents(10);
+        kafkaProducerProperties.getAsync().setMaxBlockMs(1000);
+        kafkaProducerProperties.getAsync().setRetryIntervalMs(50);
+        payoutKafkaProducerService = new PayoutKafkaProducerService(
+                kafkaTemplate,
+                mock(PayoutSnapshotKafkaProducerService.class),
+                kafkaProducerProperties,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(payoutKafkaProducerService, "topicName", "pm-events-payout");
+        ReflectionTestUtils.setField(payoutKafkaProducerService, "producerEnabled", true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        payoutKafkaProducerService.destroy();
+    }
+
+    @Test
+    public void shouldRedeliverFailedEventInBackground() {
+        Payout payout = payout();
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(failed(), succeeded());
+
+        payoutKafkaProducerService.send(ThriftUtil.createEvent(payout, List.of()));
+
+        Unreliables.retryUntilTrue(5, TimeUnit.SECONDS, () -> sentSequenceIds().size() == 2);
+        assertEquals(List.of(0, 0), sentSequenceIds());
+    }
+
+    @Test
+    public void shouldSendTerminalEventSynchronouslyAfterFailedPredecessor() {
+        Payout payout = payout();
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(failed(), succeeded(), succeeded());
+
+        payoutKafkaProducerService.send(ThriftUtil.createEvent(payout, List.of()));
+        payout.setSequenceId(1);
+        payout.setStatus(PayoutStatus.CONFIRMED);
+        payoutKafkaProducerService.send(ThriftUtil.createEvent(payout, List.of()));
+
+        assertEquals(List.of(0, 0, 1), sentSequenceIds());
+    }
+
+    private Payout payout() {
+        Payout payout = random(Payout.class);
+        payout.setPayoutId(generatePayoutId());
+        payout.setSequenceId(0);
+        payout.setStatus(PayoutStatus.UNPAID);
+        return payout;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Integer> sentSequenceIds() {
+        ArgumentCaptor<ProducerRecord<String, Event>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, atLeast(0)).send(captor.capture());
+        return captor.getAllValues().stream()
+                .map(record -> record.value().getSequenceId())
+                .collect(Collectors.toList());
+    }
+
+    private SettableListenableFuture<SendResult<String, Event>> failed() {
+        SettableListenableFuture<SendResult<String, Event>> future = new SettableListenableFuture<>();
+        future.setException(new IllegalStateException("broker is not available"));
+        return future;
+    }
+
+    private SettableListenableFuture<SendResult<String, Event>> succeeded() {
+        SettableListenableFuture<SendResult<String, Event>> future = new SettableListenableFuture<>();
+        future.set(null);
+        return future;
+    }
+}
@@ -0,0 +1,82 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.Event;
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.util.ThriftUtil;
+import com.rbkmoney.testcontainers.annotations.KafkaSpringBootTest;
+import com.rbkmoney.testcontainers.annotations.kafka.KafkaTestcontainer;
+import com.rbkmoney.testcontainers.annotations.kafka.config.KafkaConsumer;
+import com.rbkmoney.testcontainers.annotations.postgresql.PostgresqlTestcontainerSingleton;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.rnorth.ducttape.unreliables.Unreliables;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.rbkmoney.payout.manager.util.ValuesGenerator.generatePayoutId;
+import static com.rbkmoney.testcontainers.annotations.util.RandomBeans.random;
+import static com.rbkmoney.testcontainers.annotations.util.RandomBeans.randomStreamOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@PostgresqlTestcontainerSingleton
+@KafkaTestcontainer(
+        properties = {
+                "kafka.topic.pm-events-payout.produce.enabled=true",
+                "kafka.topic.pm-events-payout.produce.slim-status-changes=true"},
+        topicsKeys = "kafka.topic.pm-events-payout.name")
+@KafkaSpringBootTest
+public class PayoutKafkaProducerServiceSlimTest {
+
+    private static final int TIMEOUT = 5;
+
+    @Value("${kafka.topic.pm-events-payout.name}")
+    private String topicName;
+
+    @Autowired
+    private PayoutKafkaProducerService payoutKafkaProducerService;
+
+    @Autowired
+    private KafkaConsumer<Event> testPayoutEventKafkaConsumer;
+
+    @Test
+    public void shouldTrimCashFlowOnlyForStatusChanges() {
+        String payoutId = generatePayoutId();
+        Payout payout = random(Payout.class);
+        payout.setPayoutId(payoutId);
+        payout.setStatus(PayoutStatus.UNPAID);
+        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class)
+                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
+                .collect(Collectors.toList());
+        payout.setSequenceId(0);
+        payoutKafkaProducerService.send(ThriftUtil.createEvent(payout, cashFlowPostings));
+        payout.setSequenceId(1);
+        payout.setStatus(PayoutStatus.CONFIRMED);
+        payoutKafkaProducerService.send(ThriftUtil.createEvent(payout, cashFlowPostings));
+
+        List<ConsumerRecord<?, Event>> records = new CopyOnWriteArrayList<>();
+        testPayoutEventKafkaConsumer.read(topicName, data -> {
+            if (payoutId.equals(data.value().getPayoutId())) {
+                records.add(data);
+            }
+        });
+        Unreliables.retryUntilTrue(TIMEOUT, TimeUnit.SECONDS, () -> records.size() == 2);
+
+        Event created = records.get(0).value();
+        assertEquals(cashFlowPostings.size(), created.getPayout().getCashFlowSize());
+        assertNull(records.get(0).headers().lastHeader(PayoutKafkaProducerService.EVENT_MODE_HEADER));
+
+        Event statusChanged = records.get(1).value();
+        assertEquals(0, statusChanged.getPayout().getCashFlowSize());
+        assertEquals(payout.getAmount(), statusChanged.getPayout().getAmount());
+        assertNotNull(records.get(1).headers().lastHeader(PayoutKafkaProducerService.EVENT_MODE_HEADER));
+    }
+}
@@ -0,0 +1,254 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.dao.CashFlowPostingDao;
+import com.rbkmoney.payout.manager.dao.PayoutDao;
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
+import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
+import com.rbkmoney.payout.manager.exception.NotFoundException;
+import com.rbkmoney.payout.manager.util.PayoutSnapshotUtil;
+import com.rbkmoney.payout.manager.util.ThriftUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static com.rbkmoney.payout.manager.util.ValuesGenerator.generatePayoutId;
+import static com.rbkmoney.testcontainers.annotations.util.RandomBeans.random;
+import static com.rbkmoney.testcontainers.annotations.util.RandomBeans.randomStreamOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class PayoutReadServiceTest {
+
+    private PayoutService payoutService;
+    private CashFlowPostingService cashFlowPostingService;
+    private PayoutDao payoutDao;
+    private CashFlowPostingDao cashFlowPostingDao;
+    private PayoutReadService payoutReadService;
+
+    @BeforeEach
+    public void setUp() {
+        payoutService = mock(PayoutService.class);
+        cashFlowPostingService = mock(CashFlowPostingService.class);
+        payoutDao = mock(PayoutDao.class);
+        cashFlowPostingDao = mock(CashFlowPostingDao.class);
+        payoutReadService = new PayoutReadService(
+                payoutService, cashFlowPostingService, payoutDao, cashFlowPostingDao, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(payoutReadService, "coalescingEnabled", true);
+    }
+
+    @Test
+    public void shouldCoalesceConcurrentReads() throws Exception {
+        String payoutId = generatePayoutId();
+        Payout payout = random(Payout.class);
+        payout.setPayoutId(payoutId);
+        payout.setStatus(PayoutStatus.UNPAID);
+        payout.setSnapshot(null);
+        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
+                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
+                .collect(Collectors.toList());
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        when(payoutService.get(eq(payoutId))).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            releaseLoad.await(5, TimeUnit.SECONDS);
+            return payout;
+        });
+        when(cashFlowPostingService.getCashFlowPostings(eq(payoutId))).thenReturn(cashFlowPostings);
+
+        int readers = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<com.rbkmoney.payout.manager.Payout>> futures = new ArrayList<>();
+            futures.add(executorService.submit(() -> payoutReadService.get(payoutId)));
+            loadStarted.await(5, TimeUnit.SECONDS);
+            for (int i = 1; i < readers; i++) {
+                futures.add(executorService.submit(() -> payoutReadService.get(payoutId)));
+            }
+            Thread.sleep(100);
+            releaseLoad.countDown();
+            for (Future<com.rbkmoney.payout.manager.Payout> future : futures) {
+                assertEquals(payoutId, future.get(5, TimeUnit.SECONDS).getPayoutId());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        // readers that arrived after the first load started share one follow-up load
+        verify(payoutService, times(2)).get(eq(payoutId));
+        verify(cashFlowPostingService, times(2)).getCashFlowPostings(eq(payoutId));
+    }
+
+    @Test
+    public void shouldNotJoinLoadStartedBeforeStatusChange() throws Exception {
+        String payoutId = generatePayoutId();
+        Payout unpaid = random(Payout.class);
+        unpaid.setPayoutId(payoutId);
+        unpaid.setStatus(PayoutStatus.UNPAID);
+        unpaid.setSnapshot(null);
+        Payout confirmed = new Payout(unpaid);
+        confirmed.setStatus(PayoutStatus.CONFIRMED);
+        AtomicReference<Payout> committed = new AtomicReference<>(unpaid);
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        when(payoutService.get(eq(payoutId))).thenAnswer(invocation -> {
+            Payout payout = committed.get();
+            if (loads.getAndIncrement() == 0) {
+                loadStarted.countDown();
+                releaseLoad.await(5, TimeUnit.SECONDS);
+            }
+            return payout;
+        });
+        when(cashFlowPostingService.getCashFlowPostings(eq(payoutId))).thenReturn(List.of());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<com.rbkmoney.payout.manager.Payout> staleRead =
+                    executorService.submit(() -> payoutReadService.get(payoutId));
+            loadStarted.await(5, TimeUnit.SECONDS);
+            committed.set(confirmed);
+            Future<com.rbkmoney.payout.manager.Payout> freshRead =
+                    executorService.submit(() -> payoutReadService.get(payoutId));
+            Thread.sleep(100);
+            releaseLoad.countDown();
+            assertTrue(staleRead.get(5, TimeUnit.SECONDS).getStatus().isSetUnpaid());
+            assertTrue(freshRead.get(5, TimeUnit.SECONDS).getStatus().isSetConfirmed());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldReadFromSnapshot() {
+        String payoutId = generatePayoutId();
+        Payout payout = random(Payout.class);
+        payout.setPayoutId(payoutId);
+        payout.setStatus(PayoutStatus.UNPAID);
+        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
+                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
+                .collect(Collectors.toList());
+        com.rbkmoney.payout.manager.Payout expected = ThriftUtil.toThriftPayout(payout, cashFlowPostings);
+        payout.setSnapshot(PayoutSnapshotUtil.serialize(expected));
+        when(payoutService.get(eq(payoutId))).thenReturn(payout);
+        assertEquals(expected, payoutReadService.get(payoutId));
+        verify(cashFlowPostingService, never()).getCashFlowPostings(anyString());
+    }
+
+    @Test
+    public void shouldFallBackToCashFlowPostingsWhenSnapshotIsBroken() {
+        String payoutId = generatePayoutId();
+        Payout payout = random(Payout.class);
+        payout.setPayoutId(payoutId);
+        payout.setStatus(PayoutStatus.UNPAID);
+        payout.setSnapshot(new byte[]{1, 2, 3});
+        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
+                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
+                .collect(Collectors.toList());
+        when(payoutService.get(eq(payoutId))).thenReturn(payout);
+        when(cashFlowPostingService.getCashFlowPostings(eq(payoutId))).thenReturn(cashFlowPostings);
+        assertEquals(ThriftUtil.toThriftPayout(payout, cashFlowPostings), payoutReadService.get(payoutId));
+    }
+
+    @Test
+    public void shouldNotCacheFailedRead() {
+        String payoutId = generatePayoutId();
+        when(payoutService.get(eq(payoutId))).thenThrow(NotFoundException.class);
+        assertThrows(NotFoundException.class, () -> payoutReadService.get(payoutId));
+        assertThrows(NotFoundException.class, () -> payoutReadService.get(payoutId));
+        verify(payoutService, times(2)).get(eq(payoutId));
+    }
+
+    @Test
+    public void shouldGetPayoutsInBulkWithOneCashFlowQuery() {
+        String firstPayoutId = generatePayoutId();
+        String missingPayoutId = generatePayoutId();
+        String secondPayoutId = generatePayoutId();
+        Payout first = random(Payout.class);
+        first.setPayoutId(firstPayoutId);
+        Payout second = random(Payout.class);
+        second.setPayoutId(secondPayoutId);
+        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
+                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(firstPayoutId))
+                .collect(Collectors.toList());
+        when(payoutDao.getSummaries(anyCollection())).thenReturn(List.of(second, first));
+        when(cashFlowPostingDao.getByPayoutIds(anyCollection())).thenReturn(cashFlowPostings);
+
+        List<PayoutReadService.BulkPayout> payouts = payoutReadService.getPayouts(
+                List.of(firstPayoutId, missingPayoutId, secondPayoutId, firstPayoutId),
+                PayoutReadService.Projection.FULL);
+
+        assertEquals(
+                List.of(firstPayoutId, missingPayoutId, secondPayoutId),
+                payouts.stream().map(PayoutReadService.BulkPayout::getPayoutId).collect(Collectors.toList()));
+        assertEquals(first, payouts.get(0).getPayout());
+        assertEquals(cashFlowPostings, payouts.get(0).getCashFlowPostings());
+        assertFalse(payouts.get(1).isFound());
+        assertNull(payouts.get(1).getPayout());
+        assertEquals(second, payouts.get(2).getPayout());
+        assertNull(payouts.get(2).getCashFlowPostings());
+        verify(payoutDao, times(1)).getSummaries(
+                eq(new LinkedHashSet<>(List.of(firstPayoutId, missingPayoutId, secondPayoutId))));
+        verify(cashFlowPostingDao, times(1)).getByPayoutIds(anyCollection());
+        verify(payoutService, never()).get(anyString());
+    }
+
+    @Test
+    public void shouldGetOnlyStatusesInBulk() {
+        String payoutId = generatePayoutId();
+        Payout payout = new Payout();
+        payout.setPayoutId(payoutId);
+        payout.setStatus(PayoutStatus.PAID);
+        when(payoutDao.getStatuses(anyCollection())).thenReturn(List.of(payout));
+
+        String missingPayoutId = generatePayoutId();
+        List<PayoutReadService.BulkPayout> payouts = payoutReadService.getPayouts(
+                List.of(missingPayoutId, payoutId), PayoutReadService.Projection.STATUS);
+
+        assertEquals(2, payouts.size());
+        assertFalse(payouts.get(0).isFound());
+        assertEquals(missingPayoutId, payouts.get(0).getPayoutId());
+        assertEquals(PayoutStatus.PAID, payouts.get(1).getPayout().getStatus());
+        verify(payoutDao, never()).getSummaries(anyCollection());
+        verify(cashFlowPostingDao, never()).getByPayoutIds(anyCollection());
+    }
+
+    @Test
+    public void shouldWriteBulkLinePerRequestedPayoutIncludingNotFound() throws Exception {
+        Payout payout = new Payout();
+        payout.setPayoutId("first");
+        payout.setStatus(PayoutStatus.UNPAID);
+        StringWriter writer = new StringWriter();
+        payoutReadService.writeBulk(
+                List.of(
+                        new PayoutReadService.BulkPayout("first", payout, null),
+                        new PayoutReadService.BulkPayout("missing", null, null)),
+                PayoutReadService.Projection.STATUS,
+                writer);
+        String[] lines = writer.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"payout_id\":\"first\""));
+        assertTrue(lines[0].contains("\"found\":true"));
+        assertEquals("{\"payout_id\":\"missing\",\"found\":false}", lines[1]);
+    }
+}
@@ -0,0 +1,136 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.config.properties.BulkheadProperties;
+import com.rbkmoney.payout.manager.dao.PayoutScheduleDao;
+import com.rbkmoney.payout.manager.domain.tables.pojos.PayoutSchedule;
+import com.rbkmoney.payout.manager.exception.InsufficientFundsException;
+import com.rbkmoney.payout.manager.exception.NotFoundException;
+import com.rbkmoney.payout.manager.exception.PayoutAlreadyExistsException;
+import com.rbkmoney.payout.manager.exception.StorageException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+public class PayoutScheduleServiceTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String PARTY_ID = "partyId";
+    private static final String SHOP_ID = "shopId";
+
+    private PayoutScheduleDao payoutScheduleDao;
+    private PayoutManagementService payoutManagementService;
+    private PayoutScheduleService payoutScheduleService;
+    private LocalDateTime nextRunAt;
+
+    @BeforeEach
+    public void setUp() {
+        payoutScheduleDao = mock(PayoutScheduleDao.class);
+        payoutManagementService = mock(PayoutManagementService.class);
+        AdmissionControlService admissionControlService = mock(AdmissionControlService.class);
+        when(admissionControlService.admit(anyString(), anyString())).thenReturn(true);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        payoutScheduleService = new PayoutScheduleService(
+                payoutScheduleDao,
+                payoutManagementService,
+                admissionControlService,
+                new BulkheadService(new BulkheadProperties(), meterRegistry, 10),
+                mock(PartyManagementService.class),
+                mock(ShumwayService.class),
+                meterRegistry,
+                1, 10, 60_000L, 60_000L, 1_000L, 60_000L, MAX_ATTEMPTS);
+        nextRunAt = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        payoutScheduleService.destroy();
+    }
+
+    @Test
+    public void shouldRetryTransientFailureWithSamePayoutId() throws InterruptedException {
+        when(payoutManagementService.create(eq(PARTY_ID), eq(SHOP_ID), any(), anyString(), isNull()))
+                .thenThrow(new StorageException("Lost connection"))
+                .thenThrow(new PayoutAlreadyExistsException("Payout already exists"));
+
+        process(schedule(0));
+        verify(payoutScheduleDao).fail(eq(1L), any(), any(), startsWith("StorageException"));
+        verify(payoutScheduleDao, never()).skip(anyLong(), any(), any(), anyString());
+
+        process(schedule(1));
+        ArgumentCaptor<String> payoutIds = ArgumentCaptor.forClass(String.class);
+        verify(payoutManagementService, times(2))
+                .create(eq(PARTY_ID), eq(SHOP_ID), any(), payoutIds.capture(), isNull());
+        String payoutId = payoutIds.getAllValues().get(0);
+        assertEquals(List.of(payoutId, payoutId), payoutIds.getAllValues());
+        verify(payoutScheduleDao).complete(eq(1L), any(), any(), eq(payoutId));
+    }
+
+    @Test
+    public void shouldMoveToNextSlotOnBusinessError() throws InterruptedException {
+        when(payoutManagementService.create(anyString(), anyString(), any(), anyString(), isNull()))
+                .thenThrow(new InsufficientFundsException("Not enough"))
+                .thenThrow(new NotFoundException("Shop not found"));
+
+        process(schedule(0));
+        process(schedule(0));
+
+        ArgumentCaptor<LocalDateTime> nextRunAts = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<String> lastErrors = ArgumentCaptor.forClass(String.class);
+        verify(payoutScheduleDao, times(2)).skip(eq(1L), any(), nextRunAts.capture(), lastErrors.capture());
+        assertTrue(nextRunAts.getAllValues().stream().allMatch(next -> next.isAfter(nextRunAt)));
+        assertTrue(lastErrors.getAllValues().get(0).startsWith("InsufficientFundsException"));
+        assertTrue(lastErrors.getAllValues().get(1).startsWith("NotFoundException"));
+        verify(payoutScheduleDao, never()).fail(anyLong(), any(), any(), anyString());
+        verify(payoutScheduleDao, never()).complete(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldMoveToNextSlotWhenAttemptsAreExhausted() throws InterruptedException {
+        when(payoutManagementService.create(anyString(), anyString(), any(), anyString(), isNull()))
+                .thenThrow(new StorageException("Lost connection"));
+
+        process(schedule(MAX_ATTEMPTS - 1));
+
+        ArgumentCaptor<LocalDateTime> nextRunAts = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(payoutScheduleDao).skip(eq(1L), any(), nextRunAts.capture(), startsWith("StorageException"));
+        assertTrue(nextRunAts.getValue().isAfter(nextRunAt));
+        verify(payoutScheduleDao, never()).fail(anyLong(), any(), any(), anyString());
+    }
+
+    private void process(PayoutSchedule payoutSchedule) throws InterruptedException {
+        when(payoutScheduleDao.claimDue(any(), any(), anyInt())).thenReturn(List.of(payoutSchedule), List.of());
+        payoutScheduleService.processDueSchedules();
+    }
+
+    private PayoutSchedule schedule(int failedAttempts) {
+        PayoutSchedule payoutSchedule = new PayoutSchedule();
+        payoutSchedule.setId(1L);
+        payoutSchedule.setPartyId(PARTY_ID);
+        payoutSchedule.setShopId(SHOP_ID);
+        payoutSchedule.setCron("0 0 * * * ?");
+        payoutSchedule.setCurrencyCode("RUB");
+        payoutSchedule.setAmount(100L);
+        payoutSchedule.setEnabled(true);
+        payoutSchedule.setNextRunAt(nextRunAt);
+        payoutSchedule.setFailedAttempts(failedAttempts);
+        return payoutSchedule;
+    }
+}
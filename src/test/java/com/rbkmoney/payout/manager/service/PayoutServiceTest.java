@@ -4,6 +4,7 @@ import com.rbkmoney.damsel.domain.*;
 import com.rbkmoney.damsel.shumpune.Balance;
 import com.rbkmoney.damsel.shumpune.Clock;
 import com.rbkmoney.damsel.shumpune.LatestClock;
+import com.rbkmoney.damsel.shumpune.PostingPlan;
 import com.rbkmoney.geck.serializer.kit.mock.MockMode;
 import com.rbkmoney.geck.serializer.kit.mock.MockTBaseProcessor;
 import com.rbkmoney.geck.serializer.kit.tbase.TBaseHandler;
@@ -11,12 +12,17 @@ import com.rbkmoney.payout.manager.config.PostgresqlSpringBootITest;
 import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
 import com.rbkmoney.payout.manager.domain.tables.pojos.Payout;
 import com.rbkmoney.payout.manager.exception.*;
+import com.rbkmoney.payout.manager.tracing.Tracer;
+import com.rbkmoney.payout.manager.util.PayoutSnapshotUtil;
+import com.rbkmoney.payout.manager.util.PostingPlanUtil;
 import lombok.SneakyThrows;
 import org.apache.thrift.TBase;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Instant;
 import java.util.List;
@@ -38,10 +44,15 @@ public class PayoutServiceTest {
     @MockBean
     private PartyManagementService partyManagementService;
 
+    @SpyBean
+    private Tracer tracer;
+
     @Autowired
     private CashFlowPostingService cashFlowPostingService;
     @Autowired
     private PayoutService payoutService;
+    @Autowired
+    private BalanceLedgerService balanceLedgerService;
 
     private MockTBaseProcessor mockTBaseProcessor;
 
@@ -86,7 +97,7 @@ public class PayoutServiceTest {
                 anyString(),
                 anyString()))
                 .thenReturn(List.of(returnedPayoutAmount, returnedPayoutFixedFee, returnedFee));
-        when(shumwayService.hold(anyString(), anyList())).thenReturn(Clock.latest(new LatestClock()));
+        when(shumwayService.hold(anyString(), any(PostingPlan.class))).thenReturn(Clock.latest(new LatestClock()));
         Balance balance = new Balance();
         Balance returnedBalance = fillTBaseObject(balance, Balance.class);
         returnedBalance.setMinAvailableAmount(1L);
@@ -100,7 +111,13 @@ public class PayoutServiceTest {
         assertEquals(2L, payout.getFee());
         assertEquals(PayoutStatus.UNPAID, payout.getStatus());
         assertEquals(returnedParty.getShops().get(shopId).getPayoutToolId(), payout.getPayoutToolId());
+        assertEquals(
+                payoutId,
+                PayoutSnapshotUtil.deserialize(payout.getSnapshot()).getPayoutId());
+        assertEquals(3, PostingPlanUtil.getPostingPlan(payout).getBatchList().get(0).getPostingsSize());
+        assertEquals(Clock.latest(new LatestClock()), PostingPlanUtil.getHoldClock(payout));
         assertEquals(3L, cashFlowPostingService.getCashFlowPostings(payout.getPayoutId()).size());
+        verify(tracer).inSpan(eq("payout.save"), any());
         assertNotNull(cashFlowPostingService.getCashFlowPostings(payout.getPayoutId()).stream()
                 .filter(cashFlowPosting ->
                         cashFlowPosting.getToAccountId().equals(returnedFee.getDestination().getAccountId()))
@@ -172,6 +189,77 @@ public class PayoutServiceTest {
         );
     }
 
+    @Test
+    public void shouldRejectUnaffordableCreateBeforeHoldWhenBalanceLedgerIsEnabled() {
+        String partyId = "partyId";
+        Party party = new Party();
+        Party returnedParty = fillTBaseObject(party, Party.class);
+        returnedParty.setId(partyId);
+        String shopId = "shopId";
+        Shop shop = new Shop();
+        Shop returnedShop = fillTBaseObject(shop, Shop.class);
+        returnedShop.setId(shopId);
+        returnedParty.setShops(Map.of(shopId, returnedShop));
+        when(partyManagementService.getParty(eq(partyId))).thenReturn(returnedParty);
+        long settlementAccountId = returnedShop.getAccount().getSettlement();
+        FinalCashFlowPosting finalCashFlowPosting = new FinalCashFlowPosting();
+        FinalCashFlowPosting returnedPayoutAmount = fillTBaseObject(finalCashFlowPosting, FinalCashFlowPosting.class);
+        returnedPayoutAmount.getSource().setAccountType(CashFlowAccount.merchant(MerchantCashFlowAccount.settlement));
+        returnedPayoutAmount.getSource().setAccountId(settlementAccountId);
+        returnedPayoutAmount.getDestination().setAccountType(CashFlowAccount.merchant(MerchantCashFlowAccount.payout));
+        returnedPayoutAmount.getDestination().setAccountId(settlementAccountId + 1);
+        returnedPayoutAmount.getVolume().setAmount(5L);
+        FinalCashFlowPosting returnedPayoutFixedFee = new FinalCashFlowPosting(returnedPayoutAmount);
+        returnedPayoutFixedFee.getSource().setAccountType(CashFlowAccount.merchant(MerchantCashFlowAccount.payout));
+        returnedPayoutFixedFee.getSource().setAccountId(settlementAccountId + 1);
+        returnedPayoutFixedFee.getDestination().setAccountType(
+                CashFlowAccount.merchant(MerchantCashFlowAccount.settlement));
+        returnedPayoutFixedFee.getDestination().setAccountId(settlementAccountId);
+        returnedPayoutFixedFee.getVolume().setAmount(1L);
+        FinalCashFlowPosting returnedFee = new FinalCashFlowPosting(returnedPayoutAmount);
+        returnedFee.getDestination().setAccountType(CashFlowAccount.system(SystemCashFlowAccount.settlement));
+        returnedFee.getDestination().setAccountId(settlementAccountId + 2);
+        returnedFee.getVolume().setAmount(1L);
+        when(partyManagementService.computePayoutCashFlow(
+                eq(partyId),
+                eq(shopId),
+                any(),
+                anyString(),
+                anyString()))
+                .thenReturn(List.of(returnedPayoutAmount, returnedPayoutFixedFee, returnedFee));
+        when(shumwayService.hold(anyString(), any(PostingPlan.class))).thenReturn(Clock.latest(new LatestClock()));
+        when(shumwayService.getBalance(any(), any(), anyString())).thenReturn(new Balance().setMinAvailableAmount(0L));
+        ReflectionTestUtils.setField(balanceLedgerService, "enabled", true);
+        ReflectionTestUtils.setField(balanceLedgerService, "ttlMs", 60_000L);
+        try {
+            // the create debits 5 from the settlement account: 5 paid out, 1 fixed fee returned, 1 fee
+            observeAvailableAmount(partyId, shopId, 4L);
+            assertThrows(
+                    InsufficientFundsException.class,
+                    () -> payoutService.create(
+                            partyId,
+                            shopId,
+                            buildCash(), null, null));
+            verify(shumwayService, never()).hold(anyString(), any(PostingPlan.class));
+
+            observeAvailableAmount(partyId, shopId, 5L);
+            String payoutId = payoutService.create(
+                    partyId,
+                    shopId,
+                    buildCash(), null, null);
+            verify(shumwayService).hold(eq(payoutId), any(PostingPlan.class));
+        } finally {
+            balanceLedgerService.invalidate(partyId, shopId);
+            ReflectionTestUtils.setField(balanceLedgerService, "enabled", false);
+        }
+    }
+
+    private void observeAvailableAmount(String partyId, String shopId, long availableAmount) {
+        BalanceLedgerService.Reservation reservation = balanceLedgerService.reserve(partyId, shopId, 0L);
+        balanceLedgerService.observe(reservation, availableAmount);
+        balanceLedgerService.complete(reservation);
+    }
+
     private Cash buildCash() {
         return new Cash(100L, new CurrencyRef("RUB"));
     }
@@ -293,9 +381,9 @@ public class PayoutServiceTest {
                 anyString(),
                 anyString()))
                 .thenReturn(List.of(returnedPayoutAmount, returnedPayoutFixedFee, returnedFee));
-        when(shumwayService.hold(anyString(), anyList())).thenReturn(Clock.latest(new LatestClock()));
+        when(shumwayService.hold(anyString(), any(PostingPlan.class))).thenReturn(Clock.latest(new LatestClock()));
         when(shumwayService.getBalance(any(), any(), anyString())).thenReturn(null);
-        doNothing().when(shumwayService).rollback(anyString());
+        doNothing().when(shumwayService).rollback(anyString(), any());
         assertThrows(
                 InsufficientFundsException.class,
                 () -> payoutService.create(
@@ -322,13 +410,13 @@ public class PayoutServiceTest {
     public void shouldConfirm() {
         Payout payout = random(Payout.class);
         saveRandomPayout(payout);
-        doNothing().when(shumwayService).commit(anyString());
+        doNothing().when(shumwayService).commit(anyString(), any());
         payoutService.confirm(payout.getPayoutId());
         assertEquals(PayoutStatus.CONFIRMED, payoutService.get(payout.getPayoutId()).getStatus());
-        verify(shumwayService, times(1)).commit(anyString());
+        verify(shumwayService, times(1)).commit(anyString(), any());
         payoutService.confirm(payout.getPayoutId());
         assertEquals(PayoutStatus.CONFIRMED, payoutService.get(payout.getPayoutId()).getStatus());
-        verify(shumwayService, times(1)).commit(anyString());
+        verify(shumwayService, times(1)).commit(anyString(), any());
     }
 
     @Test
@@ -342,8 +430,8 @@ public class PayoutServiceTest {
     public void shouldThrowExceptionAtConfirmWhenStateIsCancelled() {
         Payout payout = random(Payout.class);
         saveRandomPayout(payout);
-        doNothing().when(shumwayService).commit(anyString());
-        doNothing().when(shumwayService).rollback(anyString());
+        doNothing().when(shumwayService).commit(anyString(), any());
+        doNothing().when(shumwayService).rollback(anyString(), any());
         payoutService.cancel(payout.getPayoutId(), DETAILS);
         assertEquals(PayoutStatus.CANCELLED, payoutService.get(payout.getPayoutId()).getStatus());
         assertThrows(
@@ -355,15 +443,15 @@ public class PayoutServiceTest {
     public void shouldCancel() {
         Payout payout = random(Payout.class);
         saveRandomPayout(payout);
-        doNothing().when(shumwayService).rollback(anyString());
+        doNothing().when(shumwayService).rollback(anyString(), any());
         payoutService.cancel(payout.getPayoutId(), DETAILS);
         assertEquals(PayoutStatus.CANCELLED, payoutService.get(payout.getPayoutId()).getStatus());
-        verify(shumwayService, times(1)).rollback(anyString());
-        verify(shumwayService, times(0)).revert(anyString());
+        verify(shumwayService, times(1)).rollback(anyString(), any());
+        verify(shumwayService, times(0)).revert(anyString(), any());
         payoutService.cancel(payout.getPayoutId(), DETAILS);
         assertEquals(PayoutStatus.CANCELLED, payoutService.get(payout.getPayoutId()).getStatus());
-        verify(shumwayService, times(1)).rollback(anyString());
-        verify(shumwayService, times(0)).revert(anyString());
+        verify(shumwayService, times(1)).rollback(anyString(), any());
+        verify(shumwayService, times(0)).revert(anyString(), any());
     }
 
     private Payout saveRandomPayout(Payout payout) {
@@ -383,14 +471,14 @@ public class PayoutServiceTest {
     public void shouldCancelAfterConfirm() {
         Payout payout = random(Payout.class);
         saveRandomPayout(payout);
-        doNothing().when(shumwayService).commit(anyString());
+        doNothing().when(shumwayService).commit(anyString(), any());
         payoutService.confirm(payout.getPayoutId());
         assertEquals(PayoutStatus.CONFIRMED, payoutService.get(payout.getPayoutId()).getStatus());
-        doNothing().when(shumwayService).revert(anyString());
+        doNothing().when(shumwayService).revert(anyString(), any());
         payoutService.cancel(payout.getPayoutId(), DETAILS);
         assertEquals(PayoutStatus.CANCELLED, payoutService.get(payout.getPayoutId()).getStatus());
-        verify(shumwayService, times(0)).rollback(anyString());
-        verify(shumwayService, times(1)).revert(anyString());
+        verify(shumwayService, times(0)).rollback(anyString(), any());
+        verify(shumwayService, times(1)).revert(anyString(), any());
     }
 
     @Test
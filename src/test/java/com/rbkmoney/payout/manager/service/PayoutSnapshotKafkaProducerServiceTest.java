@@ -0,0 +1,80 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.Payout;
+import com.rbkmoney.payout.manager.domain.enums.PayoutStatus;
+import com.rbkmoney.payout.manager.util.ThriftUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.List;
+
+import static com.rbkmoney.payout.manager.util.ValuesGenerator.generatePayoutId;
+import static com.rbkmoney.testcontainers.annotations.util.RandomBeans.random;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class PayoutSnapshotKafkaProducerServiceTest {
+
+    private static final String TOPIC_NAME = "pm-payout-snapshot";
+
+    private KafkaTemplate<String, Payout> kafkaTemplate;
+    private PayoutReadService payoutReadService;
+    private PayoutSnapshotKafkaProducerService payoutSnapshotKafkaProducerService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        payoutReadService = mock(PayoutReadService.class);
+        payoutSnapshotKafkaProducerService = new PayoutSnapshotKafkaProducerService(
+                kafkaTemplate, payoutReadService, new SimpleMeterRegistry(), 50L);
+        ReflectionTestUtils.setField(payoutSnapshotKafkaProducerService, "topicName", TOPIC_NAME);
+        ReflectionTestUtils.setField(payoutSnapshotKafkaProducerService, "producerEnabled", true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        payoutSnapshotKafkaProducerService.destroy();
+    }
+
+    @Test
+    public void shouldRepublishLatestSnapshotAfterFailedSend() {
+        Payout sent = payout(PayoutStatus.PAID);
+        Payout latest = new Payout(sent).setStatus(
+                ThriftUtil.toThriftPayoutStatus(PayoutStatus.CONFIRMED, null));
+        when(payoutReadService.load(eq(sent.getPayoutId()))).thenReturn(latest);
+        when(kafkaTemplate.send(anyString(), anyString(), any(Payout.class))).thenReturn(failed(), succeeded());
+
+        payoutSnapshotKafkaProducerService.send(sent);
+
+        verify(kafkaTemplate, timeout(5000)).send(eq(TOPIC_NAME), eq(sent.getPayoutId()), eq(latest));
+    }
+
+    private Payout payout(PayoutStatus status) {
+        com.rbkmoney.payout.manager.domain.tables.pojos.Payout payout =
+                random(com.rbkmoney.payout.manager.domain.tables.pojos.Payout.class);
+        payout.setPayoutId(generatePayoutId());
+        payout.setStatus(status);
+        return ThriftUtil.toThriftPayout(payout, List.of());
+    }
+
+    private SettableListenableFuture<SendResult<String, Payout>> failed() {
+        SettableListenableFuture<SendResult<String, Payout>> future = new SettableListenableFuture<>();
+        future.setException(new IllegalStateException("broker is not available"));
+        return future;
+    }
+
+    private SettableListenableFuture<SendResult<String, Payout>> succeeded() {
+        SettableListenableFuture<SendResult<String, Payout>> future = new SettableListenableFuture<>();
+        future.set(null);
+        return future;
+    }
+}
@@ -0,0 +1,136 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.dao.PayoutDao;
+import com.rbkmoney.payout.manager.exception.LockAcquisitionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ShopLockServiceTest {
+
+    private static final String PARTY_ID = "partyId";
+    private static final String SHOP_ID = "shopId";
+    private static final int STRIPES = 64;
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        executorService.shutdownNow();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldRunSameShopCreatesOneAfterAnother() throws Exception {
+        ShopLockService shopLockService = createService(5_000L);
+        List<String> events = new CopyOnWriteArrayList<>();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+
+        Future<?> first = executorService.submit(() -> shopLockService.executeInLock(PARTY_ID, SHOP_ID, () -> {
+            events.add("first-start");
+            firstStarted.countDown();
+            await(releaseFirst);
+            events.add("first-end");
+            return null;
+        }));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        Future<?> second = executorService.submit(() -> shopLockService.executeInLock(PARTY_ID, SHOP_ID, () -> {
+            events.add("second-start");
+            secondStarted.countDown();
+            return null;
+        }));
+
+        assertFalse(secondStarted.await(200, TimeUnit.MILLISECONDS));
+        releaseFirst.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("first-start", "first-end", "second-start"), events);
+    }
+
+    @Test
+    public void shouldRunDifferentShopsInParallel() throws Exception {
+        ShopLockService shopLockService = createService(100L);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        try {
+            executorService.submit(() -> shopLockService.executeInLock(PARTY_ID, SHOP_ID, () -> {
+                firstStarted.countDown();
+                await(releaseFirst);
+                return null;
+            }));
+            assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+            assertEquals("created", shopLockService.executeInLock(PARTY_ID, shopIdOnAnotherStripe(), () -> "created"));
+        } finally {
+            releaseFirst.countDown();
+        }
+    }
+
+    @Test
+    public void shouldFailWhenShopLockIsNotAcquiredInTime() throws Exception {
+        ShopLockService shopLockService = createService(100L);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicBoolean secondExecuted = new AtomicBoolean();
+        try {
+            executorService.submit(() -> shopLockService.executeInLock(PARTY_ID, SHOP_ID, () -> {
+                firstStarted.countDown();
+                await(releaseFirst);
+                return null;
+            }));
+            assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+            assertThrows(
+                    LockAcquisitionException.class,
+                    () -> shopLockService.executeInLock(PARTY_ID, SHOP_ID, () -> secondExecuted.getAndSet(true)));
+            assertFalse(secondExecuted.get());
+        } finally {
+            releaseFirst.countDown();
+        }
+    }
+
+    private ShopLockService createService(long timeoutMs) {
+        return new ShopLockService(mock(PayoutDao.class), new SimpleMeterRegistry(), true, STRIPES, timeoutMs, false);
+    }
+
+    private String shopIdOnAnotherStripe() {
+        int stripe = Math.floorMod((PARTY_ID + "/" + SHOP_ID).hashCode(), STRIPES);
+        for (int i = 0; ; i++) {
+            String shopId = SHOP_ID + i;
+            if (Math.floorMod((PARTY_ID + "/" + shopId).hashCode(), STRIPES) != stripe) {
+                return shopId;
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
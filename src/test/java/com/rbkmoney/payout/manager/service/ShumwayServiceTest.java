@@ -1,17 +1,21 @@
 package com.rbkmoney.payout.manager.service;
 
+import com.rbkmoney.damsel.base.InvalidRequest;
 import com.rbkmoney.damsel.shumpune.AccounterSrv;
 import com.rbkmoney.damsel.shumpune.Clock;
 import com.rbkmoney.damsel.shumpune.InvalidPostingParams;
 import com.rbkmoney.damsel.shumpune.LatestClock;
+import com.rbkmoney.damsel.shumpune.PostingPlan;
 import com.rbkmoney.payout.manager.config.PostgresqlSpringBootITest;
 import com.rbkmoney.payout.manager.domain.tables.pojos.CashFlowPosting;
 import com.rbkmoney.payout.manager.exception.AccounterException;
 import com.rbkmoney.payout.manager.exception.NotFoundException;
+import com.rbkmoney.payout.manager.util.PostingPlanUtil;
 import org.apache.thrift.TException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -21,6 +25,8 @@ import static com.rbkmoney.testcontainers.annotations.util.RandomBeans.randomStr
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @PostgresqlSpringBootITest
@@ -29,7 +35,7 @@ public class ShumwayServiceTest {
     @MockBean
     private AccounterSrv.Iface shumwayClient;
 
-    @Autowired
+    @SpyBean
     private CashFlowPostingService cashFlowPostingService;
     @Autowired
     private ShumwayService shumwayService;
@@ -37,165 +43,188 @@ public class ShumwayServiceTest {
     @Test
     public void shouldHold() throws TException {
         String payoutId = generatePayoutId();
-        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
-                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
-                .collect(Collectors.toList());
         Clock clock = Clock.latest(new LatestClock());
         when(shumwayClient.hold(any())).thenReturn(clock);
         assertEquals(
                 clock,
-                shumwayService.hold(payoutId, cashFlowPostings));
+                shumwayService.hold(payoutId, postingPlan(payoutId, randomCashFlowPostings(payoutId))));
     }
 
     @Test
     public void shouldThrowExceptionAtHoldWhenClientIssue() throws TException {
         String payoutId = generatePayoutId();
-        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
-                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
-                .collect(Collectors.toList());
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
         when(shumwayClient.hold(any())).thenThrow(InvalidPostingParams.class);
         assertThrows(
                 AccounterException.class,
-                () -> shumwayService.hold(payoutId, cashFlowPostings));
+                () -> shumwayService.hold(payoutId, postingPlan));
     }
 
     @Test
     public void shouldCommit() throws TException {
         String payoutId = generatePayoutId();
-        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
-                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
-                .collect(Collectors.toList());
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
+        when(shumwayClient.commitPlan(any())).thenReturn(Clock.latest(new LatestClock()));
+        shumwayService.commit(payoutId, postingPlan);
+        verify(shumwayClient, times(1)).commitPlan(eq(postingPlan));
+    }
+
+    @Test
+    public void shouldCommitStoredPostingPlanWithoutReadingCashFlowPostings() throws TException {
+        String payoutId = generatePayoutId();
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
+        when(shumwayClient.commitPlan(any())).thenReturn(Clock.latest(new LatestClock()));
+        shumwayService.commit(payoutId, postingPlan);
+        verify(shumwayClient, times(1)).commitPlan(eq(postingPlan));
+        verify(cashFlowPostingService, never()).getCashFlowPostings(anyString());
+    }
+
+    @Test
+    public void shouldCommitPostingPlanRebuiltFromCashFlowPostingsWhenPlanIsNotStored() throws TException {
+        String payoutId = generatePayoutId();
+        List<CashFlowPosting> cashFlowPostings = randomCashFlowPostings(payoutId);
         cashFlowPostingService.save(cashFlowPostings);
-        Clock clock = Clock.latest(new LatestClock());
-        when(shumwayClient.commitPlan(any())).thenReturn(clock);
-        shumwayService.commit(payoutId);
+        when(shumwayClient.commitPlan(any())).thenReturn(Clock.latest(new LatestClock()));
+        shumwayService.commit(payoutId, null);
         verify(shumwayClient, times(1)).commitPlan(any());
+        verify(cashFlowPostingService, times(1)).getCashFlowPostings(payoutId);
     }
 
     @Test
-    public void shouldThrowExceptionAtCommitWhenCashFlowPostingIsNull() {
+    public void shouldThrowExceptionAtCommitWhenPlanIsNotStoredAndCashFlowPostingIsNull() {
         String payoutId = generatePayoutId();
         assertThrows(
                 NotFoundException.class,
-                () -> shumwayService.commit(payoutId));
+                () -> shumwayService.commit(payoutId, null));
     }
 
     @Test
     public void shouldThrowExceptionAtCommitWhenClientIssue() throws TException {
         String payoutId = generatePayoutId();
-        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
-                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
-                .collect(Collectors.toList());
-        cashFlowPostingService.save(cashFlowPostings);
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
         when(shumwayClient.commitPlan(any())).thenThrow(InvalidPostingParams.class);
         assertThrows(
                 AccounterException.class,
-                () -> shumwayService.commit(payoutId));
+                () -> shumwayService.commit(payoutId, postingPlan));
     }
 
     @Test
     public void shouldRollback() throws TException {
         String payoutId = generatePayoutId();
-        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
-                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
-                .collect(Collectors.toList());
-        cashFlowPostingService.save(cashFlowPostings);
-        Clock clock = Clock.latest(new LatestClock());
-        when(shumwayClient.rollbackPlan(any())).thenReturn(clock);
-        shumwayService.rollback(payoutId);
-        verify(shumwayClient, times(1)).rollbackPlan(any());
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
+        when(shumwayClient.rollbackPlan(any())).thenReturn(Clock.latest(new LatestClock()));
+        shumwayService.rollback(payoutId, postingPlan);
+        verify(shumwayClient, times(1)).rollbackPlan(eq(postingPlan));
     }
 
     @Test
-    public void shouldThrowExceptionAtRollbackWhenCashFlowPostingIsNull() {
+    public void shouldThrowExceptionAtRollbackWhenPlanIsNotStoredAndCashFlowPostingIsNull() {
         String payoutId = generatePayoutId();
         assertThrows(
                 NotFoundException.class,
-                () -> shumwayService.rollback(payoutId));
+                () -> shumwayService.rollback(payoutId, null));
     }
 
     @Test
     public void shouldThrowExceptionAtRollbackWhenClientIssue() throws TException {
         String payoutId = generatePayoutId();
-        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
-                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
-                .collect(Collectors.toList());
-        cashFlowPostingService.save(cashFlowPostings);
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
         when(shumwayClient.rollbackPlan(any())).thenThrow(InvalidPostingParams.class);
         assertThrows(
                 AccounterException.class,
-                () -> shumwayService.rollback(payoutId));
+                () -> shumwayService.rollback(payoutId, postingPlan));
     }
 
     @Test
     public void shouldRevert() throws TException {
         String payoutId = generatePayoutId();
-        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
-                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
-                .collect(Collectors.toList());
-        cashFlowPostingService.save(cashFlowPostings);
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
         Clock clock = Clock.latest(new LatestClock());
         when(shumwayClient.hold(any())).thenReturn(clock);
         when(shumwayClient.commitPlan(any())).thenReturn(clock);
-        shumwayService.revert(payoutId);
+        shumwayService.revert(payoutId, postingPlan);
         verify(shumwayClient, times(0)).rollbackPlan(any());
         verify(shumwayClient, times(1)).hold(any());
         verify(shumwayClient, times(1)).commitPlan(any());
     }
 
     @Test
-    public void shouldThrowExceptionAtRevertWhenCashFlowPostingIsNull() {
+    public void shouldThrowExceptionAtRevertWhenPlanIsNotStoredAndCashFlowPostingIsNull() {
         String payoutId = generatePayoutId();
         assertThrows(
                 NotFoundException.class,
-                () -> shumwayService.revert(payoutId));
+                () -> shumwayService.revert(payoutId, null));
     }
 
     @Test
     public void shouldThrowExceptionAtRevertWhenClientIssue() throws TException {
         String payoutId = generatePayoutId();
-        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
-                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
-                .collect(Collectors.toList());
-        cashFlowPostingService.save(cashFlowPostings);
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
         when(shumwayClient.hold(any())).thenThrow(InvalidPostingParams.class);
         when(shumwayClient.commitPlan(any())).thenThrow(InvalidPostingParams.class);
         when(shumwayClient.rollbackPlan(any())).thenThrow(InvalidPostingParams.class);
         assertThrows(
                 AccounterException.class,
-                () -> shumwayService.revert(payoutId));
+                () -> shumwayService.revert(payoutId, postingPlan));
     }
 
     @Test
     public void shouldThrowExceptionAndRollbackAtRevertWhenHoldIssue() throws TException {
         String payoutId = generatePayoutId();
-        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
-                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
-                .collect(Collectors.toList());
-        cashFlowPostingService.save(cashFlowPostings);
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
         when(shumwayClient.hold(any())).thenThrow(InvalidPostingParams.class);
-        Clock clock = Clock.latest(new LatestClock());
-        when(shumwayClient.rollbackPlan(any())).thenReturn(clock);
+        when(shumwayClient.rollbackPlan(any())).thenReturn(Clock.latest(new LatestClock()));
         assertThrows(
                 AccounterException.class,
-                () -> shumwayService.revert(payoutId));
+                () -> shumwayService.revert(payoutId, postingPlan));
         verify(shumwayClient, times(1)).rollbackPlan(any());
     }
 
     @Test
     public void shouldThrowExceptionAndRollbackAtRevertWhenCommitIssue() throws TException {
         String payoutId = generatePayoutId();
-        List<CashFlowPosting> cashFlowPostings = randomStreamOf(4, CashFlowPosting.class, "id")
-                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
-                .collect(Collectors.toList());
-        cashFlowPostingService.save(cashFlowPostings);
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
         Clock clock = Clock.latest(new LatestClock());
         when(shumwayClient.hold(any())).thenReturn(clock);
         when(shumwayClient.commitPlan(any())).thenThrow(InvalidPostingParams.class);
         when(shumwayClient.rollbackPlan(any())).thenReturn(clock);
         assertThrows(
                 AccounterException.class,
-                () -> shumwayService.revert(payoutId));
+                () -> shumwayService.revert(payoutId, postingPlan));
         verify(shumwayClient, times(1)).rollbackPlan(any());
     }
+
+    @Test
+    public void shouldRevertWhenPlanHasAlreadyBeenCommitted() throws TException {
+        String payoutId = generatePayoutId();
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
+        when(shumwayClient.hold(any())).thenThrow(InvalidRequest.class);
+        when(shumwayClient.commitPlan(any())).thenReturn(Clock.latest(new LatestClock()));
+        shumwayService.revert(payoutId, postingPlan);
+        verify(shumwayClient, times(1)).commitPlan(any());
+        verify(shumwayClient, times(0)).rollbackPlan(any());
+    }
+
+    @Test
+    public void shouldThrowExceptionAtRevertWhenFinishedPlanIsNotCommitted() throws TException {
+        String payoutId = generatePayoutId();
+        PostingPlan postingPlan = postingPlan(payoutId, randomCashFlowPostings(payoutId));
+        when(shumwayClient.hold(any())).thenThrow(InvalidRequest.class);
+        when(shumwayClient.commitPlan(any())).thenThrow(InvalidRequest.class);
+        when(shumwayClient.rollbackPlan(any())).thenThrow(InvalidRequest.class);
+        assertThrows(
+                AccounterException.class,
+                () -> shumwayService.revert(payoutId, postingPlan));
+        verify(shumwayClient, times(1)).commitPlan(any());
+    }
+
+    private List<CashFlowPosting> randomCashFlowPostings(String payoutId) {
+        return randomStreamOf(4, CashFlowPosting.class, "id")
+                .peek(cashFlowPosting -> cashFlowPosting.setPayoutId(payoutId))
+                .collect(Collectors.toList());
+    }
+
+    private PostingPlan postingPlan(String payoutId, List<CashFlowPosting> cashFlowPostings) {
+        return PostingPlanUtil.toPostingPlan(payoutId, cashFlowPostings);
+    }
 }
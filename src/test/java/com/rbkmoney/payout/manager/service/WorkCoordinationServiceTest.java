@@ -0,0 +1,102 @@
+package com.rbkmoney.payout.manager.service;
+
+import com.rbkmoney.payout.manager.config.PostgresqlSpringBootITest;
+import com.rbkmoney.payout.manager.dao.WorkLeaseDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@PostgresqlSpringBootITest
+public class WorkCoordinationServiceTest {
+
+    private static final int SHARDS = 16;
+
+    @Autowired
+    private WorkLeaseDao workLeaseDao;
+
+    @Test
+    public void shouldSplitShardsBetweenLiveNodes() throws Exception {
+        String job = UUID.randomUUID().toString();
+        WorkCoordinationService first = createService();
+        WorkCoordinationService second = createService();
+        try {
+            assertEquals(SHARDS, first.runOwnedShards(job, SHARDS, (shard, leaseLost) -> {
+            }));
+            assertEquals(0, second.runOwnedShards(job, SHARDS, (shard, leaseLost) -> {
+            }));
+
+            Set<Integer> firstShards = ConcurrentHashMap.newKeySet();
+            Set<Integer> secondShards = ConcurrentHashMap.newKeySet();
+            first.runOwnedShards(job, SHARDS, (shard, leaseLost) -> firstShards.add(shard));
+            second.runOwnedShards(job, SHARDS, (shard, leaseLost) -> secondShards.add(shard));
+
+            assertEquals(SHARDS / 2, firstShards.size());
+            assertEquals(SHARDS / 2, secondShards.size());
+            Set<Integer> allShards = new HashSet<>(firstShards);
+            allShards.addAll(secondShards);
+            assertEquals(SHARDS, allShards.size());
+        } finally {
+            first.destroy();
+            second.destroy();
+        }
+    }
+
+    @Test
+    public void shouldRenewLeaseOfRunningShard() throws Exception {
+        String job = UUID.randomUUID().toString();
+        WorkCoordinationService service = new WorkCoordinationService(
+                workLeaseDao, new SimpleMeterRegistry(), 2, 30_000L, 1_000L, 200L);
+        try {
+            assertEquals(1, service.runOwnedShards(job, 1, (shard, leaseLost) -> {
+                sleep(2_500L);
+                assertFalse(workLeaseDao.tryAcquire(job, shard, UUID.randomUUID().toString(), 1_000L));
+                assertFalse(leaseLost.getAsBoolean());
+            }));
+        } finally {
+            service.destroy();
+        }
+    }
+
+    @Test
+    public void shouldSignalLostLeaseToShardProcessor() throws Exception {
+        String job = UUID.randomUUID().toString();
+        // the lease expires before the first renewal, so another node can take the shard over
+        WorkCoordinationService service = new WorkCoordinationService(
+                workLeaseDao, new SimpleMeterRegistry(), 2, 30_000L, 300L, 1_000L);
+        AtomicBoolean signalled = new AtomicBoolean();
+        try {
+            service.runOwnedShards(job, 1, (shard, leaseLost) -> {
+                sleep(500L);
+                assertTrue(workLeaseDao.tryAcquire(job, shard, UUID.randomUUID().toString(), 60_000L));
+                long deadline = System.currentTimeMillis() + 5_000L;
+                while (!leaseLost.getAsBoolean() && System.currentTimeMillis() < deadline) {
+                    sleep(50L);
+                }
+                signalled.set(leaseLost.getAsBoolean());
+            });
+            assertTrue(signalled.get());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private WorkCoordinationService createService() {
+        return new WorkCoordinationService(workLeaseDao, new SimpleMeterRegistry(), 2, 30_000L, 60_000L, 10_000L);
+    }
+}
@@ -0,0 +1,113 @@
+package com.rbkmoney.payout.manager.tracing;
+
+import com.rbkmoney.payout.manager.config.properties.TracingProperties;
+import com.rbkmoney.woody.api.trace.TraceData;
+import com.rbkmoney.woody.api.trace.context.TraceContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpRequest;
+import org.apache.http.message.BasicHttpRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TracerTest {
+
+    private static final String WOODY_TRACE_ID = "1mEgZbXfRBe";
+    private static final String WOODY_SPAN_ID = "1mEgZcdeKZs";
+
+    private final List<Span> exportedSpans = new ArrayList<>();
+    private Tracer tracer;
+
+    @BeforeEach
+    public void setUp() {
+        TracingProperties tracingProperties = new TracingProperties();
+        tracingProperties.setEnabled(true);
+        tracingProperties.setQueueSize(100);
+        tracingProperties.setBatchSize(10);
+        tracingProperties.setFlushIntervalMs(60_000L);
+        tracer = new Tracer(tracingProperties, exportedSpans::addAll, new SimpleMeterRegistry());
+        TraceData traceData = new TraceData();
+        traceData.getServiceSpan().getSpan().setTraceId(WOODY_TRACE_ID);
+        traceData.getServiceSpan().getSpan().setId(WOODY_SPAN_ID);
+        TraceContext.setCurrentTraceData(traceData);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TraceContext.reset();
+    }
+
+    @Test
+    public void shouldLinkSpansToWoodyByTagsWithoutChangingWoodySpan() {
+        com.rbkmoney.woody.api.trace.Span woodySpan =
+                TraceContext.getCurrentTraceData().getServiceSpan().getSpan();
+        Span root = tracer.startSpan("payout.create");
+        assertEquals(WOODY_TRACE_ID, root.getTraceId());
+        assertNull(root.getParentId());
+        assertEquals(WOODY_SPAN_ID, woodySpan.getId());
+
+        Span child = tracer.startSpan("shumway.hold");
+        assertEquals(WOODY_TRACE_ID, child.getTraceId());
+        assertEquals(root.getSpanId(), child.getParentId());
+        assertEquals(WOODY_TRACE_ID, child.getTags().get(Tracer.WOODY_TRACE_ID_TAG));
+        assertEquals(WOODY_SPAN_ID, child.getTags().get(Tracer.WOODY_SPAN_ID_TAG));
+        assertEquals(WOODY_SPAN_ID, woodySpan.getId());
+
+        tracer.endSpan(root);
+        tracer.endSpan(child);
+        assertEquals(WOODY_SPAN_ID, woodySpan.getId());
+    }
+
+    @Test
+    public void shouldPropagateOpenSpanInTraceparentHeader() {
+        HttpRequest request = new BasicHttpRequest("POST", "/shumway");
+        new TracingHttpRequestInterceptor().process(request, null);
+        assertFalse(request.containsHeader(TracingHttpRequestInterceptor.TRACEPARENT_HEADER));
+
+        Span span = tracer.startSpan("shumway.hold");
+        try {
+            new TracingHttpRequestInterceptor().process(request, null);
+            assertEquals(
+                    String.format("00-%s-%s-01", TraceIds.toHex(WOODY_TRACE_ID, 32), span.getSpanId()),
+                    request.getFirstHeader(TracingHttpRequestInterceptor.TRACEPARENT_HEADER).getValue());
+        } finally {
+            tracer.endSpan(span);
+        }
+    }
+
+    @Test
+    public void shouldTraceExplicitSpanAndRecordError() {
+        assertEquals("saved", tracer.inSpan("payout.save", () -> "saved"));
+        assertThrows(IllegalStateException.class, () -> tracer.inSpan("payout.save", () -> {
+            throw new IllegalStateException("test");
+        }));
+        tracer.destroy();
+
+        assertEquals(2, exportedSpans.size());
+        assertEquals("payout.save", exportedSpans.get(0).getName());
+        assertTrue(exportedSpans.get(1).isError());
+        assertEquals(Map.of(
+                Tracer.WOODY_TRACE_ID_TAG, WOODY_TRACE_ID,
+                Tracer.WOODY_SPAN_ID_TAG, WOODY_SPAN_ID,
+                "error", "IllegalStateException"),
+                exportedSpans.get(1).getTags());
+    }
+
+    @Test
+    public void shouldMapWoodyIdsToStableHexIds() {
+        String traceId = TraceIds.toHex(WOODY_TRACE_ID, 32);
+        assertEquals(32, traceId.length());
+        assertEquals(traceId, TraceIds.toHex(WOODY_TRACE_ID, 32));
+        assertEquals("00f067aa0ba902b7", TraceIds.toHex("00f067aa0ba902b7", 16));
+    }
+}
@@ -0,0 +1,52 @@
+package com.rbkmoney.payout.manager.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenBucketTest {
+
+    private final AtomicLong nanoClock = new AtomicLong();
+
+    @Test
+    public void shouldAdmitBurstAndThenThrottle() {
+        TokenBucket tokenBucket = new TokenBucket(1, 3, nanoClock::get);
+        assertTrue(tokenBucket.tryAcquire());
+        assertTrue(tokenBucket.tryAcquire());
+        assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+    }
+
+    @Test
+    public void shouldRefillAtConfiguredRate() {
+        TokenBucket tokenBucket = new TokenBucket(2, 1, nanoClock::get);
+        assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+        nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(400));
+        assertFalse(tokenBucket.tryAcquire());
+        nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(tokenBucket.tryAcquire());
+    }
+
+    @Test
+    public void shouldNotRefillAboveBurst() {
+        TokenBucket tokenBucket = new TokenBucket(10, 2, nanoClock::get);
+        nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertTrue(tokenBucket.tryAcquire());
+        assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+    }
+
+    @Test
+    public void shouldReturnRefundedToken() {
+        TokenBucket tokenBucket = new TokenBucket(1, 1, nanoClock::get);
+        assertTrue(tokenBucket.tryAcquire());
+        tokenBucket.refund();
+        assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+    }
+}